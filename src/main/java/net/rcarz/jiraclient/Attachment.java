@@ -22,14 +22,14 @@ package net.rcarz.jiraclient;
 import net.sf.json.JSON;
 import net.sf.json.JSONObject;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Date;
 import java.util.Map;
 
@@ -38,6 +38,9 @@ import java.util.Map;
  */
 public class Attachment extends Resource {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long TRANSFER_SIZE = 1024 * 1024;
+
     @Nullable
     private User author = null;
     @Nullable
@@ -109,26 +112,184 @@ public class Attachment extends Resource {
      *
      * @throws JiraException when the download fails
      */
-    public byte[] download() 
-    	throws JiraException{
-    	ByteArrayOutputStream bos = new ByteArrayOutputStream();
-    	try{
-        	HttpGet get = new HttpGet(content);
-        	HttpResponse response = restclient.getHttpClient().execute(get);
-        	HttpEntity entity = response.getEntity();
-        	if (entity != null) {
-        	    InputStream inputStream = entity.getContent();
-        	    int next = inputStream.read();
-        	    while (next > -1) {
-        	        bos.write(next);
-        	        next = inputStream.read();
-        	    }
-        	    bos.flush();
-        	}
-    	}catch(IOException e){
-    		  throw new JiraException(String.format("Failed downloading attachment from %s: %s", this.content, e.getMessage()));
-    	}
-    	return bos.toByteArray();
+    public byte[] download() throws JiraException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(size > 0 ? size : BUFFER_SIZE);
+        download(bos);
+        return bos.toByteArray();
+    }
+
+    /**
+     * Downloads attachment to a stream. The stream is not closed.
+     *
+     * @param out Stream to write the content to
+     *
+     * @return the number of bytes written
+     *
+     * @throws JiraException when the download fails
+     */
+    public long download(@NotNull OutputStream out) throws JiraException {
+        return copy(openStream(), out);
+    }
+
+    /**
+     * Downloads attachment to a stream from the server, bypassing the
+     * attachment cache.
+     */
+    long fetch(@NotNull OutputStream out) throws JiraException {
+        return copy(openDirect(), out);
+    }
+
+    private long copy(@NotNull InputStream in, @NotNull OutputStream out) throws JiraException {
+        try {
+            byte[] buf = new byte[BUFFER_SIZE];
+            long total = 0;
+            int n;
+
+            while ((n = in.read(buf)) != -1) {
+                out.write(buf, 0, n);
+                total += n;
+            }
+
+            out.flush();
+            return total;
+        } catch (IOException ex) {
+            throw new JiraException("Failed downloading attachment from " + content, ex);
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Downloads attachment to a file, replacing its content. A partly written
+     * file is deleted when the download fails.
+     *
+     * @param file File to write the content to
+     *
+     * @return the number of bytes written
+     *
+     * @throws JiraException when the download fails
+     */
+    public long download(@NotNull File file) throws JiraException {
+        InputStream in = openStream();
+        FileOutputStream fos = null;
+        boolean done = false;
+
+        try {
+            fos = new FileOutputStream(file);
+            long total = transfer(in, fos.getChannel(), 0);
+            done = true;
+            return total;
+        } catch (IOException ex) {
+            throw new JiraException("Failed downloading attachment from " + content + " to " + file, ex);
+        } finally {
+            closeQuietly(in);
+            closeQuietly(fos);
+
+            if (!done)
+                file.delete();
+        }
+    }
+
+    /**
+     * Downloads attachment to a file in concurrent segments using HTTP range
+     * requests. Progress is kept in a <code>.progress</code> file next to the
+     * target, and calling this again after a failure resumes each segment
+     * where it stopped. Falls back to a single stream when the server does
+     * not advertise range support or the attachment is small. Segmented
+     * downloads do not use the attachment cache.
+     *
+     * @param file File to write the content to
+     * @param segments Maximum number of concurrent segments
+     *
+     * @return the number of bytes in the file
+     *
+     * @throws JiraException when the download fails
+     */
+    public long download(@NotNull File file, int segments) throws JiraException {
+        RangedDownload ranged = new RangedDownload(restclient, content, file);
+        long length = -1;
+
+        if (segments > 1) {
+            try {
+                length = ranged.probe();
+            } catch (Exception ex) {
+                throw new JiraException("Failed downloading attachment from " + content, ex);
+            }
+        }
+
+        if (length < 2 * RangedDownload.MIN_SEGMENT_SIZE) {
+            RangedDownload.getProgressFile(file).delete();
+            return download(file);
+        }
+
+        ranged.run(length, segments);
+        return length;
+    }
+
+    /**
+     * Opens a stream over the attachment content. Closing the stream releases
+     * the underlying connection. When the client has an attachment cache the
+     * stream reads the cached file.
+     *
+     * @return the content stream
+     *
+     * @throws JiraException when the download cannot be started
+     */
+    @NotNull
+    public InputStream openStream() throws JiraException {
+        AttachmentCache cache = restclient != null ? restclient.getAttachmentCache() : null;
+
+        if (cache == null)
+            return openDirect();
+
+        try {
+            return new FileInputStream(cache.get(this));
+        } catch (FileNotFoundException ex) {
+            /* evicted between lookup and open */
+            return openDirect();
+        }
+    }
+
+    @NotNull
+    private InputStream openDirect() throws JiraException {
+        try {
+            HttpEntity entity = restclient.execute(new HttpGet(content)).getEntity();
+
+            if (entity == null)
+                return new ByteArrayInputStream(new byte[0]);
+
+            return entity.getContent();
+        } catch (Exception ex) {
+            throw new JiraException("Failed downloading attachment from " + content, ex);
+        }
+    }
+
+    /**
+     * Copies a stream into a file channel from the given position until the
+     * end of the stream, without an intermediate heap buffer per chunk.
+     *
+     * @return the number of bytes copied
+     */
+    static long transfer(@NotNull InputStream in, @NotNull FileChannel channel, long position) throws IOException {
+        ReadableByteChannel src = Channels.newChannel(in);
+        long total = 0;
+        long n;
+
+        while ((n = channel.transferFrom(src, position + total, TRANSFER_SIZE)) > 0)
+            total += n;
+
+        return total;
+    }
+
+    static void closeQuietly(@Nullable Closeable c) {
+        if (c == null)
+            return;
+
+        try {
+            c.close();
+        } catch (IOException ex) {
+            /* nothing left to do */
+        }
     }
 
     @Nullable
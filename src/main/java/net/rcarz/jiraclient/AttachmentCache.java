@@ -0,0 +1,416 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Local on-disk cache of attachment content.
+ *
+ * Attachments never change once uploaded, so content is keyed by the
+ * attachment ID and size. Each cached file has a SHA-256 digest stored next
+ * to it that is checked before the file is served; a damaged file is simply
+ * downloaded again. When the cache grows past its size limit the least
+ * recently used files are removed. Use times are kept in the file
+ * modification times so the order survives a restart.
+ *
+ * Set the cache on a client with {@link JiraClient#setAttachmentCache} and
+ * {@link Attachment#download()} and its variants will go through it.
+ */
+public final class AttachmentCache {
+
+    private static final String DATA_SUFFIX = ".bin";
+    private static final String DIGEST_SUFFIX = ".sha256";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    @NotNull
+    private final File directory;
+    private final long maxBytes;
+    @NotNull
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long totalBytes = 0;
+    private int hits = 0;
+    private int misses = 0;
+    private boolean verify = true;
+
+    private static final class Entry {
+        final String key;
+        final long length;
+        final String digest;
+
+        Entry(String key, long length, String digest) {
+            this.key = key;
+            this.length = length;
+            this.digest = digest;
+        }
+    }
+
+    /**
+     * Opens a cache in the given directory, picking up files cached by
+     * earlier runs.
+     *
+     * @param directory Cache directory, created if missing
+     * @param maxBytes Size limit of the cached content
+     *
+     * @throws JiraException when the directory cannot be created
+     */
+    public AttachmentCache(@NotNull File directory, long maxBytes) throws JiraException {
+        if (maxBytes < 1)
+            throw new IllegalArgumentException("Cache size must be positive");
+
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new JiraException("Failed to create attachment cache directory " + directory);
+
+        load();
+    }
+
+    /**
+     * Turns digest checks on cache hits on or off. Checks are on by default.
+     *
+     * @param verify Whether to check digests
+     *
+     * @return the current cache
+     */
+    @NotNull
+    public AttachmentCache verify(boolean verify) {
+        this.verify = verify;
+        return this;
+    }
+
+    /**
+     * Gets the cached file of an attachment, downloading it first when it is
+     * missing or fails its digest check. The returned file must only be read.
+     *
+     * @param attachment Attachment to look up
+     *
+     * @return the cached content
+     *
+     * @throws JiraException when the download fails
+     */
+    @NotNull
+    public File get(@NotNull Attachment attachment) throws JiraException {
+        String key = keyOf(attachment);
+        Entry entry;
+
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+
+        if (entry != null) {
+            File data = dataFile(key);
+
+            if (data.length() == entry.length && (!verify || entry.digest.equals(digest(data)))) {
+                data.setLastModified(System.currentTimeMillis());
+
+                synchronized (this) {
+                    hits++;
+                }
+
+                return data;
+            }
+
+            remove(key);
+        }
+
+        synchronized (this) {
+            misses++;
+        }
+
+        return store(attachment, key);
+    }
+
+    /**
+     * @return true when the content of the attachment is cached
+     */
+    public synchronized boolean contains(@NotNull Attachment attachment) {
+        return entries.containsKey(keyOf(attachment));
+    }
+
+    /**
+     * Removes an attachment from the cache.
+     *
+     * @param attachment Attachment to remove
+     */
+    public void invalidate(@NotNull Attachment attachment) {
+        remove(keyOf(attachment));
+    }
+
+    /**
+     * Removes everything from the cache.
+     */
+    public void clear() {
+        List<String> keys;
+
+        synchronized (this) {
+            keys = new ArrayList<String>(entries.keySet());
+        }
+
+        for (String key : keys)
+            remove(key);
+    }
+
+    /**
+     * @return size of the cached content in bytes
+     */
+    public synchronized long getSize() {
+        return totalBytes;
+    }
+
+    /**
+     * @return number of cached attachments
+     */
+    public synchronized int getCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of requests served from the cache
+     */
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of requests that had to download
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    @NotNull
+    private File store(@NotNull Attachment attachment, @NotNull String key) throws JiraException {
+        File tmp = null;
+        OutputStream out = null;
+
+        try {
+            tmp = File.createTempFile(key + "-", TEMP_SUFFIX, directory);
+            MessageDigest md = newDigest();
+            out = new DigestOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)), md);
+
+            attachment.fetch(out);
+            out.close();
+            out = null;
+
+            String digest = toHex(md.digest());
+            writeDigest(key, digest);
+
+            File data = dataFile(key);
+            data.delete();
+            if (!tmp.renameTo(data))
+                throw new IOException("Failed to move " + tmp + " to " + data);
+
+            synchronized (this) {
+                Entry old = entries.put(key, new Entry(key, data.length(), digest));
+                if (old != null)
+                    totalBytes -= old.length;
+                totalBytes += data.length();
+            }
+
+            evict(key);
+            return data;
+        } catch (IOException ex) {
+            throw new JiraException("Failed to cache attachment " + attachment.getId(), ex);
+        } finally {
+            Attachment.closeQuietly(out);
+
+            if (tmp != null)
+                tmp.delete();
+        }
+    }
+
+    /**
+     * Removes least recently used files until the cache fits its limit. The
+     * file that was just added is kept even if it is larger than the limit.
+     */
+    private void evict(@NotNull String keep) {
+        List<String> victims = new ArrayList<String>();
+
+        synchronized (this) {
+            long size = totalBytes;
+
+            for (Entry e : entries.values()) {
+                if (size <= maxBytes)
+                    break;
+
+                if (!e.key.equals(keep)) {
+                    victims.add(e.key);
+                    size -= e.length;
+                }
+            }
+        }
+
+        for (String key : victims)
+            remove(key);
+    }
+
+    private void remove(@NotNull String key) {
+        synchronized (this) {
+            Entry e = entries.remove(key);
+            if (e != null)
+                totalBytes -= e.length;
+        }
+
+        dataFile(key).delete();
+        digestFile(key).delete();
+    }
+
+    /**
+     * Indexes the files left by earlier runs, least recently used first, and
+     * deletes leftovers of interrupted downloads.
+     */
+    private void load() {
+        File[] files = directory.listFiles();
+        if (files == null)
+            return;
+
+        List<File> data = new ArrayList<File>();
+
+        for (File f : files) {
+            if (f.getName().endsWith(TEMP_SUFFIX))
+                f.delete();
+            else if (f.getName().endsWith(DATA_SUFFIX))
+                data.add(f);
+        }
+
+        Collections.sort(data, new Comparator<File>() {
+            public int compare(File a, File b) {
+                long x = a.lastModified();
+                long y = b.lastModified();
+                return x < y ? -1 : (x == y ? 0 : 1);
+            }
+        });
+
+        for (File f : data) {
+            String name = f.getName();
+            String key = name.substring(0, name.length() - DATA_SUFFIX.length());
+            String digest = readDigest(key);
+
+            if (digest == null) {
+                f.delete();
+                continue;
+            }
+
+            entries.put(key, new Entry(key, f.length(), digest));
+            totalBytes += f.length();
+        }
+
+        evict("");
+    }
+
+    @NotNull
+    static String keyOf(@NotNull Attachment attachment) {
+        if (attachment.getId() == null)
+            throw new IllegalArgumentException("Attachment has no ID");
+
+        return attachment.getId() + "-" + attachment.getSize();
+    }
+
+    @NotNull
+    private File dataFile(String key) {
+        return new File(directory, key + DATA_SUFFIX);
+    }
+
+    @NotNull
+    private File digestFile(String key) {
+        return new File(directory, key + DIGEST_SUFFIX);
+    }
+
+    private void writeDigest(String key, String digest) throws IOException {
+        Writer w = new OutputStreamWriter(new FileOutputStream(digestFile(key)), "US-ASCII");
+        try {
+            w.write(digest);
+        } finally {
+            w.close();
+        }
+    }
+
+    @Nullable
+    private String readDigest(String key) {
+        File f = digestFile(key);
+        if (!f.isFile())
+            return null;
+
+        try {
+            BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(f), "US-ASCII"));
+            try {
+                String line = r.readLine();
+                return line != null ? line.trim() : null;
+            } finally {
+                r.close();
+            }
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static String digest(@NotNull File file) {
+        try {
+            MessageDigest md = newDigest();
+            InputStream in = new FileInputStream(file);
+
+            try {
+                byte[] buf = new byte[64 * 1024];
+                int n;
+
+                while ((n = in.read(buf)) != -1)
+                    md.update(buf, 0, n);
+            } finally {
+                in.close();
+            }
+
+            return toHex(md.digest());
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    @NotNull
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is not available", ex);
+        }
+    }
+
+    @NotNull
+    private static String toHex(@NotNull byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return sb.toString();
+    }
+}
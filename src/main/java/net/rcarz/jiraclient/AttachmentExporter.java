@@ -0,0 +1,344 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.utils.ConcurrencyUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads every attachment of the issues matching a JQL query.
+ *
+ * Issues are read page by page while attachments download on a bounded
+ * pool, so memory stays flat however large the result is. Files are written
+ * to <code>&lt;dir&gt;/&lt;issue key&gt;/&lt;attachment id&gt;-&lt;file name&gt;</code>
+ * and each finished download is appended to <code>manifest.tsv</code> in
+ * the target directory. Running the same export again skips everything
+ * listed in the manifest, so an interrupted export picks up where it left
+ * off.
+ */
+public final class AttachmentExporter {
+
+    /**
+     * Name of the manifest file in the target directory.
+     */
+    public static final String MANIFEST = "manifest.tsv";
+
+    /**
+     * Default number of downloads running at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Default number of issues fetched per search page.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final String PART_SUFFIX = ".part";
+
+    @NotNull
+    private final RestClient restclient;
+    @NotNull
+    private final String jql;
+    @NotNull
+    private final File directory;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private int segments = 1;
+
+    /**
+     * Outcome of an export. The failures are messages, one per attachment
+     * that could not be downloaded.
+     */
+    public static final class Summary extends BulkSummary<String> {
+        private int issues = 0;
+        private int downloaded = 0;
+        private int skipped = 0;
+        private long bytes = 0;
+
+        /**
+         * @return number of issues scanned
+         */
+        public int getIssues() {
+            return issues;
+        }
+
+        /**
+         * @return number of attachments downloaded by this run
+         */
+        public int getDownloaded() {
+            return downloaded;
+        }
+
+        /**
+         * @return number of attachments already exported by an earlier run
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * @return bytes downloaded by this run
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return downloaded bytes per second
+         */
+        public double getThroughput() {
+            return perSecond(bytes);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d issues, %d downloaded, %d skipped, %d failed, %d bytes in %d ms",
+                issues, downloaded, skipped, getFailed(), bytes, elapsed);
+        }
+    }
+
+    AttachmentExporter(@NotNull RestClient restclient, @NotNull String jql, @NotNull File directory) {
+        this.restclient = restclient;
+        this.jql = jql;
+        this.directory = directory;
+    }
+
+    /**
+     * Sets the number of downloads running at the same time.
+     *
+     * @param parallelism Concurrent downloads
+     *
+     * @return the current exporter
+     */
+    @NotNull
+    public AttachmentExporter parallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the number of issues fetched per search page.
+     *
+     * @param pageSize Issues per page
+     *
+     * @return the current exporter
+     */
+    @NotNull
+    public AttachmentExporter pageSize(int pageSize) {
+        if (pageSize < 1)
+            throw new IllegalArgumentException("Page size must be positive");
+
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Downloads large attachments in up to the given number of ranged
+     * segments, see {@link Attachment#download(File, int)}.
+     *
+     * @param segments Segments per attachment
+     *
+     * @return the current exporter
+     */
+    @NotNull
+    public AttachmentExporter segments(int segments) {
+        if (segments < 1)
+            throw new IllegalArgumentException("Segments must be positive");
+
+        this.segments = segments;
+        return this;
+    }
+
+    /**
+     * Runs the export.
+     *
+     * @return the outcome of the export
+     *
+     * @throws JiraException when the search or the manifest fails
+     */
+    @NotNull
+    public Summary execute() throws JiraException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new JiraException("Failed to create export directory " + directory);
+
+        final File manifest = new File(directory, MANIFEST);
+        final Set<String> done = readManifest(manifest);
+        final Summary summary = new Summary();
+        final Writer out;
+
+        try {
+            out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(manifest, true), "UTF-8"));
+        } catch (IOException ex) {
+            throw new JiraException("Failed to open export manifest " + manifest, ex);
+        }
+
+        ExecutorService executor = ConcurrencyUtils.newExecutor(parallelism);
+        final Semaphore slots = new Semaphore(parallelism * 2);
+        long start = System.currentTimeMillis();
+
+        try {
+            Iterator<Issue> it = Issue.search(restclient, jql, Field.ATTACHMENT, null, pageSize, null).iterator();
+
+            while (it.hasNext()) {
+                Issue issue = it.next();
+                summary.issues++;
+
+                if (issue.getAttachments() == null)
+                    continue;
+
+                for (final Attachment attachment : issue.getAttachments()) {
+                    final String key = issue.getKey();
+
+                    if (done.contains(attachment.getId())) {
+                        summary.skipped++;
+                        continue;
+                    }
+
+                    slots.acquire();
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            try {
+                                export(key, attachment, out, summary);
+                            } finally {
+                                slots.release();
+                            }
+                        }
+                    });
+                }
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException ex) {
+            if (ex.getCause() instanceof JiraException)
+                throw (JiraException) ex.getCause();
+
+            throw ex;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while exporting attachments", ex);
+        } finally {
+            executor.shutdownNow();
+            Attachment.closeQuietly(out);
+        }
+
+        synchronized (summary) {
+            summary.elapsed = System.currentTimeMillis() - start;
+        }
+
+        return summary;
+    }
+
+    private void export(String key, @NotNull Attachment attachment, @NotNull Writer out, @NotNull Summary summary) {
+        File issueDir = new File(directory, sanitise(key));
+        String name = attachment.getId() + "-" + sanitise(attachment.getFileName());
+        File target = new File(issueDir, name);
+        File part = new File(issueDir, name + PART_SUFFIX);
+
+        try {
+            if (!issueDir.isDirectory() && !issueDir.mkdirs())
+                throw new JiraException("Failed to create directory " + issueDir);
+
+            long bytes = attachment.download(part, segments);
+
+            target.delete();
+            if (!part.renameTo(target))
+                throw new JiraException("Failed to move " + part + " to " + target);
+
+            synchronized (summary) {
+                out.write(key + "\t" + attachment.getId() + "\t" + bytes + "\t" +
+                    sanitise(key) + "/" + name + "\n");
+                out.flush();
+
+                summary.downloaded++;
+                summary.bytes += bytes;
+            }
+        } catch (Exception ex) {
+            synchronized (summary) {
+                summary.failures.add(key + "/" + attachment.getId() + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads the IDs of the attachments exported by earlier runs whose files
+     * are still present.
+     */
+    @NotNull
+    private Set<String> readManifest(@NotNull File manifest) throws JiraException {
+        Set<String> done = new HashSet<String>();
+
+        if (!manifest.isFile())
+            return done;
+
+        try {
+            BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(manifest), "UTF-8"));
+
+            try {
+                String line;
+
+                while ((line = r.readLine()) != null) {
+                    String[] cols = line.split("\t");
+                    if (cols.length < 4)
+                        continue;
+
+                    File f = new File(directory, cols[3]);
+                    if (f.isFile() && Long.toString(f.length()).equals(cols[2]))
+                        done.add(cols[1]);
+                }
+            } finally {
+                r.close();
+            }
+        } catch (IOException ex) {
+            throw new JiraException("Failed to read export manifest " + manifest, ex);
+        }
+
+        return done;
+    }
+
+    /**
+     * Makes a name safe to use as a single path element.
+     */
+    @NotNull
+    static String sanitise(@Nullable String name) {
+        if (name == null || name.length() == 0)
+            return "_";
+
+        StringBuilder sb = new StringBuilder(name.length());
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            sb.append(c < 0x20 || "/\\:*?\"<>|\t".indexOf(c) >= 0 ? '_' : c);
+        }
+
+        String s = sb.toString();
+        return s.equals(".") || s.equals("..") ? "_" : s;
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.utils.ConcurrencyUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Uploads attachments to many issues concurrently.
+ *
+ * Every attachment is sent in its own request, with a bounded number of
+ * uploads in flight, so one large file does not hold back the rest. A failed
+ * upload is recorded in the {@link Summary} and does not stop the others.
+ */
+public final class AttachmentUploader {
+
+    /**
+     * Default number of uploads sent at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    @NotNull
+    private final RestClient restclient;
+    @NotNull
+    private final List<String> keys = new ArrayList<String>();
+    @NotNull
+    private final List<Issue.NewAttachment> attachments = new ArrayList<Issue.NewAttachment>();
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    /**
+     * Outcome of a single upload.
+     */
+    public static final class Result extends BulkResult {
+        private final String filename;
+        private final long bytes;
+
+        Result(String key, String filename, long bytes, @Nullable String error, long elapsed) {
+            super(key, error, elapsed);
+            this.filename = filename;
+            this.bytes = bytes;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        /**
+         * @return length of the uploaded content, or -1 when it was unknown
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "/" + filename + (isSuccess() ? "" : ": " + getError());
+        }
+    }
+
+    /**
+     * Per-upload outcomes and throughput of a bulk upload. The failures are
+     * the results of the uploads that failed.
+     */
+    public static final class Summary extends BulkSummary<Result> {
+        @NotNull
+        private final List<Result> results;
+
+        Summary(@NotNull List<Result> results, long elapsed) {
+            this.results = Collections.unmodifiableList(results);
+            this.elapsed = elapsed;
+
+            for (Result r : results) {
+                if (!r.isSuccess())
+                    failures.add(r);
+            }
+        }
+
+        /**
+         * @return a result per attachment, in the order they were added
+         */
+        @NotNull
+        public List<Result> getResults() {
+            return results;
+        }
+
+        /**
+         * @return number of uploaded bytes of known length
+         */
+        public long getBytes() {
+            long total = 0;
+            for (Result r : results) {
+                if (r.isSuccess() && r.getBytes() > 0)
+                    total += r.getBytes();
+            }
+            return total;
+        }
+
+        /**
+         * @return uploaded bytes per second
+         */
+        public double getThroughput() {
+            return perSecond(getBytes());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d uploaded, %d failed, %d bytes in %d ms (%.0f bytes/s)",
+                results.size() - getFailed(), getFailed(), getBytes(), elapsed,
+                getThroughput());
+        }
+    }
+
+    AttachmentUploader(@NotNull RestClient restclient) {
+        this.restclient = restclient;
+    }
+
+    /**
+     * Adds attachments for an issue.
+     *
+     * @param key Issue key
+     * @param attachments Attachments to add to the issue
+     *
+     * @return the current uploader
+     */
+    @NotNull
+    public AttachmentUploader add(String key, @NotNull Issue.NewAttachment... attachments) {
+        for (Issue.NewAttachment attachment : attachments) {
+            keys.add(key);
+            this.attachments.add(attachment);
+        }
+
+        return this;
+    }
+
+    /**
+     * Sets the number of uploads sent at the same time.
+     *
+     * @param parallelism Concurrent requests
+     *
+     * @return the current uploader
+     */
+    @NotNull
+    public AttachmentUploader parallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Uploads all attachments.
+     *
+     * @return the per-upload outcomes and throughput
+     *
+     * @throws JiraException when the upload is interrupted
+     */
+    @NotNull
+    public Summary execute() throws JiraException {
+        List<Callable<Result>> tasks = new ArrayList<Callable<Result>>(attachments.size());
+
+        for (int i = 0; i < attachments.size(); i++) {
+            final String key = keys.get(i);
+            final Issue.NewAttachment attachment = attachments.get(i);
+
+            tasks.add(new Callable<Result>() {
+                public Result call() {
+                    return upload(key, attachment);
+                }
+            });
+        }
+
+        long start = System.currentTimeMillis();
+
+        try {
+            List<Result> results = ConcurrencyUtils.invokeAll(tasks, parallelism);
+            return new Summary(results, System.currentTimeMillis() - start);
+        } catch (ExecutionException ex) {
+            throw new JiraException("Failed to upload attachments", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while uploading attachments", ex);
+        }
+    }
+
+    @NotNull
+    private Result upload(String key, @NotNull Issue.NewAttachment attachment) {
+        long start = System.currentTimeMillis();
+        String error = null;
+
+        try {
+            restclient.post(Resource.getBaseUri() + "issue/" + key + "/attachments", attachment);
+        } catch (Exception ex) {
+            error = ex.getMessage() != null ? ex.getMessage() : ex.toString();
+        }
+
+        return new Result(key, attachment.getFilename(), attachment.getLength(), error,
+            System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,409 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.utils.ConcurrencyUtils;
+import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Moves many issues through the same transition.
+ *
+ * Transitions are looked up through a {@link TransitionCache}, so issues in
+ * the same project, issue type and status cost one lookup between them. The
+ * transition requests run concurrently. When the server rejects a cached
+ * transition for an issue with 400, 404 or 409, that issue's transitions are
+ * fetched again and the request is retried once. Other failures, such as
+ * server errors that may already have applied the transition, are reported
+ * without a retry.
+ */
+public final class BatchTransition {
+
+    /**
+     * Default number of transitions sent at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    private static final int SEARCH_CHUNK_SIZE = 100;
+    private static final String SEARCH_FIELDS =
+        Field.PROJECT + "," + Field.ISSUE_TYPE + "," + Field.STATUS;
+
+    @NotNull
+    private final RestClient restclient;
+    @NotNull
+    private final TransitionCache cache;
+    @NotNull
+    private final Map<String, Issue> issues = new LinkedHashMap<String, Issue>();
+    @NotNull
+    private final Map<String, Object> fields = new HashMap<String, Object>();
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    /**
+     * Outcome of the transition of a single issue.
+     */
+    public static final class Result {
+        private final String key;
+        @Nullable
+        private final String transition;
+        @Nullable
+        private final String error;
+        private final boolean retried;
+
+        Result(String key, @Nullable String transition, @Nullable String error, boolean retried) {
+            this.key = key;
+            this.transition = transition;
+            this.error = error;
+            this.retried = retried;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return true when the issue was transitioned
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * @return ID of the transition that was executed, or null if none
+         */
+        @Nullable
+        public String getTransitionId() {
+            return transition;
+        }
+
+        /**
+         * @return the failure message, or null on success
+         */
+        @Nullable
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * @return true when the transitions had to be looked up again for
+         * this issue
+         */
+        public boolean isRetried() {
+            return retried;
+        }
+
+        @Override
+        public String toString() {
+            return isSuccess() ? key : key + ": " + error;
+        }
+    }
+
+    BatchTransition(@NotNull RestClient restclient, @NotNull TransitionCache cache) {
+        this.restclient = restclient;
+        this.cache = cache;
+    }
+
+    /**
+     * Adds loaded issues to the batch. The issues need their project, issue
+     * type and status to share cached transitions.
+     *
+     * @param issues Issues to transition
+     *
+     * @return the current batch transition instance
+     */
+    @NotNull
+    public BatchTransition add(@NotNull Collection<Issue> issues) {
+        for (Issue issue : issues)
+            this.issues.put(issue.getKey(), issue);
+
+        return this;
+    }
+
+    /**
+     * Adds issues by key. The keys are resolved with a search for just the
+     * project, issue type and status when the batch is executed.
+     *
+     * @param keys Keys of the issues to transition
+     *
+     * @return the current batch transition instance
+     */
+    @NotNull
+    public BatchTransition addKeys(@NotNull Collection<String> keys) {
+        for (String key : keys) {
+            if (!issues.containsKey(key))
+                issues.put(key, null);
+        }
+
+        return this;
+    }
+
+    /**
+     * Appends a field to the transition action.
+     *
+     * @param name Name of the field
+     * @param value New field value
+     *
+     * @return the current batch transition instance
+     */
+    @NotNull
+    public BatchTransition field(String name, Object value) {
+        fields.put(name, value);
+        return this;
+    }
+
+    /**
+     * Sets the number of transitions sent at the same time.
+     *
+     * @param parallelism Concurrent requests
+     *
+     * @return the current batch transition instance
+     */
+    @NotNull
+    public BatchTransition parallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Executes the transition with the given name on every issue.
+     *
+     * @param name Transition name
+     *
+     * @return a result per issue, in the order they were added
+     *
+     * @throws JiraException when the issues could not be resolved
+     */
+    @NotNull
+    public List<Result> execute(@NotNull String name) throws JiraException {
+        return realExecute(name, true);
+    }
+
+    /**
+     * Executes the transition with the given ID on every issue.
+     *
+     * @param id Internal transition ID
+     *
+     * @return a result per issue, in the order they were added
+     *
+     * @throws JiraException when the issues could not be resolved
+     */
+    @NotNull
+    public List<Result> execute(int id) throws JiraException {
+        return realExecute(Integer.toString(id), false);
+    }
+
+    @NotNull
+    private List<Result> realExecute(@NotNull final String id, final boolean isName) throws JiraException {
+        resolveKeys();
+
+        List<Callable<Result>> tasks = new ArrayList<Callable<Result>>(issues.size());
+
+        for (final Map.Entry<String, Issue> ent : issues.entrySet()) {
+            tasks.add(new Callable<Result>() {
+                public Result call() {
+                    if (ent.getValue() == null)
+                        return new Result(ent.getKey(), null, "Issue not found", false);
+
+                    return transitionOne(ent.getKey(), ent.getValue(), id, isName);
+                }
+            });
+        }
+
+        try {
+            return ConcurrencyUtils.invokeAll(tasks, parallelism);
+        } catch (ExecutionException ex) {
+            throw new JiraException("Failed to transition issues", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while transitioning issues", ex);
+        }
+    }
+
+    @NotNull
+    private Result transitionOne(String key, @NotNull Issue issue, @NotNull String id, boolean isName) {
+        Transition trans = null;
+
+        try {
+            trans = find(cache.get(restclient, issue), id, isName);
+
+            if (trans != null) {
+                post(issue.getKey(), trans);
+                return new Result(key, trans.getId(), null, false);
+            }
+        } catch (JiraException ex) {
+            /* a 5xx may have applied the transition, and a retry could apply another one */
+            if (!isStaleStep(ex))
+                return new Result(key, null, ex.getMessage(), false);
+        }
+
+        /* the cached step did not fit this issue, ask the server again */
+        cache.invalidate(issue);
+
+        try {
+            trans = find(Issue.getTransitions(restclient, issue.getKey()), id, isName);
+
+            if (trans == null) {
+                return new Result(key, null,
+                    "Transition '" + id + "' is not available for " + issue.getKey(), true);
+            }
+
+            post(issue.getKey(), trans);
+            return new Result(key, trans.getId(), null, true);
+        } catch (JiraException ex) {
+            return new Result(key, trans != null ? trans.getId() : null, ex.getMessage(), true);
+        }
+    }
+
+    @Nullable
+    private static Transition find(@NotNull List<Transition> transitions, @NotNull String id, boolean isName) {
+        for (Transition transition : transitions) {
+            if (id.equals(isName ? transition.getName() : transition.getId()))
+                return transition;
+        }
+
+        return null;
+    }
+
+    private void post(String key, @NotNull Transition trans) throws JiraException {
+        JSONObject req = new JSONObject();
+
+        if (fields.size() > 0) {
+            JSONObject fieldmap = new JSONObject();
+            fieldmap.putAll(fields);
+            req.put("fields", fieldmap);
+        }
+
+        JSONObject t = new JSONObject();
+        t.put("id", Field.getString(trans.getId()));
+        req.put("transition", t);
+
+        try {
+            restclient.post(Resource.getBaseUri() + "issue/" + key + "/transitions", req);
+        } catch (Exception ex) {
+            throw new JiraException("Failed to transition issue " + key, ex);
+        }
+    }
+
+    private void resolveKeys() throws JiraException {
+        List<String> pending = new ArrayList<String>();
+
+        for (Map.Entry<String, Issue> ent : issues.entrySet()) {
+            if (ent.getValue() == null)
+                pending.add(ent.getKey());
+        }
+
+        for (int start = 0; start < pending.size(); start += SEARCH_CHUNK_SIZE)
+            resolveChunk(pending.subList(start, Math.min(start + SEARCH_CHUNK_SIZE, pending.size())));
+    }
+
+    /**
+     * Resolves a chunk of keys with a single search. Jira rejects the whole
+     * query when one key does not exist or is not visible, so a rejected
+     * chunk is split in halves until the bad keys are isolated. Keys the
+     * search does not return under the requested name, such as those of
+     * moved or renamed issues, are fetched one at a time.
+     */
+    private void resolveChunk(@NotNull List<String> chunk) throws JiraException {
+        Map<String, Issue> found = new HashMap<String, Issue>();
+        StringBuilder jql = new StringBuilder("key in (");
+
+        for (int i = 0; i < chunk.size(); i++)
+            jql.append(i > 0 ? ", " : "").append(chunk.get(i));
+
+        jql.append(")");
+
+        try {
+            Iterator<Issue> it = Issue.search(
+                restclient, jql.toString(), SEARCH_FIELDS, null, chunk.size(), null).iterator();
+
+            while (it.hasNext()) {
+                Issue issue = it.next();
+                found.put(issue.getKey(), issue);
+            }
+        } catch (RuntimeException ex) {
+            if (getHttpStatus(ex) != 400)
+                throw new JiraException("Failed to resolve issues", ex.getCause() != null ? ex.getCause() : ex);
+
+            if (chunk.size() > 1) {
+                int half = chunk.size() / 2;
+                resolveChunk(chunk.subList(0, half));
+                resolveChunk(chunk.subList(half, chunk.size()));
+                return;
+            }
+        }
+
+        for (String key : chunk) {
+            Issue issue = found.get(key);
+
+            if (issue == null)
+                issue = fetchIssue(key);
+
+            issues.put(key, issue);
+        }
+    }
+
+    @Nullable
+    private Issue fetchIssue(String key) throws JiraException {
+        try {
+            return Issue.get(restclient, key, SEARCH_FIELDS);
+        } catch (JiraException ex) {
+            if (getHttpStatus(ex) == 404)
+                return null;
+
+            throw ex;
+        }
+    }
+
+    /**
+     * @return whether the server rejected a cached step as no longer valid
+     * for the issue
+     */
+    private static boolean isStaleStep(@NotNull JiraException ex) {
+        int status = getHttpStatus(ex);
+        return status == 400 || status == 404 || status == 409;
+    }
+
+    /**
+     * @return the HTTP status of the request behind a failure, or -1
+     */
+    private static int getHttpStatus(@Nullable Throwable ex) {
+        while (ex != null) {
+            if (ex instanceof RestException)
+                return ((RestException) ex).getHttpStatusCode();
+
+            ex = ex.getCause();
+        }
+
+        return -1;
+    }
+}
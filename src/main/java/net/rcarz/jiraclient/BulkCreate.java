@@ -0,0 +1,518 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.utils.ConcurrencyUtils;
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Creates many issues of one project and issue type through the bulk create
+ * resource.
+ *
+ * Issues are sent in chunks no larger than the server accepts per request
+ * and chunks are posted concurrently. Each added issue gets a {@link Result}
+ * carrying either the created key or the server's error for that item; a
+ * rejected item does not fail the rest of its chunk.
+ */
+public final class BulkCreate {
+
+    /**
+     * Default number of issues per request. This matches the server's
+     * default <code>jira.bulk.create.max.issues.per.request</code> limit.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 50;
+
+    /**
+     * Default number of chunks posted at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    @NotNull
+    private final RestClient restclient;
+    @NotNull
+    private final Field.Schema createmeta;
+    private final String project;
+    private final String issueType;
+    @NotNull
+    private final List<Map<String, Object>> items = new ArrayList<Map<String, Object>>();
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private boolean refetch = false;
+    @Nullable
+    private String includedFields = null;
+
+    /**
+     * Outcome of a single issue in a bulk create.
+     */
+    public static final class Result {
+        private final int index;
+        @Nullable
+        private RestClient restclient = null;
+        @Nullable
+        private String id = null;
+        @Nullable
+        private String key = null;
+        @Nullable
+        private String self = null;
+        @Nullable
+        private String error = null;
+        @Nullable
+        private String refetchError = null;
+        @Nullable
+        private Issue issue = null;
+
+        Result(int index) {
+            this.index = index;
+        }
+
+        /**
+         * @return position of the issue in the order it was added
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return true when the issue was created
+         */
+        public boolean isSuccess() {
+            return key != null;
+        }
+
+        @Nullable
+        public String getId() {
+            return id;
+        }
+
+        @Nullable
+        public String getKey() {
+            return key;
+        }
+
+        @Nullable
+        public String getSelf() {
+            return self;
+        }
+
+        /**
+         * @return the server or client error for this item, or null on success
+         */
+        @Nullable
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * @return why the created issue could not be refetched, or null
+         */
+        @Nullable
+        public String getRefetchError() {
+            return refetchError;
+        }
+
+        /**
+         * @return the created issue when refetching was requested, otherwise null
+         */
+        @Nullable
+        public Issue getIssue() {
+            return issue;
+        }
+
+        /**
+         * Gets a handle to the created issue. The handle already holds the
+         * issue when refetching was requested, otherwise it fetches the issue
+         * on first use.
+         *
+         * @return a handle to the created issue, or null if it was not created
+         */
+        @Nullable
+        public IssueHandle getHandle() {
+            return isSuccess() ? new IssueHandle(restclient, id, key, self, issue) : null;
+        }
+
+        @Override
+        public String toString() {
+            return isSuccess() ? key : "#" + index + ": " + error;
+        }
+    }
+
+    BulkCreate(@NotNull RestClient restclient, String project, String issueType,
+               @NotNull Field.Schema createmeta) {
+
+        this.restclient = restclient;
+        this.project = project;
+        this.issueType = issueType;
+        this.createmeta = createmeta;
+    }
+
+    /**
+     * Adds an issue to create. The project and issue type are filled in
+     * unless the map already has them.
+     *
+     * @param fields Field values keyed by field name, as with {@link Issue.FluentCreate#field}
+     *
+     * @return the current bulk create instance
+     */
+    @NotNull
+    public BulkCreate add(@NotNull Map<String, Object> fields) {
+        Map<String, Object> copy = new HashMap<String, Object>(fields);
+
+        if (!copy.containsKey(Field.PROJECT))
+            copy.put(Field.PROJECT, project);
+        if (!copy.containsKey(Field.ISSUE_TYPE))
+            copy.put(Field.ISSUE_TYPE, issueType);
+
+        items.add(copy);
+        return this;
+    }
+
+    /**
+     * Sets the number of issues sent per request. Values above the server
+     * limit are rejected by the server as a whole chunk.
+     *
+     * @param chunkSize Issues per request
+     *
+     * @return the current bulk create instance
+     */
+    @NotNull
+    public BulkCreate chunkSize(int chunkSize) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("Chunk size must be positive");
+
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Sets the number of chunks posted at the same time.
+     *
+     * @param parallelism Concurrent requests
+     *
+     * @return the current bulk create instance
+     */
+    @NotNull
+    public BulkCreate parallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Fetches the created issues after each chunk, with one search per chunk.
+     * Without this only the id, key and self link are returned, and
+     * {@link Result#getHandle()} fetches an issue when it is first used.
+     *
+     * @param includedFields Fields to retrieve, or null for all fields
+     *
+     * @return the current bulk create instance
+     */
+    @NotNull
+    public BulkCreate refetch(@Nullable String includedFields) {
+        this.refetch = true;
+        this.includedFields = includedFields;
+        return this;
+    }
+
+    /**
+     * Executes the bulk create.
+     *
+     * @return a result per added issue, in the order they were added. A
+     * chunk that could not be sent marks its own items as failed without
+     * losing the keys created by the other chunks.
+     *
+     * @throws JiraException when nothing was added
+     */
+    @NotNull
+    public List<Result> execute() throws JiraException {
+        if (items.isEmpty())
+            throw new JiraException("No issues were given for bulk create");
+
+        List<Callable<List<Result>>> tasks = new ArrayList<Callable<List<Result>>>();
+
+        for (int start = 0; start < items.size(); start += chunkSize) {
+            final int from = start;
+            final int to = Math.min(start + chunkSize, items.size());
+
+            tasks.add(new Callable<List<Result>>() {
+                public List<Result> call() throws Exception {
+                    return executeChunk(from, to);
+                }
+            });
+        }
+
+        List<Result> results = new ArrayList<Result>(items.size());
+
+        try {
+            for (List<Result> chunk : ConcurrencyUtils.invokeAll(tasks, parallelism))
+                results.addAll(chunk);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof JiraException)
+                throw (JiraException) ex.getCause();
+
+            throw new JiraException("Failed to create issues", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while creating issues", ex);
+        }
+
+        return results;
+    }
+
+    @NotNull
+    private List<Result> executeChunk(int from, int to) throws JiraException {
+        List<Result> results = new ArrayList<Result>(to - from);
+        List<Result> sent = new ArrayList<Result>(to - from);
+        JSONArray updates = new JSONArray();
+
+        for (int i = from; i < to; i++) {
+            Result r = new Result(i);
+            r.restclient = restclient;
+            results.add(r);
+
+            try {
+                JSONObject fieldmap = new JSONObject();
+                for (Map.Entry<String, Object> ent : items.get(i).entrySet())
+                    fieldmap.put(ent.getKey(), createmeta.toJson(ent.getKey(), ent.getValue()));
+
+                JSONObject update = new JSONObject();
+                update.put("fields", fieldmap);
+                updates.add(update);
+                sent.add(r);
+            } catch (JiraException ex) {
+                r.error = ex.getMessage();
+            } catch (RuntimeException ex) {
+                r.error = "Failed to serialize fields: " + ex;
+            }
+        }
+
+        if (sent.isEmpty())
+            return results;
+
+        /* keep the results of the other chunks */
+        try {
+            sendChunk(updates, sent);
+        } catch (JiraException ex) {
+            fail(sent, "Failed to create issue: " + describe(ex));
+            return results;
+        } catch (RuntimeException ex) {
+            fail(sent, "Failed to create issue: " + describe(ex));
+            return results;
+        }
+
+        if (refetch) {
+            /* the issues exist by now, so only note that they could not be read back */
+            try {
+                refetchIssues(sent);
+            } catch (JiraException ex) {
+                failRefetch(sent, describe(ex));
+            } catch (RuntimeException ex) {
+                failRefetch(sent, describe(ex));
+            }
+        }
+
+        return results;
+    }
+
+    private static void fail(@NotNull List<Result> sent, @NotNull String error) {
+        for (Result r : sent) {
+            if (!r.isSuccess() && r.error == null)
+                r.error = error;
+        }
+    }
+
+    private static void failRefetch(@NotNull List<Result> sent, @NotNull String error) {
+        for (Result r : sent) {
+            if (r.isSuccess() && r.issue == null)
+                r.refetchError = "Failed to refetch issue: " + error;
+        }
+    }
+
+    @NotNull
+    private static String describe(@NotNull Exception ex) {
+        StringBuilder sb = new StringBuilder(String.valueOf(ex.getMessage()));
+
+        for (Throwable cause = ex.getCause(); cause != null; cause = cause.getCause())
+            sb.append(": ").append(cause.getMessage());
+
+        return sb.toString();
+    }
+
+    private void sendChunk(@NotNull JSONArray updates, @NotNull List<Result> sent) throws JiraException {
+        JSONObject req = new JSONObject();
+        req.put("issueUpdates", updates);
+
+        JSON response;
+
+        try {
+            response = restclient.post(Resource.getBaseUri() + "issue/bulk", req);
+        } catch (RestException ex) {
+            /* the server answers 400 with the same body when every item fails */
+            response = parseBody(ex.getHttpResult());
+
+            if (response == null)
+                throw new JiraException("Failed to create issues", ex);
+        } catch (Exception ex) {
+            throw new JiraException("Failed to create issues", ex);
+        }
+
+        if (!(response instanceof JSONObject))
+            throw new JiraException("Unexpected result on bulk create");
+
+        applyResponse((JSONObject) response, sent);
+    }
+
+    /**
+     * Matches the created issues and element errors of a bulk response to the
+     * items that were sent. Created issues are listed in request order with
+     * the failed elements left out.
+     */
+    static void applyResponse(@NotNull JSONObject response, @NotNull List<Result> sent) {
+        Map<Integer, String> failed = new HashMap<Integer, String>();
+        Object errors = response.get("errors");
+
+        if (errors instanceof JSONArray) {
+            for (Object e : (JSONArray) errors) {
+                if (!(e instanceof JSONObject))
+                    continue;
+
+                JSONObject err = (JSONObject) e;
+                int element = Field.getInteger(err.get("failedElementNumber"));
+                failed.put(element, describeError(err.get("elementErrors"), err.get("status")));
+            }
+        }
+
+        Object issues = response.get("issues");
+        Iterator created = issues instanceof JSONArray
+            ? ((JSONArray) issues).iterator()
+            : new ArrayList().iterator();
+
+        for (int i = 0; i < sent.size(); i++) {
+            Result r = sent.get(i);
+
+            if (failed.containsKey(i)) {
+                r.error = failed.get(i);
+            } else if (created.hasNext()) {
+                Object c = created.next();
+
+                if (c instanceof JSONObject) {
+                    JSONObject issue = (JSONObject) c;
+                    r.id = Field.getString(issue.get("id"));
+                    r.key = Field.getString(issue.get("key"));
+                    r.self = Field.getString(issue.get("self"));
+                }
+
+                if (r.key == null)
+                    r.error = "Unexpected result on bulk create";
+            } else {
+                r.error = "Missing from bulk create response";
+            }
+        }
+    }
+
+    @NotNull
+    private static String describeError(@Nullable Object elementErrors, @Nullable Object status) {
+        StringBuilder sb = new StringBuilder();
+
+        if (elementErrors instanceof JSONObject) {
+            JSONObject ee = (JSONObject) elementErrors;
+
+            Object messages = ee.get("errorMessages");
+            if (messages instanceof JSONArray) {
+                for (Object m : (JSONArray) messages) {
+                    if (sb.length() > 0)
+                        sb.append("; ");
+                    sb.append(m);
+                }
+            }
+
+            Object fieldErrors = ee.get("errors");
+            if (fieldErrors instanceof JSONObject) {
+                for (Object k : ((JSONObject) fieldErrors).keySet()) {
+                    if (sb.length() > 0)
+                        sb.append("; ");
+                    sb.append(k).append(": ").append(((JSONObject) fieldErrors).get(k));
+                }
+            }
+        }
+
+        if (sb.length() == 0)
+            sb.append("Rejected by server");
+        if (status != null)
+            sb.insert(0, status + " ");
+
+        return sb.toString();
+    }
+
+    @Nullable
+    private static JSON parseBody(@Nullable String body) {
+        if (body == null || body.length() == 0)
+            return null;
+
+        try {
+            return JSONSerializer.toJSON(body);
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    private void refetchIssues(@NotNull List<Result> sent) throws JiraException {
+        StringBuilder jql = new StringBuilder();
+        Map<String, Result> byKey = new HashMap<String, Result>();
+
+        for (Result r : sent) {
+            if (!r.isSuccess())
+                continue;
+
+            jql.append(jql.length() == 0 ? "key in (" : ", ").append(r.key);
+            byKey.put(r.key, r);
+        }
+
+        if (byKey.isEmpty())
+            return;
+
+        jql.append(")");
+
+        Iterator<Issue> it = Issue.search(
+            restclient, jql.toString(), includedFields, null, byKey.size(), null).iterator();
+
+        while (it.hasNext()) {
+            Issue issue = it.next();
+            Result r = byKey.get(issue.getKey());
+
+            if (r != null)
+                r.issue = issue;
+        }
+    }
+}
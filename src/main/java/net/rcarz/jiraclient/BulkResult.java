@@ -0,0 +1,64 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Outcome of the request made for one issue in a bulk operation.
+ */
+abstract class BulkResult {
+    private final String key;
+    @Nullable
+    private final String error;
+    private final long elapsed;
+
+    BulkResult(String key, @Nullable String error, long elapsed) {
+        this.key = key;
+        this.error = error;
+        this.elapsed = elapsed;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return true when the request succeeded
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return the failure message, or null on success
+     */
+    @Nullable
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return time spent on the request, in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsed;
+    }
+}
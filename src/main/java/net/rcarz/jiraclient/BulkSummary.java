@@ -0,0 +1,63 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Failures and timing of a bulk operation.
+ *
+ * @param <F> the type describing a failure
+ */
+abstract class BulkSummary<F> {
+    @NotNull
+    final List<F> failures = new ArrayList<F>();
+    long elapsed = 0;
+
+    /**
+     * @return one entry per failed item, in the order they failed
+     */
+    @NotNull
+    public List<F> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    public int getFailed() {
+        return failures.size();
+    }
+
+    /**
+     * @return wall-clock time of the whole operation, in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsed;
+    }
+
+    /**
+     * @return the given amount per second of the whole operation
+     */
+    double perSecond(long amount) {
+        return elapsed > 0 ? amount * 1000.0 / elapsed : amount;
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.utils.ConcurrencyUtils;
+import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Applies one set of field changes to many issues.
+ *
+ * The request body is serialised once against shared edit metadata and then
+ * sent to every issue with a bounded number of requests in flight. A failed
+ * issue is recorded in the {@link Summary} and does not stop the others.
+ */
+public final class BulkUpdate {
+
+    /**
+     * Default number of updates sent at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    @NotNull
+    private final RestClient restclient;
+    @NotNull
+    private final Field.Schema editmeta;
+    @NotNull
+    private final List<String> keys;
+    @NotNull
+    private final Map<String, Object> fields = new HashMap<String, Object>();
+    @NotNull
+    private final Map<String, List> fieldOpers = new HashMap<String, List>();
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    /**
+     * Outcome of the update of a single issue.
+     */
+    public static final class Result extends BulkResult {
+        Result(String key, @Nullable String error, long elapsed) {
+            super(key, error, elapsed);
+        }
+
+        @Override
+        public String toString() {
+            return isSuccess() ? getKey() : getKey() + ": " + getError();
+        }
+    }
+
+    /**
+     * Per-issue outcomes and throughput of a bulk update. The failures are
+     * the results of the issues that could not be updated.
+     */
+    public static final class Summary extends BulkSummary<Result> {
+        @NotNull
+        private final List<Result> results;
+
+        Summary(@NotNull List<Result> results, long elapsed) {
+            this.results = Collections.unmodifiableList(results);
+            this.elapsed = elapsed;
+
+            for (Result r : results) {
+                if (!r.isSuccess())
+                    failures.add(r);
+            }
+        }
+
+        /**
+         * @return a result per issue, in the order the keys were given
+         */
+        @NotNull
+        public List<Result> getResults() {
+            return results;
+        }
+
+        public int getTotal() {
+            return results.size();
+        }
+
+        public int getSucceeded() {
+            return results.size() - getFailed();
+        }
+
+        /**
+         * @return issues processed per second
+         */
+        public double getThroughput() {
+            return perSecond(results.size());
+        }
+
+        /**
+         * @return average request time per issue, in milliseconds
+         */
+        public double getAverageLatencyMillis() {
+            if (results.isEmpty())
+                return 0;
+
+            long sum = 0;
+            for (Result r : results)
+                sum += r.getElapsedMillis();
+
+            return (double) sum / results.size();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d updated, %d failed in %d ms (%.1f issues/s)",
+                getSucceeded(), getFailed(), elapsed, getThroughput());
+        }
+    }
+
+    BulkUpdate(@NotNull RestClient restclient, @NotNull Collection<String> keys,
+               @NotNull Field.Schema editmeta) {
+
+        this.restclient = restclient;
+        this.keys = new ArrayList<String>(new LinkedHashSet<String>(keys));
+        this.editmeta = editmeta;
+    }
+
+    /**
+     * Appends a field to the update action.
+     *
+     * @param name Name of the field
+     * @param value New field value
+     *
+     * @return the current bulk update instance
+     */
+    @NotNull
+    public BulkUpdate field(String name, Object value) {
+        fields.put(name, value);
+        return this;
+    }
+
+    @NotNull
+    private BulkUpdate fieldOperation(String oper, String name, Object value) {
+        if (!fieldOpers.containsKey(name))
+            fieldOpers.put(name, new ArrayList());
+
+        fieldOpers.get(name).add(new Field.Operation(oper, value));
+        return this;
+    }
+
+    /**
+     *  Adds a field value to the existing value set.
+     *
+     *  @param name Name of the field
+     *  @param value Field value to append
+     *
+     *  @return the current bulk update instance
+     */
+    @NotNull
+    public BulkUpdate fieldAdd(String name, Object value) {
+        return fieldOperation("add", name, value);
+    }
+
+    /**
+     *  Removes a field value from the existing value set.
+     *
+     *  @param name Name of the field
+     *  @param value Field value to remove
+     *
+     *  @return the current bulk update instance
+     */
+    @NotNull
+    public BulkUpdate fieldRemove(String name, Object value) {
+        return fieldOperation("remove", name, value);
+    }
+
+    /**
+     * Sets the number of updates sent at the same time.
+     *
+     * @param parallelism Concurrent requests
+     *
+     * @return the current bulk update instance
+     */
+    @NotNull
+    public BulkUpdate parallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Executes the update on every issue.
+     *
+     * @return the per-issue outcomes and throughput of the update
+     *
+     * @throws JiraException when the changes cannot be serialised against the
+     * edit metadata
+     */
+    @NotNull
+    public Summary execute() throws JiraException {
+        final JSONObject req = Issue.buildUpdateRequest(editmeta, fields, fieldOpers);
+        List<Callable<Result>> tasks = new ArrayList<Callable<Result>>(keys.size());
+
+        for (final String key : keys) {
+            tasks.add(new Callable<Result>() {
+                public Result call() {
+                    return updateOne(key, req);
+                }
+            });
+        }
+
+        long start = System.currentTimeMillis();
+
+        try {
+            List<Result> results = ConcurrencyUtils.invokeAll(tasks, parallelism);
+            return new Summary(results, System.currentTimeMillis() - start);
+        } catch (ExecutionException ex) {
+            throw new JiraException("Failed to update issues", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while updating issues", ex);
+        }
+    }
+
+    @NotNull
+    private Result updateOne(String key, @NotNull JSONObject req) {
+        long start = System.currentTimeMillis();
+        String error = null;
+
+        try {
+            restclient.put(Resource.getBaseUri() + "issue/" + key, req);
+        } catch (Exception ex) {
+            error = ex.getMessage() != null ? ex.getMessage() : ex.toString();
+        }
+
+        return new Result(key, error, System.currentTimeMillis() - start);
+    }
+}
@@ -20,8 +20,12 @@
 package net.rcarz.jiraclient;
 
 import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -58,6 +62,35 @@ public class ChangeLog extends Resource {
                 Field.CHANGE_LOG_ENTRIES), restclient);
     }
 
+    /**
+     * Creates a change log from a snapshot.
+     *
+     * @param restclient REST client instance
+     * @param in Snapshot input
+     * @return the changelog
+     */
+    @NotNull
+    static ChangeLog read(RestClient restclient, @NotNull SnapshotCodec.Reader in) throws IOException {
+        ChangeLog changeLog = new ChangeLog(restclient, (JSONObject) null);
+        changeLog.readSnapshot(in);
+        return changeLog;
+    }
+
+    private void readSnapshot(@NotNull SnapshotCodec.Reader in) throws IOException {
+        int n = in.readVarInt();
+        entries = new ArrayList<ChangeLogEntry>(n);
+        for (int i = 0; i < n; i++)
+            entries.add(ChangeLogEntry.read(restclient, in));
+    }
+
+    void writeSnapshot(@NotNull SnapshotCodec.Writer out) throws IOException {
+        List<ChangeLogEntry> list = entries != null ? entries : Collections.<ChangeLogEntry>emptyList();
+
+        out.writeVarInt(list.size());
+        for (ChangeLogEntry entry : list)
+            entry.writeSnapshot(out);
+    }
+
     /**
      * Returns the list of change log entries in the change log.
      * @return the list of entries
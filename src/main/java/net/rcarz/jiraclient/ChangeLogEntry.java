@@ -20,8 +20,12 @@
 package net.rcarz.jiraclient;
 
 import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -77,6 +81,42 @@ public class ChangeLogEntry extends Resource {
                 Field.CHANGE_LOG_ITEMS), restclient);
     }
 
+    /**
+     * Creates a change log entry from a snapshot.
+     *
+     * @param restclient REST client instance
+     * @param in Snapshot input
+     * @return the changelog entry
+     */
+    @NotNull
+    static ChangeLogEntry read(RestClient restclient, @NotNull SnapshotCodec.Reader in) throws IOException {
+        ChangeLogEntry entry = new ChangeLogEntry(restclient, (JSONObject) null);
+        entry.readSnapshot(in);
+        return entry;
+    }
+
+    private void readSnapshot(@NotNull SnapshotCodec.Reader in) throws IOException {
+        id = in.readString();
+        author = in.readUser(restclient);
+        created = in.readDate();
+
+        int n = in.readVarInt();
+        items = new ArrayList<ChangeLogItem>(n);
+        for (int i = 0; i < n; i++)
+            items.add(ChangeLogItem.read(restclient, in));
+    }
+
+    void writeSnapshot(@NotNull SnapshotCodec.Writer out) throws IOException {
+        List<ChangeLogItem> list = items != null ? items : Collections.<ChangeLogItem>emptyList();
+
+        out.writeString(id);
+        out.writeUser(author);
+        out.writeDate(created);
+        out.writeVarInt(list.size());
+        for (ChangeLogItem item : list)
+            item.writeSnapshot(out);
+    }
+
     /**
      * Obtains the author of the change log entry.
      * @return the author
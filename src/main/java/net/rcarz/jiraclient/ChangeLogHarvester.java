@@ -0,0 +1,348 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.utils.ConcurrencyUtils;
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads the change history of every issue matching a JQL query.
+ *
+ * The search expands the changelog and asks for few fields, so most issues
+ * arrive with their whole history in the search page. Only issues whose
+ * embedded changelog was truncated are followed up through the changelog
+ * resource, several at a time. Histories are handed to a {@link Handler} on
+ * the calling thread as soon as they are complete, so the result set is
+ * never held in memory as a whole.
+ */
+public final class ChangeLogHarvester {
+
+    /**
+     * Default number of follow-up requests running at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Default number of issues fetched per search page.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * Receives the complete history of each issue.
+     */
+    public interface Handler {
+
+        /**
+         * Called once per issue, on the thread running the harvest.
+         *
+         * @param issue Issue carrying only the requested fields
+         * @param histories Histories of the issue, oldest first
+         */
+        void handle(@NotNull Issue issue, @NotNull List<IssueHistory> histories);
+    }
+
+    @NotNull
+    private final RestClient restclient;
+    @NotNull
+    private final String jql;
+    @NotNull
+    private String fields = Field.CREATED_DATE;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    /**
+     * Outcome of a harvest. The failures are messages, one per issue whose
+     * history could not be completed.
+     */
+    public static final class Summary extends BulkSummary<String> {
+        private int issues = 0;
+        private int followUps = 0;
+        private long histories = 0;
+
+        /**
+         * @return number of issues returned by the search
+         */
+        public int getIssues() {
+            return issues;
+        }
+
+        /**
+         * @return number of issues whose changelog needed extra requests
+         */
+        public int getFollowUps() {
+            return followUps;
+        }
+
+        /**
+         * @return number of histories handed to the handler
+         */
+        public long getHistories() {
+            return histories;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d issues, %d followed up, %d histories, %d failed in %d ms",
+                issues, followUps, histories, getFailed(), elapsed);
+        }
+    }
+
+    private static final class FollowUp {
+        @NotNull
+        final Issue issue;
+        @Nullable
+        List<IssueHistory> histories;
+        @Nullable
+        Exception error;
+
+        FollowUp(@NotNull Issue issue) {
+            this.issue = issue;
+        }
+    }
+
+    ChangeLogHarvester(@NotNull RestClient restclient, @NotNull String jql) {
+        this.restclient = restclient;
+        this.jql = jql;
+    }
+
+    /**
+     * Sets the issue fields returned with each issue. Defaults to the
+     * creation date only.
+     *
+     * @param fields Comma-separated list of fields
+     *
+     * @return the current harvester
+     */
+    @NotNull
+    public ChangeLogHarvester fields(@NotNull String fields) {
+        this.fields = fields;
+        return this;
+    }
+
+    /**
+     * Sets the number of follow-up requests running at the same time.
+     *
+     * @param parallelism Concurrent follow-ups
+     *
+     * @return the current harvester
+     */
+    @NotNull
+    public ChangeLogHarvester parallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the number of issues fetched per search page.
+     *
+     * @param pageSize Issues per page
+     *
+     * @return the current harvester
+     */
+    @NotNull
+    public ChangeLogHarvester pageSize(int pageSize) {
+        if (pageSize < 1)
+            throw new IllegalArgumentException("Page size must be positive");
+
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Runs the harvest.
+     *
+     * @param handler Receiver of each issue's history
+     *
+     * @return the outcome of the harvest
+     *
+     * @throws JiraException when the search fails
+     */
+    @NotNull
+    public Summary execute(@NotNull Handler handler) throws JiraException {
+        Summary summary = new Summary();
+        ExecutorService executor = ConcurrencyUtils.newExecutor(parallelism);
+        CompletionService<FollowUp> followUps = new ExecutorCompletionService<FollowUp>(executor);
+        long start = System.currentTimeMillis();
+        int pending = 0;
+        int startAt = 0;
+
+        try {
+            while (true) {
+                Map page = search(startAt);
+                int total = Field.getInteger(page.get("total"));
+                Object issues = page.get("issues");
+
+                if (!(issues instanceof JSONArray) || ((JSONArray) issues).isEmpty())
+                    break;
+
+                for (Object o : (JSONArray) issues) {
+                    if (!(o instanceof JSONObject))
+                        continue;
+
+                    JSONObject json = (JSONObject) o;
+                    Object changelog = json.remove(Field.CHANGE_LOG);
+                    Issue issue = new Issue(restclient, json);
+                    summary.issues++;
+
+                    List<IssueHistory> head = getHead(changelog);
+                    if (changelog instanceof JSONObject &&
+                            head.size() >= Field.getInteger(((Map) changelog).get("total"))) {
+                        deliver(handler, issue, head, summary);
+                        continue;
+                    }
+
+                    /* keep the number of finished but undelivered follow-ups bounded */
+                    while (pending >= parallelism * 2) {
+                        complete(handler, followUps.take(), summary);
+                        pending--;
+                    }
+
+                    followUps.submit(followUp(issue, head));
+                    summary.followUps++;
+                    pending++;
+                }
+
+                Future<FollowUp> done;
+                while ((done = followUps.poll()) != null) {
+                    complete(handler, done, summary);
+                    pending--;
+                }
+
+                startAt += ((JSONArray) issues).size();
+                if (startAt >= total)
+                    break;
+            }
+
+            while (pending > 0) {
+                complete(handler, followUps.take(), summary);
+                pending--;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while harvesting changelogs", ex);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        summary.elapsed = System.currentTimeMillis() - start;
+        return summary;
+    }
+
+    @NotNull
+    private Map search(int startAt) throws JiraException {
+        JSON result;
+
+        try {
+            result = restclient.get(Issue.createSearchURI(
+                restclient, jql, fields, Field.CHANGE_LOG, pageSize, startAt));
+        } catch (Exception ex) {
+            throw new JiraException("Failed to search issues", ex);
+        }
+
+        if (!(result instanceof JSONObject))
+            throw new JiraException("JSON payload is malformed");
+
+        return (Map) result;
+    }
+
+    @NotNull
+    private Callable<FollowUp> followUp(@NotNull final Issue issue, @NotNull final List<IssueHistory> head) {
+        return new Callable<FollowUp>() {
+            public FollowUp call() {
+                FollowUp result = new FollowUp(issue);
+
+                try {
+                    result.histories = ChangeLogPager.fetchWithFallback(restclient, issue, head, 1);
+                } catch (Exception ex) {
+                    result.error = ex;
+                }
+
+                return result;
+            }
+        };
+    }
+
+    private static void complete(@NotNull Handler handler, @NotNull Future<FollowUp> future,
+                                 @NotNull Summary summary) throws InterruptedException {
+        FollowUp result;
+
+        try {
+            result = future.get();
+        } catch (ExecutionException ex) {
+            summary.failures.add(String.valueOf(ex.getCause()));
+            return;
+        }
+
+        if (result.histories != null)
+            deliver(handler, result.issue, result.histories, summary);
+        else
+            summary.failures.add(result.issue.getKey() + ": " + result.error);
+    }
+
+    private static void deliver(@NotNull Handler handler, @NotNull Issue issue,
+                                @NotNull List<IssueHistory> histories, @NotNull Summary summary) {
+        summary.histories += histories.size();
+        handler.handle(issue, histories);
+    }
+
+    /**
+     * Returns the embedded histories, or none when they do not start at the
+     * first history and cannot be used as the head of the changelog.
+     */
+    @NotNull
+    private List<IssueHistory> getHead(@Nullable Object changelog) {
+        if (!(changelog instanceof JSONObject) || Field.getInteger(((Map) changelog).get("startAt")) != 0)
+            return new ArrayList<IssueHistory>();
+
+        return getHistories((Map) changelog);
+    }
+
+    @NotNull
+    private List<IssueHistory> getHistories(@NotNull Map changelog) {
+        List<IssueHistory> histories = new ArrayList<IssueHistory>();
+        Object list = changelog.get("histories");
+
+        if (list instanceof JSONArray) {
+            for (Object h : (JSONArray) list) {
+                if (h instanceof JSONObject)
+                    histories.add(new IssueHistory(restclient, (JSONObject) h));
+            }
+        }
+
+        return histories;
+    }
+}
@@ -20,8 +20,10 @@
 package net.rcarz.jiraclient;
 
 import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -91,6 +93,38 @@ public class ChangeLogItem extends Resource {
         toString = Field.getString(((Map) json).get("toString"));
     }
 
+    /**
+     * Creates a change log item from a snapshot.
+     *
+     * @param restclient REST client instance
+     * @param in Snapshot input
+     * @return the changelog item
+     */
+    @NotNull
+    static ChangeLogItem read(RestClient restclient, @NotNull SnapshotCodec.Reader in) throws IOException {
+        ChangeLogItem item = new ChangeLogItem(restclient, (JSONObject) null);
+        item.readSnapshot(in);
+        return item;
+    }
+
+    private void readSnapshot(@NotNull SnapshotCodec.Reader in) throws IOException {
+        field = in.readString();
+        fieldType = in.readString();
+        from = in.readString();
+        fromString = in.readString();
+        to = in.readString();
+        toString = in.readString();
+    }
+
+    void writeSnapshot(@NotNull SnapshotCodec.Writer out) throws IOException {
+        out.writeString(field);
+        out.writeString(fieldType);
+        out.writeString(from);
+        out.writeString(fromString);
+        out.writeString(to);
+        out.writeString(toString);
+    }
+
     /**
      * Obtains the field changed.
      * @return the field changed
@@ -0,0 +1,246 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.utils.ConcurrencyUtils;
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Reads the change history of an issue from the dedicated changelog
+ * resource, which pages histories without any issue fields.
+ *
+ * The first page tells the total and the page size the server honours;
+ * the remaining pages are then fetched concurrently and merged in order.
+ */
+final class ChangeLogPager {
+
+    /**
+     * Page size asked for. The server may cap it lower.
+     */
+    static final int PAGE_SIZE = 100;
+
+    private static final class Page {
+        int startAt;
+        int maxResults;
+        int total;
+        @NotNull
+        final List<IssueHistory> values = new ArrayList<IssueHistory>();
+    }
+
+    private ChangeLogPager() { }
+
+    /**
+     * Fetches the change history of an issue.
+     *
+     * @param restclient REST client instance
+     * @param key Issue key or ID
+     * @param head Histories already known, from the start of the changelog
+     * @param parallelism Maximum number of pages fetched at the same time
+     *
+     * @return all histories of the issue, oldest first
+     *
+     * @throws JiraException when a page cannot be retrieved
+     */
+    @NotNull
+    static ArrayList<IssueHistory> fetch(@NotNull final RestClient restclient, @NotNull final String key,
+                                         @NotNull List<IssueHistory> head, int parallelism) throws JiraException {
+
+        ArrayList<IssueHistory> result = new ArrayList<IssueHistory>(head);
+        Page first = fetchPage(restclient, key, result.size(), PAGE_SIZE);
+
+        result.ensureCapacity(first.total);
+        result.addAll(first.values);
+
+        final int size = Math.max(1, first.maxResults > 0 ? first.maxResults : first.values.size());
+        List<Callable<Page>> tasks = new ArrayList<Callable<Page>>();
+
+        for (int start = result.size(); start < first.total; start += size) {
+            final int startAt = start;
+
+            tasks.add(new Callable<Page>() {
+                public Page call() throws JiraException {
+                    return fetchPage(restclient, key, startAt, size);
+                }
+            });
+        }
+
+        if (!first.values.isEmpty() && !tasks.isEmpty()) {
+            try {
+                for (Page page : ConcurrencyUtils.invokeAll(tasks, parallelism)) {
+                    /* a short page leaves a gap, the rest is read in order below */
+                    if (page.startAt != result.size())
+                        break;
+
+                    result.addAll(page.values);
+                }
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof JiraException)
+                    throw (JiraException) ex.getCause();
+
+                throw new JiraException("Failed to retrieve changelog of " + key, ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new JiraException("Interrupted while retrieving changelog of " + key, ex);
+            }
+        }
+
+        while (result.size() < first.total) {
+            Page page = fetchPage(restclient, key, result.size(), PAGE_SIZE);
+
+            if (page.values.isEmpty())
+                break;
+
+            result.addAll(page.values);
+        }
+
+        return result;
+    }
+
+    /**
+     * Fetches the change history of an issue, falling back to the changelog
+     * embedded in the issue on servers without the changelog resource.
+     *
+     * @param restclient REST client instance
+     * @param issue Issue to retrieve the history of
+     * @param head Histories already known, from the start of the changelog
+     * @param parallelism Maximum number of pages fetched at the same time
+     *
+     * @return all histories of the issue, oldest first
+     *
+     * @throws JiraException when the retrieval fails
+     */
+    @Nullable
+    static ArrayList<IssueHistory> fetchWithFallback(@NotNull RestClient restclient, @NotNull Issue issue,
+                                                     @NotNull List<IssueHistory> head, int parallelism)
+        throws JiraException {
+
+        try {
+            return fetch(restclient, issue.getKey() != null ? issue.getKey() : issue.getId(), head, parallelism);
+        } catch (JiraException ex) {
+            if (!(ex.getCause() instanceof RestException) ||
+                    ((RestException) ex.getCause()).getHttpStatusCode() != 404)
+                throw ex;
+        }
+
+        return fetchEmbedded(restclient, issue);
+    }
+
+    @Nullable
+    private static ArrayList<IssueHistory> fetchEmbedded(@NotNull RestClient restclient, @NotNull Issue issue)
+        throws JiraException {
+
+        try {
+            ArrayList<IssueHistory> changes = null;
+            JSON response = fetchPortion(restclient, issue, 0);
+
+            while (true) {
+                JSONObject object = JSONObject.fromObject(response);
+                Object opers = object.get("changelog");
+                object = JSONObject.fromObject(opers);
+                Integer totalObj = (Integer)object.get("total");
+                JSONArray histories = JSONArray.fromObject(object.get("histories"));
+
+                if (changes == null) {
+                    changes = new ArrayList<IssueHistory>(totalObj);
+                }
+
+                for (int i = 0; i < histories.size(); i++) {
+                    JSONObject p = histories.getJSONObject(i);
+                    changes.add(new IssueHistory(restclient, p));
+                }
+
+                if (changes.size() >= totalObj) {
+                    break;
+                } else {
+                    response = fetchPortion(restclient, issue, changes.size());
+                }
+            }
+
+            return changes;
+        } catch (Exception ex) {
+            throw new JiraException(ex.getMessage(), ex);
+        }
+    }
+
+    private static JSON fetchPortion(@NotNull RestClient restclient, @NotNull Issue issue,
+                                     @Nullable Integer startAt)
+            throws URISyntaxException, RestException, IOException {
+
+        Map<String, String> params = new HashMap<String, String>();
+        if (startAt != null) {
+            params.put("startAt", String.valueOf(startAt));
+        }
+
+        params.put("expand","changelog.fields");
+        URI uri = restclient.buildURI(Issue.getBaseUri() + "issue/" + issue.id, params);
+        return restclient.get(uri);
+    }
+
+    @NotNull
+    private static Page fetchPage(@NotNull RestClient restclient, @NotNull String key, int startAt, int maxResults)
+        throws JiraException {
+
+        JSON result;
+
+        try {
+            Map<String, String> params = new HashMap<String, String>();
+            params.put("startAt", String.valueOf(startAt));
+            params.put("maxResults", String.valueOf(maxResults));
+
+            URI uri = restclient.buildURI(Resource.getBaseUri() + "issue/" + key + "/changelog", params);
+            result = restclient.get(uri);
+        } catch (Exception ex) {
+            throw new JiraException("Failed to retrieve changelog of " + key, ex);
+        }
+
+        if (!(result instanceof JSONObject))
+            throw new JiraException("JSON payload is malformed");
+
+        Map map = (Map) result;
+        Page page = new Page();
+        page.startAt = Field.getInteger(map.get("startAt"));
+        page.maxResults = Field.getInteger(map.get("maxResults"));
+        page.total = Field.getInteger(map.get("total"));
+
+        Object values = map.get("values");
+        if (values instanceof JSONArray) {
+            for (Object v : (JSONArray) values) {
+                if (v instanceof JSONObject)
+                    page.values.add(new IssueHistory(restclient, (JSONObject) v));
+            }
+        }
+
+        return page;
+    }
+}
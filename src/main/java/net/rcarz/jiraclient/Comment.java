@@ -24,6 +24,7 @@ import net.sf.json.JSONObject;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.Date;
 import java.util.Map;
 
@@ -80,6 +81,50 @@ public class Comment extends Resource {
         visibility = Field.getResource(Visibility.class, ((Map) json).get("visibility"),restclient);
     }
 
+    /**
+     * Creates a comment from a snapshot.
+     *
+     * @param restclient REST client instance
+     * @param in Snapshot input
+     * @param issueKey key of the parent issue
+     * @return the comment
+     */
+    @NotNull
+    static Comment read(RestClient restclient, @NotNull SnapshotCodec.Reader in, @Nullable String issueKey) throws IOException {
+        Comment comment = new Comment(restclient, (JSONObject) null, issueKey);
+        comment.readSnapshot(in);
+        return comment;
+    }
+
+    private void readSnapshot(@NotNull SnapshotCodec.Reader in) throws IOException {
+        self = in.readString();
+        id = in.readString();
+        author = in.readUser(restclient);
+        body = in.readString();
+        created = in.readDate();
+        updated = in.readDate();
+        updatedAuthor = in.readUser(restclient);
+
+        if (in.readBoolean())
+            visibility = Visibility.read(restclient, in);
+    }
+
+    void writeSnapshot(@NotNull SnapshotCodec.Writer out) throws IOException {
+        out.writeString(self);
+        out.writeString(id);
+        out.writeUser(author);
+        out.writeString(body);
+        out.writeDate(created);
+        out.writeDate(updated);
+        out.writeUser(updatedAuthor);
+        out.writeBoolean(visibility != null);
+
+        if (visibility != null) {
+            out.writeString(visibility.getType());
+            out.writeString(visibility.getValue());
+        }
+    }
+
     /**
      * Retrieves the given comment record.
      *
@@ -0,0 +1,257 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.utils.ConcurrencyUtils;
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.net.URI;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Lazy, read-only list of the comments of an issue, backed by
+ * <code>/issue/{key}/comment</code>.
+ *
+ * Pages are requested only when an index inside them is read, and each
+ * comment is decoded on first access. With prefetch on, reading a page
+ * starts the request for the following one in the background, so
+ * iterating the list rarely waits on the network. Sorting by
+ * <code>-created</code> puts the newest comments on the first page, which
+ * is all a reader of recent comments ever requests.
+ *
+ * Failures surface as a RuntimeException wrapping the JiraException.
+ */
+public final class CommentView extends AbstractList<Comment> implements RandomAccess {
+
+    /**
+     * Default number of comments requested per page.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    @NotNull
+    private final RestClient restclient;
+    @NotNull
+    private final String issueKey;
+    @Nullable
+    private String orderBy = null;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private boolean prefetch = false;
+
+    private int total = -1;
+    /* page number to slots, holding the raw JSON until a comment is decoded */
+    @NotNull
+    private final Map<Integer, Object[]> pages = new HashMap<Integer, Object[]>();
+    @NotNull
+    private final Map<Integer, FutureTask<JSONObject>> pending = new HashMap<Integer, FutureTask<JSONObject>>();
+
+    CommentView(@NotNull RestClient restclient, @NotNull String issueKey) {
+        this.restclient = restclient;
+        this.issueKey = issueKey;
+    }
+
+    /**
+     * Sets the sort order, such as <code>created</code> or
+     * <code>-created</code>. Must be called before the first read.
+     *
+     * @param orderBy Sort field, prefixed with - for descending order
+     *
+     * @return the current view
+     */
+    @NotNull
+    public synchronized CommentView orderBy(@Nullable String orderBy) {
+        checkUnread();
+        this.orderBy = orderBy;
+        return this;
+    }
+
+    /**
+     * Sets the number of comments requested per page. Must be called before
+     * the first read.
+     *
+     * @param pageSize Comments per page
+     *
+     * @return the current view
+     */
+    @NotNull
+    public synchronized CommentView pageSize(int pageSize) {
+        if (pageSize < 1)
+            throw new IllegalArgumentException("Page size must be positive");
+
+        checkUnread();
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Enables requesting the next page in the background whenever a page
+     * is read.
+     *
+     * @param prefetch Whether to prefetch
+     *
+     * @return the current view
+     */
+    @NotNull
+    public synchronized CommentView prefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+        return this;
+    }
+
+    /**
+     * Returns the number of comments, requesting the first page if needed.
+     *
+     * @return the total number of comments
+     */
+    @Override
+    public synchronized int size() {
+        if (total < 0)
+            getPage(0);
+
+        return total;
+    }
+
+    @Override
+    public synchronized Comment get(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + total);
+
+        Object[] slots = getPage(index / pageSize);
+        int slot = index % pageSize;
+
+        if (slots[slot] instanceof JSONObject)
+            slots[slot] = new Comment(restclient, (JSONObject) slots[slot], issueKey);
+
+        return (Comment) slots[slot];
+    }
+
+    /**
+     * @return number of pages held
+     */
+    public synchronized int getLoadedPages() {
+        return pages.size();
+    }
+
+    private void checkUnread() {
+        if (total >= 0)
+            throw new IllegalStateException("Comments have already been read");
+    }
+
+    @NotNull
+    private Object[] getPage(int page) {
+        Object[] slots = pages.get(page);
+
+        if (slots != null)
+            return slots;
+
+        slots = new Object[pageSize];
+        int start = page * pageSize;
+        int filled = 0;
+
+        /* the server may return fewer comments than asked for */
+        while (filled < pageSize && (total < 0 || start + filled < total)) {
+            JSONObject result = take(page, start + filled, pageSize - filled);
+            Object comments = result.get("comments");
+            total = Field.getInteger(result.get("total"));
+
+            if (!(comments instanceof JSONArray) || ((JSONArray) comments).isEmpty())
+                break;
+
+            for (Object c : (JSONArray) comments) {
+                if (filled < pageSize)
+                    slots[filled++] = c;
+            }
+        }
+
+        pages.put(page, slots);
+
+        if (prefetch && (page + 1) * pageSize < total && !pages.containsKey(page + 1) &&
+                !pending.containsKey(page + 1))
+            pending.put(page + 1, start(page + 1));
+
+        return slots;
+    }
+
+    @NotNull
+    private JSONObject take(int page, int startAt, int maxResults) {
+        FutureTask<JSONObject> task = pending.remove(page);
+
+        try {
+            if (task != null && startAt == page * pageSize)
+                return task.get();
+
+            return fetch(startAt, maxResults);
+        } catch (JiraException ex) {
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause() instanceof JiraException ? ex.getCause() :
+                new JiraException("Failed to retrieve comments for issue " + issueKey, ex.getCause()));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(new JiraException("Interrupted while retrieving comments", ex));
+        }
+    }
+
+    @NotNull
+    private FutureTask<JSONObject> start(int page) {
+        final int startAt = page * pageSize;
+        final int maxResults = pageSize;
+
+        FutureTask<JSONObject> task = new FutureTask<JSONObject>(new Callable<JSONObject>() {
+            public JSONObject call() throws JiraException {
+                return fetch(startAt, maxResults);
+            }
+        });
+
+        ConcurrencyUtils.sharedExecutor().execute(task);
+        return task;
+    }
+
+    @NotNull
+    private JSONObject fetch(int startAt, int maxResults) throws JiraException {
+        JSON result = null;
+
+        try {
+            Map<String, String> params = new HashMap<String, String>();
+            params.put("startAt", String.valueOf(startAt));
+            params.put("maxResults", String.valueOf(maxResults));
+            if (orderBy != null)
+                params.put("orderBy", orderBy);
+
+            URI uri = restclient.buildURI(Resource.getBaseUri() + "issue/" + issueKey + "/comment", params);
+            result = restclient.get(uri);
+        } catch (Exception ex) {
+            throw new JiraException("Failed to retrieve comments for issue " + issueKey, ex);
+        }
+
+        if (!(result instanceof JSONObject))
+            throw new JiraException("JSON payload is malformed");
+
+        return (JSONObject) result;
+    }
+}
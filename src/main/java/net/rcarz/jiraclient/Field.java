@@ -24,11 +24,15 @@ import net.sf.json.JSONNull;
 import net.sf.json.JSONObject;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
 
 import java.sql.Timestamp;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Utility functions for translating between JSON and fields.
@@ -156,6 +160,9 @@ public final class Field {
     public static final String DATE_FORMAT = "yyyy-MM-dd";
     public static final String DATETIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
 
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormat.forPattern(DATE_FORMAT);
+    private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormat.forPattern(DATETIME_FORMAT);
+
     private Field() { }
 
     /**
@@ -611,11 +618,16 @@ public final class Field {
      */
     @NotNull
     public static JSONArray toArray(@NotNull Iterable iter, @Nullable String type, @Nullable String custom) throws JiraException {
-        JSONArray results = new JSONArray();
-
         if (type == null)
             throw new JiraException("Array field metadata is missing item type");
 
+        return toArray(iter, ItemKind.of(type, custom));
+    }
+
+    @NotNull
+    private static JSONArray toArray(@NotNull Iterable iter, @NotNull ItemKind kind) {
+        JSONArray results = new JSONArray();
+
         for (Object val : iter) {
             Operation oper = null;
             Object realValue = null;
@@ -627,9 +639,7 @@ public final class Field {
             } else
                 realValue = val;
 
-            if (type.equals("component") || type.equals("group") ||
-                type.equals("user") || type.equals("version")) {
-
+            if (kind == ItemKind.RESOURCE) {
                 JSONObject itemMap = new JSONObject();
 
                 if (realValue instanceof ValueTuple) {
@@ -639,15 +649,10 @@ public final class Field {
                     itemMap.put(ValueType.NAME.toString(), realValue.toString());
 
                 realResult = itemMap;
-            } else if ( type.equals("option") ||
-                    (
-                    type.equals("string") && custom != null
-                    && (custom.equals("com.atlassian.jira.plugin.system.customfieldtypes:multicheckboxes") ||
-                    custom.equals("com.atlassian.jira.plugin.system.customfieldtypes:multiselect")))) {
-                
+            } else if (kind == ItemKind.OPTION) {
                 realResult = new JSONObject();
                 ((JSONObject)realResult).put(ValueType.VALUE.toString(), realValue.toString());
-            } else if (type.equals("string"))
+            } else if (kind == ItemKind.STRING)
                 realResult = realValue.toString();
 
             if (oper != null) {
@@ -661,6 +666,302 @@ public final class Field {
         return results;
     }
 
+    /**
+     * Array item types, resolved once from the field schema.
+     */
+    private enum ItemKind {
+        RESOURCE, OPTION, STRING, OTHER;
+
+        @NotNull
+        static ItemKind of(@NotNull String type, @Nullable String custom) {
+            if (type.equals("component") || type.equals("group") ||
+                type.equals("user") || type.equals("version"))
+                return RESOURCE;
+            else if (type.equals("option") ||
+                    (type.equals("string") && custom != null
+                    && (custom.equals("com.atlassian.jira.plugin.system.customfieldtypes:multicheckboxes") ||
+                    custom.equals("com.atlassian.jira.plugin.system.customfieldtypes:multiselect"))))
+                return OPTION;
+            else if (type.equals("string"))
+                return STRING;
+
+            return OTHER;
+        }
+    }
+
+    /**
+     * Field value types, resolved once from the field schema.
+     */
+    private enum Kind {
+        ARRAY, DATE, DATETIME, NAMED, KEYED, STRING, TIMETRACKING, NUMBER, ANY, UNSUPPORTED;
+
+        @NotNull
+        static Kind of(@NotNull String type) {
+            if (type.equals("array"))
+                return ARRAY;
+            else if (type.equals("date"))
+                return DATE;
+            else if (type.equals("datetime"))
+                return DATETIME;
+            else if (type.equals("issuetype") || type.equals("priority") ||
+                    type.equals("user") || type.equals("resolution") || type.equals("securitylevel"))
+                return NAMED;
+            else if (type.equals("project") || type.equals("issuelink"))
+                return KEYED;
+            else if (type.equals("string") || type.equals("option"))
+                return STRING;
+            else if (type.equals("timetracking"))
+                return TIMETRACKING;
+            else if (type.equals("number"))
+                return NUMBER;
+            else if (type.equals("any"))
+                return ANY;
+
+            return UNSUPPORTED;
+        }
+    }
+
+    /**
+     * Converts values of a single field to JSON. The metadata lookup and type
+     * dispatch are done once when the serializer is created, so instances can
+     * be reused for any number of values and are safe to share between
+     * threads.
+     */
+    public static final class Serializer {
+        @NotNull
+        private final String name;
+        @NotNull
+        private final Meta meta;
+        @NotNull
+        private final Kind kind;
+        @Nullable
+        private final ItemKind itemKind;
+
+        private Serializer(@NotNull String name, @NotNull Meta meta) throws JiraException {
+            if (meta.type == null)
+                throw new JiraException("Field '" + name + "' is missing metadata type");
+
+            this.name = name;
+            this.meta = meta;
+            this.kind = Kind.of(meta.type);
+            this.itemKind = meta.items != null ? ItemKind.of(meta.items, meta.custom) : null;
+        }
+
+        /**
+         * Gets the field name.
+         */
+        @NotNull
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the field metadata.
+         */
+        @NotNull
+        public Meta getMeta() {
+            return meta;
+        }
+
+        /**
+         * Converts the given value to a JSON object.
+         *
+         * @param value New field value
+         *
+         * @return a JSON-encoded field value
+         *
+         * @throws JiraException when a value is bad
+         * @throws UnsupportedOperationException when the field type isn't supported
+         */
+        @Nullable
+        public Object toJson(@Nullable Object value) throws JiraException, UnsupportedOperationException {
+            switch (kind) {
+                case ARRAY:
+                    if (value == null)
+                        value = new ArrayList();
+                    else if (!(value instanceof Iterable))
+                        throw new JiraException("Field '" + name + "' expects an Iterable value");
+
+                    if (itemKind == null)
+                        throw new JiraException("Array field metadata is missing item type");
+
+                    return toArray((Iterable)value, itemKind);
+                case DATE: {
+                    if (value == null)
+                        return JSONNull.getInstance();
+
+                    Date d = toDate(value);
+                    if (d == null)
+                        throw new JiraException("Field '" + name + "' expects a date value or format is invalid");
+
+                    return DATE_FORMATTER.print(d.getTime());
+                }
+                case DATETIME:
+                    if (value == null)
+                        return JSONNull.getInstance();
+                    else if (!(value instanceof Timestamp))
+                        throw new JiraException("Field '" + name + "' expects a Timestamp value");
+
+                    return DATETIME_FORMATTER.print(((Timestamp)value).getTime());
+                case NAMED:
+                case KEYED: {
+                    JSONObject json = new JSONObject();
+
+                    if (value == null)
+                        return JSONNull.getInstance();
+                    else if (value instanceof ValueTuple) {
+                        ValueTuple tuple = (ValueTuple)value;
+                        json.put(tuple.type, tuple.value.toString());
+                    } else if (kind == Kind.NAMED)
+                        json.put(ValueType.NAME.toString(), value.toString());
+                    else
+                        json.put(ValueType.KEY.toString(), value.toString());
+
+                    return json.toString();
+                }
+                case STRING:
+                    if (value == null)
+                        return "";
+                    else if (value instanceof List)
+                        return toJsonMap((List)value);
+                    else if (value instanceof ValueTuple) {
+                        JSONObject json = new JSONObject();
+                        ValueTuple tuple = (ValueTuple)value;
+                        json.put(tuple.type, tuple.value.toString());
+                        return json.toString();
+                    }
+
+                    return value.toString();
+                case TIMETRACKING:
+                    if (value == null)
+                        return JSONNull.getInstance();
+                    else if (value instanceof TimeTracking)
+                        return ((TimeTracking) value).toJsonObject();
+                    break;
+                case NUMBER:
+                    if (value == null) //Non mandatory number fields can be set to null
+                        return JSONNull.getInstance();
+                    else if(!(value instanceof java.lang.Integer) && !(value instanceof java.lang.Double) && !(value
+                            instanceof java.lang.Float) && !(value instanceof java.lang.Long) )
+                    {
+                        throw new JiraException("Field '" + name + "' expects a Numeric value");
+                    }
+                    return value;
+                case ANY:
+                    if (value == null)
+                        return JSONNull.getInstance();
+                    else if (value instanceof List)
+                        return toJsonMap((List)value);
+                    else if (value instanceof ValueTuple) {
+                        JSONObject json = new JSONObject();
+                        ValueTuple tuple = (ValueTuple)value;
+                        json.put(tuple.type, tuple.value.toString());
+                        return json.toString();
+                    } else if (value instanceof TimeTracking)
+                        return ((TimeTracking) value).toJsonObject();
+
+                    return value;
+                default:
+                    break;
+            }
+
+            throw new UnsupportedOperationException(meta.type + " is not a supported field type");
+        }
+    }
+
+    /**
+     * Compiled field metadata. Serializers are built on first use of each
+     * field and cached, so a schema compiled from one editmeta or createmeta
+     * payload can be reused for every issue sharing that metadata.
+     */
+    public static final class Schema {
+        @NotNull
+        private final JSONObject metadata;
+        @NotNull
+        private final ConcurrentMap<String, Serializer> serializers =
+                new ConcurrentHashMap<String, Serializer>();
+
+        private Schema(@NotNull JSONObject metadata) {
+            this.metadata = metadata;
+        }
+
+        /**
+         * Gets the serializer for the given field.
+         *
+         * @param name Field name
+         *
+         * @return a Serializer instance
+         *
+         * @throws JiraException when the field is missing or metadata is bad
+         */
+        @NotNull
+        public Serializer getSerializer(String name) throws JiraException {
+            Serializer s = serializers.get(name);
+
+            if (s == null) {
+                Serializer existing = serializers.putIfAbsent(name, Field.getSerializer(name, metadata));
+                s = existing != null ? existing : serializers.get(name);
+            }
+
+            return s;
+        }
+
+        /**
+         * Converts the given value to a JSON object.
+         *
+         * @param name Field name
+         * @param value New field value
+         *
+         * @return a JSON-encoded field value
+         *
+         * @throws JiraException when a value is bad or field has invalid metadata
+         * @throws UnsupportedOperationException when a field type isn't supported
+         */
+        @Nullable
+        public Object toJson(String name, @Nullable Object value)
+            throws JiraException, UnsupportedOperationException {
+
+            return getSerializer(name).toJson(value);
+        }
+
+        /**
+         * Gets the raw metadata this schema was compiled from.
+         */
+        @NotNull
+        public JSONObject getMetadata() {
+            return metadata;
+        }
+    }
+
+    /**
+     * Compiles an editmeta or createmeta JSON object for repeated use.
+     *
+     * @param metadata Edit or create metadata JSON object
+     *
+     * @return a Schema instance
+     */
+    @NotNull
+    public static Schema compile(@NotNull JSONObject metadata) {
+        return new Schema(metadata);
+    }
+
+    /**
+     * Creates a serializer for a single field.
+     *
+     * @param name Field name
+     * @param editmeta Edit metadata JSON object
+     *
+     * @return a Serializer instance
+     *
+     * @throws JiraException when the field is missing or metadata is bad
+     */
+    @NotNull
+    public static Serializer getSerializer(String name, @NotNull JSONObject editmeta)
+        throws JiraException {
+
+        return new Serializer(name, getFieldMetadata(name, editmeta));
+    }
+
     /**
      * Converts the given value to a JSON object.
      *
@@ -677,104 +978,7 @@ public final class Field {
     public static Object toJson(String name, @Nullable Object value, @NotNull JSONObject editmeta)
         throws JiraException, UnsupportedOperationException {
 
-        Meta m = getFieldMetadata(name, editmeta);
-        if (m.type == null)
-            throw new JiraException("Field '" + name + "' is missing metadata type");
-
-        if (m.type.equals("array")) {
-            if (value == null)
-                value = new ArrayList();
-            else if (!(value instanceof Iterable))
-                throw new JiraException("Field '" + name + "' expects an Iterable value");
-
-            return toArray((Iterable)value, m.items, m.custom);
-        } else if (m.type.equals("date")) {
-            if (value == null)
-                return JSONNull.getInstance();
-
-            Date d = toDate(value);
-            if (d == null)
-                throw new JiraException("Field '" + name + "' expects a date value or format is invalid");
-
-            SimpleDateFormat df = new SimpleDateFormat(DATE_FORMAT);
-            return df.format(d);
-        } else if (m.type.equals("datetime")) {
-            if (value == null)
-                return JSONNull.getInstance();
-            else if (!(value instanceof Timestamp))
-                throw new JiraException("Field '" + name + "' expects a Timestamp value");
-
-            SimpleDateFormat df = new SimpleDateFormat(DATETIME_FORMAT);
-            return df.format(value);
-        } else if (m.type.equals("issuetype") || m.type.equals("priority") ||
-                m.type.equals("user") || m.type.equals("resolution") || m.type.equals("securitylevel")) {
-            JSONObject json = new JSONObject();
-
-            if (value == null)
-                return JSONNull.getInstance();
-            else if (value instanceof ValueTuple) {
-                ValueTuple tuple = (ValueTuple)value;
-                json.put(tuple.type, tuple.value.toString());
-            } else
-                json.put(ValueType.NAME.toString(), value.toString());
-
-            return json.toString();
-        } else if (m.type.equals("project") || m.type.equals("issuelink")) {
-            JSONObject json = new JSONObject();
-
-            if (value == null)
-                return JSONNull.getInstance();
-            else if (value instanceof ValueTuple) {
-                ValueTuple tuple = (ValueTuple)value;
-                json.put(tuple.type, tuple.value.toString());
-            } else
-                json.put(ValueType.KEY.toString(), value.toString());
-
-            return json.toString();
-        } else if (m.type.equals("string") || (m.type.equals("securitylevel") || m.type.equals("option"))) {
-            if (value == null)
-                return "";
-            else if (value instanceof List)
-                return toJsonMap((List)value);
-            else if (value instanceof ValueTuple) {
-                JSONObject json = new JSONObject();
-                ValueTuple tuple = (ValueTuple)value;
-                json.put(tuple.type, tuple.value.toString());
-                return json.toString();
-            }
-
-            return value.toString();
-        } else if (m.type.equals("timetracking")) {
-            if (value == null)
-                return JSONNull.getInstance();
-            else if (value instanceof TimeTracking)
-                return ((TimeTracking) value).toJsonObject();
-        } else if (m.type.equals("number")) {
-            if (value == null) //Non mandatory number fields can be set to null
-                return JSONNull.getInstance(); 
-            else if(!(value instanceof java.lang.Integer) && !(value instanceof java.lang.Double) && !(value 
-                    instanceof java.lang.Float) && !(value instanceof java.lang.Long) )
-            {
-                throw new JiraException("Field '" + name + "' expects a Numeric value");
-            }
-            return value;
-        } else if (m.type.equals("any")) {
-            if (value == null)
-                return JSONNull.getInstance();
-            else if (value instanceof List)
-                return toJsonMap((List)value);
-            else if (value instanceof ValueTuple) {
-                JSONObject json = new JSONObject();
-                ValueTuple tuple = (ValueTuple)value;
-                json.put(tuple.type, tuple.value.toString());
-                return json.toString();
-            } else if (value instanceof TimeTracking)
-                return ((TimeTracking) value).toJsonObject();
-
-            return value;
-        }
-
-        throw new UnsupportedOperationException(m.type + " is not a supported field type");
+        return getSerializer(name, editmeta).toJson(value);
     }
 
     /**
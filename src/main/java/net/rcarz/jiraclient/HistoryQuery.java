@@ -0,0 +1,348 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Filters change history by field, time range and author.
+ *
+ * A query is a lazy view over the histories it was created from: nothing is
+ * copied, and every iteration reads the underlying list afresh. Field names
+ * are matched exactly through a hash set.
+ *
+ * <pre>
+ * HistoryQuery query = HistoryQuery.of(jira.getIssueChangeLog(issue))
+ *     .fields("status", "assignee")
+ *     .since(lastWeek);
+ *
+ * for (IssueHistoryItem item : query.items())
+ *     ...
+ * </pre>
+ */
+public final class HistoryQuery {
+
+    @NotNull
+    private final List<IssueHistory> histories;
+    @Nullable
+    private Set<String> fields = null;
+    @Nullable
+    private Set<String> authors = null;
+    @Nullable
+    private Date since = null;
+    @Nullable
+    private Date until = null;
+
+    private HistoryQuery(@NotNull List<IssueHistory> histories) {
+        this.histories = histories;
+    }
+
+    /**
+     * Creates a query matching every change in the given histories.
+     *
+     * @param histories Histories to query
+     *
+     * @return a new query
+     */
+    @NotNull
+    public static HistoryQuery of(@NotNull List<IssueHistory> histories) {
+        return new HistoryQuery(histories);
+    }
+
+    /**
+     * Restricts the query to changes of the given fields. Blank names are
+     * ignored and the rest are trimmed.
+     *
+     * @param names Field names, as they appear in the change items
+     *
+     * @return the current query
+     */
+    @NotNull
+    public HistoryQuery fields(@NotNull String... names) {
+        if (fields == null)
+            fields = new HashSet<String>();
+
+        for (String name : names) {
+            if (name != null && name.trim().length() > 0)
+                fields.add(name.trim());
+        }
+
+        return this;
+    }
+
+    /**
+     * Restricts the query to histories written by the given users.
+     *
+     * @param names User names or IDs
+     *
+     * @return the current query
+     */
+    @NotNull
+    public HistoryQuery authors(@NotNull String... names) {
+        if (authors == null)
+            authors = new HashSet<String>();
+
+        for (String name : names)
+            authors.add(name);
+
+        return this;
+    }
+
+    /**
+     * Restricts the query to histories created at or after the given time.
+     *
+     * @param since Earliest creation time
+     *
+     * @return the current query
+     */
+    @NotNull
+    public HistoryQuery since(@Nullable Date since) {
+        this.since = since;
+        return this;
+    }
+
+    /**
+     * Restricts the query to histories created before the given time.
+     *
+     * @param until Creation time limit, exclusive
+     *
+     * @return the current query
+     */
+    @NotNull
+    public HistoryQuery until(@Nullable Date until) {
+        this.until = until;
+        return this;
+    }
+
+    /**
+     * Tests a history against the time range and author restrictions.
+     *
+     * @param history History to test
+     *
+     * @return true when the history may hold matching changes
+     */
+    public boolean accepts(@NotNull IssueHistory history) {
+        if (since != null || until != null) {
+            Date created = history.getCreated();
+
+            if (created == null || (since != null && created.before(since)) ||
+                    (until != null && !created.before(until)))
+                return false;
+        }
+
+        if (authors != null) {
+            User user = history.getUser();
+
+            if (user == null || !(authors.contains(user.getName()) || authors.contains(user.getId())))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Tests a change item against the field restriction.
+     *
+     * @param item Change item to test
+     *
+     * @return true when the item's field is selected
+     */
+    public boolean accepts(@NotNull IssueHistoryItem item) {
+        return fields == null || fields.contains(item.getField());
+    }
+
+    /**
+     * Returns a lazy view of the histories with at least one matching change.
+     * The histories are returned as they are, including their changes of
+     * other fields.
+     *
+     * @return the matching histories
+     */
+    @NotNull
+    public Iterable<IssueHistory> histories() {
+        return new Iterable<IssueHistory>() {
+            public Iterator<IssueHistory> iterator() {
+                return new FilterIterator<IssueHistory>(histories.iterator()) {
+                    @Override
+                    boolean accept(@NotNull IssueHistory history) {
+                        return accepts(history) && hasMatch(history);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Returns a lazy view of the matching changes across all histories.
+     *
+     * @return the matching change items, oldest first
+     */
+    @NotNull
+    public Iterable<IssueHistoryItem> items() {
+        return new Iterable<IssueHistoryItem>() {
+            public Iterator<IssueHistoryItem> iterator() {
+                return new FilterIterator<IssueHistoryItem>(new ItemIterator()) {
+                    @Override
+                    boolean accept(@NotNull IssueHistoryItem item) {
+                        return accepts(item);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Counts the matching changes.
+     *
+     * @return number of matching change items
+     */
+    public int count() {
+        int n = 0;
+
+        for (IssueHistory history : histories) {
+            if (!accepts(history) || history.getChanges() == null)
+                continue;
+
+            for (IssueHistoryItem item : history.getChanges()) {
+                if (accepts(item))
+                    n++;
+            }
+        }
+
+        return n;
+    }
+
+    /**
+     * Copies the matching histories, each holding only its matching changes.
+     *
+     * @return a new list of histories
+     */
+    @NotNull
+    public ArrayList<IssueHistory> toList() {
+        ArrayList<IssueHistory> result = new ArrayList<IssueHistory>();
+
+        for (IssueHistory history : histories) {
+            if (!accepts(history) || history.getChanges() == null)
+                continue;
+
+            ArrayList<IssueHistoryItem> list = new ArrayList<IssueHistoryItem>();
+            for (IssueHistoryItem item : history.getChanges()) {
+                if (accepts(item))
+                    list.add(item);
+            }
+
+            if (list.size() > 0)
+                result.add(new IssueHistory(history, list));
+        }
+
+        return result;
+    }
+
+    private boolean hasMatch(@NotNull IssueHistory history) {
+        if (history.getChanges() == null)
+            return false;
+
+        for (IssueHistoryItem item : history.getChanges()) {
+            if (accepts(item))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Walks the change items of the histories passing the time range and
+     * author restrictions.
+     */
+    private final class ItemIterator implements Iterator<IssueHistoryItem> {
+        @NotNull
+        private final Iterator<IssueHistory> outer = histories.iterator();
+        @Nullable
+        private Iterator<IssueHistoryItem> inner = null;
+
+        public boolean hasNext() {
+            while (inner == null || !inner.hasNext()) {
+                if (!outer.hasNext())
+                    return false;
+
+                IssueHistory history = outer.next();
+                inner = accepts(history) && history.getChanges() != null ? history.getChanges().iterator() : null;
+            }
+
+            return true;
+        }
+
+        public IssueHistoryItem next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            return inner.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private abstract static class FilterIterator<T> implements Iterator<T> {
+        @NotNull
+        private final Iterator<T> source;
+        @Nullable
+        private T next = null;
+
+        FilterIterator(@NotNull Iterator<T> source) {
+            this.source = source;
+        }
+
+        abstract boolean accept(@NotNull T value);
+
+        public boolean hasNext() {
+            while (next == null && source.hasNext()) {
+                T value = source.next();
+                if (value != null && accept(value))
+                    next = value;
+            }
+
+            return next != null;
+        }
+
+        public T next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+
+            T result = next;
+            next = null;
+            return result;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
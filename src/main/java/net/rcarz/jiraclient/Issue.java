@@ -29,6 +29,7 @@ import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -331,7 +332,7 @@ public class Issue extends Resource {
      * @return the URI to execute a jql search.
      * @throws URISyntaxException
      */
-    private static URI createSearchURI(@NotNull RestClient restclient, String jql,
+    static URI createSearchURI(@NotNull RestClient restclient, String jql,
                                        @Nullable String includedFields, @Nullable String expandFields, @Nullable Integer maxResults,
                                        @Nullable Integer startAt) throws URISyntaxException {
         Map<String, String> queryParams = new HashMap<String, String>();
@@ -358,41 +359,203 @@ public class Issue extends Resource {
         self = Field.getString(((Map) json).get("self"));
         key = Field.getString(((Map) json).get("key"));
 
+        packedFields = null;
         fields = (Map) ((Map) json).get("fields");
         if (fields == null)
             return;
 
         assignee = Field.getResource(User.class, fields.get(Field.ASSIGNEE), restclient);
-        attachments = Field.getResourceArray(Attachment.class, fields.get(Field.ATTACHMENT), restclient);
         changeLog = Field.getResource(ChangeLog.class, ((Map) json).get(Field.CHANGE_LOG), restclient);
         comments = Field.getComments(fields.get(Field.COMMENT), restclient, key);
-        components = Field.getResourceArray(Component.class, fields.get(Field.COMPONENTS), restclient);
         description = Field.getString(fields.get(Field.DESCRIPTION));
         dueDate = Field.getDate(fields.get(Field.DUE_DATE));
         fixVersions = Field.getResourceArray(Version.class, fields.get(Field.FIX_VERSIONS), restclient);
-        issueLinks = Field.getResourceArray(IssueLink.class, fields.get(Field.ISSUE_LINKS), restclient);
-        issueType = Field.getResource(IssueType.class, fields.get(Field.ISSUE_TYPE), restclient);
         labels = Field.getStringArray(fields.get(Field.LABELS));
-        parent = Field.getResource(Issue.class, fields.get(Field.PARENT), restclient);
-        priority = Field.getResource(Priority.class, fields.get(Field.PRIORITY), restclient);
-        project = Field.getResource(Project.class, fields.get(Field.PROJECT), restclient);
         reporter = Field.getResource(User.class, fields.get(Field.REPORTER), restclient);
-        resolution = Field.getResource(Resolution.class, fields.get(Field.RESOLUTION), restclient);
         resolutionDate = Field.getDateTime(fields.get(Field.RESOLUTION_DATE));
         status = Field.getResource(Status.class, fields.get(Field.STATUS), restclient);
-        subtasks = Field.getResourceArray(Issue.class, fields.get(Field.SUBTASKS), restclient);
         summary = Field.getString(fields.get(Field.SUMMARY));
-        timeTracking = Field.getTimeTracking(fields.get(Field.TIME_TRACKING));
         versions = Field.getResourceArray(Version.class, fields.get(Field.VERSIONS), restclient);
-        votes = Field.getResource(Votes.class, fields.get(Field.VOTES), restclient);
-        watches = Field.getResource(Watches.class, fields.get(Field.WATCHES), restclient);
         workLogs = Field.getWorkLogs(fields.get(Field.WORKLOG), restclient);
         timeEstimate = Field.getInteger(fields.get(Field.TIME_ESTIMATE));
         timeSpent = Field.getInteger(fields.get(Field.TIME_SPENT));
         createdDate = Field.getDateTime(fields.get(Field.CREATED_DATE));
         updatedDate = Field.getDateTime(fields.get(Field.UPDATED_DATE));
+
+        deserialiseResources();
+    }
+
+    /**
+     * Deserialises the fields that are not part of the typed snapshot.
+     */
+    private void deserialiseResources() {
+        attachments = Field.getResourceArray(Attachment.class, fields.get(Field.ATTACHMENT), restclient);
+        components = Field.getResourceArray(Component.class, fields.get(Field.COMPONENTS), restclient);
+        issueLinks = Field.getResourceArray(IssueLink.class, fields.get(Field.ISSUE_LINKS), restclient);
+        issueType = Field.getResource(IssueType.class, fields.get(Field.ISSUE_TYPE), restclient);
+        parent = Field.getResource(Issue.class, fields.get(Field.PARENT), restclient);
+        priority = Field.getResource(Priority.class, fields.get(Field.PRIORITY), restclient);
+        project = Field.getResource(Project.class, fields.get(Field.PROJECT), restclient);
+        resolution = Field.getResource(Resolution.class, fields.get(Field.RESOLUTION), restclient);
+        subtasks = Field.getResourceArray(Issue.class, fields.get(Field.SUBTASKS), restclient);
+        timeTracking = Field.getTimeTracking(fields.get(Field.TIME_TRACKING));
+        votes = Field.getResource(Votes.class, fields.get(Field.VOTES), restclient);
+        watches = Field.getResource(Watches.class, fields.get(Field.WATCHES), restclient);
         security = Field.getResource(Security.class, fields.get(Field.SECURITY), restclient);
     }
+
+    /**
+     * Creates an issue from a snapshot. The raw field map stays packed until
+     * it, or one of the resources derived from it, is first accessed.
+     *
+     * @param restclient REST client instance
+     * @param in Snapshot input
+     * @return the issue
+     */
+    @NotNull
+    static Issue read(RestClient restclient, @NotNull SnapshotCodec.Reader in) throws IOException {
+        Issue issue = new Issue(restclient, (JSONObject) null);
+        issue.readSnapshot(in);
+        return issue;
+    }
+
+    private void readSnapshot(@NotNull SnapshotCodec.Reader in) throws IOException {
+        id = in.readString();
+        self = in.readString();
+        key = in.readString();
+        summary = in.readString();
+        description = in.readString();
+        labels = in.readStrings();
+        dueDate = in.readDate();
+        resolutionDate = in.readDate();
+        createdDate = in.readDate();
+        updatedDate = in.readDate();
+        timeEstimate = in.readBoolean() ? (int) in.readSignedLong() : null;
+        timeSpent = in.readBoolean() ? (int) in.readSignedLong() : null;
+        assignee = in.readUser(restclient);
+        reporter = in.readUser(restclient);
+        status = in.readBoolean() ? Status.read(restclient, in) : null;
+
+        int n = in.readVarInt();
+        if (n > 0) {
+            fixVersions = new ArrayList<Version>(n - 1);
+            for (int i = 1; i < n; i++)
+                fixVersions.add(Version.read(restclient, in));
+        }
+
+        n = in.readVarInt();
+        if (n > 0) {
+            versions = new ArrayList<Version>(n - 1);
+            for (int i = 1; i < n; i++)
+                versions.add(Version.read(restclient, in));
+        }
+
+        n = in.readVarInt();
+        if (n > 0) {
+            comments = new ArrayList<Comment>(n - 1);
+            for (int i = 1; i < n; i++)
+                comments.add(Comment.read(restclient, in, key));
+        }
+
+        n = in.readVarInt();
+        if (n > 0) {
+            workLogs = new ArrayList<WorkLog>(n - 1);
+            for (int i = 1; i < n; i++)
+                workLogs.add(WorkLog.read(restclient, in));
+        }
+
+        changeLog = in.readBoolean() ? ChangeLog.read(restclient, in) : null;
+
+        if (in.readBoolean()) {
+            byte[] packed = new byte[in.readVarInt()];
+            in.in.readFully(packed);
+            packedFields = packed;
+        }
+    }
+
+    void writeSnapshot(@NotNull SnapshotCodec.Writer out) throws IOException {
+        out.writeString(id);
+        out.writeString(self);
+        out.writeString(key);
+        out.writeString(summary);
+        out.writeString(description);
+        out.writeStrings(labels);
+        out.writeDate(dueDate);
+        out.writeDate(resolutionDate);
+        out.writeDate(createdDate);
+        out.writeDate(updatedDate);
+        out.writeBoolean(timeEstimate != null);
+        if (timeEstimate != null)
+            out.writeSignedLong(timeEstimate);
+        out.writeBoolean(timeSpent != null);
+        if (timeSpent != null)
+            out.writeSignedLong(timeSpent);
+        out.writeUser(assignee);
+        out.writeUser(reporter);
+        out.writeBoolean(status != null);
+        if (status != null)
+            status.writeSnapshot(out);
+
+        out.writeVarInt(fixVersions != null ? fixVersions.size() + 1 : 0);
+        if (fixVersions != null) {
+            for (Version v : fixVersions)
+                v.writeSnapshot(out);
+        }
+
+        out.writeVarInt(versions != null ? versions.size() + 1 : 0);
+        if (versions != null) {
+            for (Version v : versions)
+                v.writeSnapshot(out);
+        }
+
+        out.writeVarInt(comments != null ? comments.size() + 1 : 0);
+        if (comments != null) {
+            for (Comment c : comments)
+                c.writeSnapshot(out);
+        }
+
+        out.writeVarInt(workLogs != null ? workLogs.size() + 1 : 0);
+        if (workLogs != null) {
+            for (WorkLog w : workLogs)
+                w.writeSnapshot(out);
+        }
+
+        out.writeBoolean(changeLog != null);
+        if (changeLog != null)
+            changeLog.writeSnapshot(out);
+
+        byte[] packed = packedFields;
+        if (packed == null && fields != null)
+            packed = SnapshotCodec.pack(fields);
+
+        out.writeBoolean(packed != null);
+        if (packed != null) {
+            out.writeVarInt(packed.length);
+            out.out.write(packed);
+        }
+    }
+
+    /**
+     * Unpacks the raw field map of an issue created from a snapshot.
+     */
+    private void inflate() {
+        if (packedFields == null)
+            return;
+
+        synchronized (this) {
+            if (packedFields == null)
+                return;
+
+            try {
+                fields = (Map) SnapshotCodec.unpack(packedFields);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Snapshot of issue " + key + " is corrupt", ex);
+            }
+
+            deserialiseResources();
+            packedFields = null;
+        }
+    }
     
     /**
      * Removes a watcher to the issue.
@@ -418,10 +581,27 @@ public class Issue extends Resource {
 
     public static final class NewAttachment {
 
+        /**
+         * Receives upload progress of an attachment. Called on the uploading
+         * thread as content is written to the connection.
+         */
+        public interface ProgressListener {
+
+            /**
+             * @param attachment Attachment being uploaded
+             * @param sent Bytes of content sent so far
+             * @param total Length of the content, or -1 when unknown
+             */
+            void progress(@NotNull NewAttachment attachment, long sent, long total);
+        }
+
         @Nullable
         private final String filename;
         @Nullable
         private final Object content;
+        private final long length;
+        @Nullable
+        private ProgressListener listener = null;
 
         public NewAttachment(@NotNull File content) {
             this(content.getName(), content);
@@ -430,16 +610,44 @@ public class Issue extends Resource {
         public NewAttachment(String filename, File content) {
             this.filename = requireFilename(filename);
             this.content = requireContent(content);
+            this.length = content.length();
         }
 
         public NewAttachment(String filename, InputStream content) {
+            this(filename, content, -1);
+        }
+
+        /**
+         * Creates an attachment from a stream of known length, so it can be
+         * sent with a content length instead of chunked encoding.
+         *
+         * @param filename Name of the attachment
+         * @param content Content stream
+         * @param length Number of bytes the stream will provide, or -1 if unknown
+         */
+        public NewAttachment(String filename, InputStream content, long length) {
             this.filename = requireFilename(filename);
             this.content = requireContent(content);
+            this.length = length;
         }
 
         public NewAttachment(String filename, byte[] content) {
             this.filename = requireFilename(filename);
             this.content = requireContent(content);
+            this.length = content.length;
+        }
+
+        /**
+         * Sets a listener for the upload progress of this attachment.
+         *
+         * @param listener Progress listener, or null for none
+         *
+         * @return this attachment
+         */
+        @NotNull
+        public NewAttachment withProgressListener(@Nullable ProgressListener listener) {
+            this.listener = listener;
+            return this;
         }
 
         @Nullable
@@ -452,6 +660,18 @@ public class Issue extends Resource {
             return content;
         }
 
+        /**
+         * @return length of the content, or -1 when unknown
+         */
+        long getLength() {
+            return length;
+        }
+
+        @Nullable
+        ProgressListener getProgressListener() {
+            return listener;
+        }
+
         @Nullable
         private static String requireFilename(@Nullable String filename) {
             if (filename == null) {
@@ -477,6 +697,8 @@ public class Issue extends Resource {
     private String key = null;
     @Nullable
     private Map fields = null;
+    @Nullable
+    private volatile byte[] packedFields = null;
 
     /* system fields */
     @Nullable
@@ -564,9 +786,9 @@ public class Issue extends Resource {
         @Nullable
         RestClient restclient = null;
         @Nullable
-        JSONObject createmeta = null;
+        Field.Schema createmeta = null;
 
-        private FluentCreate(@Nullable RestClient restclient, @Nullable JSONObject createmeta) {
+        private FluentCreate(@Nullable RestClient restclient, @Nullable Field.Schema createmeta) {
             this.restclient = restclient;
             this.createmeta = createmeta;
         }
@@ -615,6 +837,30 @@ public class Issue extends Resource {
          * @throws JiraException when the create fails
          */
         private Issue executeCreate(@Nullable String includedFields) throws JiraException {
+            String key = Field.getString(post().get("key"));
+
+            if (includedFields != null) {
+                return Issue.get(restclient, key, includedFields);
+            } else {
+                return Issue.get(restclient, key);
+            }
+        }
+
+        /**
+         * Executes the create action without retrieving the new issue. The
+         * returned handle fetches the issue on first use.
+         *
+         * @return a handle to the created issue
+         *
+         * @throws JiraException when the create fails
+         */
+        @NotNull
+        public IssueHandle executeWithoutRefetch() throws JiraException {
+            return new IssueHandle(restclient, post());
+        }
+
+        @NotNull
+        private JSONObject post() throws JiraException {
             JSONObject fieldmap = new JSONObject();
 
             if (fields.size() == 0) {
@@ -622,7 +868,7 @@ public class Issue extends Resource {
             }
 
             for (Map.Entry<String, Object> ent : fields.entrySet()) {
-                Object newval = Field.toJson(ent.getKey(), ent.getValue(), createmeta);
+                Object newval = createmeta.toJson(ent.getKey(), ent.getValue());
                 fieldmap.put(ent.getKey(), newval);
             }
 
@@ -642,11 +888,7 @@ public class Issue extends Resource {
                 throw new JiraException("Unexpected result on create issue");
             }
 
-            if (includedFields != null) {
-                return Issue.get(restclient, (String) ((JSONObject) result).get("key"), includedFields);
-            } else {
-                return Issue.get(restclient, (String) ((JSONObject) result).get("key"));
-            }
+            return (JSONObject) result;
         }
 
         /**
@@ -799,6 +1041,13 @@ public class Issue extends Resource {
 
     @NotNull
     private JSONObject getEditMetadata() throws JiraException {
+        return getEditMetadata(restclient, key);
+    }
+
+    @NotNull
+    private static JSONObject getEditMetadata(@NotNull RestClient restclient, String key)
+        throws JiraException {
+
         JSON result = null;
 
         try {
@@ -821,6 +1070,17 @@ public class Issue extends Resource {
 
     @NotNull
     public List<Transition> getTransitions() throws JiraException {
+        return getTransitions(restclient, key);
+    }
+
+    /**
+     * Retrieves the transitions available to the given issue, including
+     * their fields.
+     */
+    @NotNull
+    static List<Transition> getTransitions(@NotNull RestClient restclient, String key)
+        throws JiraException {
+
         JSON result = null;
 
         try {
@@ -1107,15 +1367,57 @@ public class Issue extends Resource {
     public static FluentCreate create(@NotNull RestClient restclient, String project, String issueType)
         throws JiraException {
 
-        FluentCreate fc = new FluentCreate(
+        return create(
             restclient,
-            getCreateMetadata(restclient, project, issueType));
+            project,
+            issueType,
+            Field.compile(getCreateMetadata(restclient, project, issueType)));
+    }
+
+    /**
+     * Creates a new JIRA issue using previously compiled create metadata.
+     *
+     * @param restclient REST client instance
+     * @param project Key of the project to create the issue in
+     * @param issueType Name of the issue type to create
+     * @param createmeta Compiled create metadata for the project and issue type
+     *
+     * @return a fluent create instance
+     */
+    @NotNull
+    public static FluentCreate create(@NotNull RestClient restclient, String project, String issueType,
+                                      @NotNull Field.Schema createmeta) {
+
+        FluentCreate fc = new FluentCreate(restclient, createmeta);
 
         return fc
             .field(Field.PROJECT, project)
             .field(Field.ISSUE_TYPE, issueType);
     }
 
+    /**
+     * Creates many JIRA issues of the same project and issue type with as few
+     * requests as possible.
+     *
+     * @param restclient REST client instance
+     * @param project Key of the project to create the issues in
+     * @param issueType Name of the issue type to create
+     *
+     * @return a bulk create instance
+     *
+     * @throws JiraException when the client fails to retrieve issue metadata
+     */
+    @NotNull
+    public static BulkCreate createBulk(@NotNull RestClient restclient, String project, String issueType)
+        throws JiraException {
+
+        return new BulkCreate(
+            restclient,
+            project,
+            issueType,
+            Field.compile(getCreateMetadata(restclient, project, issueType)));
+    }
+
     /**
      * Creates a new sub-task.
      *
@@ -1290,9 +1592,9 @@ public class Issue extends Resource {
         final
         Map<String, List> fieldOpers = new HashMap<String, List>();
         @Nullable
-        JSONObject editmeta = null;
+        Field.Schema editmeta = null;
 
-        private FluentUpdate(@Nullable JSONObject editmeta) {
+        private FluentUpdate(@Nullable Field.Schema editmeta) {
             this.editmeta = editmeta;
         }
 
@@ -1302,29 +1604,7 @@ public class Issue extends Resource {
          * @throws JiraException when the update fails
          */
         public void execute() throws JiraException {
-            JSONObject fieldmap = new JSONObject();
-            JSONObject updatemap = new JSONObject();
-
-            if (fields.size() == 0 && fieldOpers.size() == 0)
-                throw new JiraException("No fields were given for update");
-
-            for (Map.Entry<String, Object> ent : fields.entrySet()) {
-                Object newval = Field.toJson(ent.getKey(), ent.getValue(), editmeta);
-                fieldmap.put(ent.getKey(), newval);
-            }
-
-            for (Map.Entry<String, List> ent : fieldOpers.entrySet()) {
-                Object newval = Field.toJson(ent.getKey(), ent.getValue(), editmeta);
-                updatemap.put(ent.getKey(), newval);
-            }
-
-            JSONObject req = new JSONObject();
-
-            if (fieldmap.size() > 0)
-                req.put("fields", fieldmap);
-
-            if (updatemap.size() > 0)
-                req.put("update", updatemap);
+            JSONObject req = buildUpdateRequest(editmeta, fields, fieldOpers);
 
             try {
                 restclient.put(getRestUri(key), req);
@@ -1383,6 +1663,41 @@ public class Issue extends Resource {
         }
     }
 
+    /**
+     * Builds the request body of an update from field values and field
+     * operations.
+     */
+    @NotNull
+    static JSONObject buildUpdateRequest(Field.Schema editmeta, @NotNull Map<String, Object> fields,
+                                         @NotNull Map<String, List> fieldOpers) throws JiraException {
+
+        JSONObject fieldmap = new JSONObject();
+        JSONObject updatemap = new JSONObject();
+
+        if (fields.size() == 0 && fieldOpers.size() == 0)
+            throw new JiraException("No fields were given for update");
+
+        for (Map.Entry<String, Object> ent : fields.entrySet()) {
+            Object newval = editmeta.toJson(ent.getKey(), ent.getValue());
+            fieldmap.put(ent.getKey(), newval);
+        }
+
+        for (Map.Entry<String, List> ent : fieldOpers.entrySet()) {
+            Object newval = editmeta.toJson(ent.getKey(), ent.getValue());
+            updatemap.put(ent.getKey(), newval);
+        }
+
+        JSONObject req = new JSONObject();
+
+        if (fieldmap.size() > 0)
+            req.put("fields", fieldmap);
+
+        if (updatemap.size() > 0)
+            req.put("update", updatemap);
+
+        return req;
+    }
+
     /**
      * Reloads issue data from the JIRA server (issue includes all navigable
      * fields).
@@ -1427,6 +1742,7 @@ public class Issue extends Resource {
      */
     @Nullable
     public Object getField(String name) {
+        inflate();
 
         return fields != null ? fields.get(name) : null;
     }
@@ -1452,7 +1768,79 @@ public class Issue extends Resource {
      */
     @NotNull
     public FluentUpdate update() throws JiraException {
-        return new FluentUpdate(getEditMetadata());
+        return new FluentUpdate(getEditSchema());
+    }
+
+    /**
+     * Begins an update field chain using previously compiled edit metadata.
+     * Issues of the same project and issue type normally share their edit
+     * metadata, so one schema can be reused for all of them.
+     *
+     * @param editmeta Compiled edit metadata
+     *
+     * @return a fluent update instance
+     */
+    @NotNull
+    public FluentUpdate update(@NotNull Field.Schema editmeta) {
+        return new FluentUpdate(editmeta);
+    }
+
+    /**
+     * Retrieves and compiles the edit metadata of this issue.
+     *
+     * @return the compiled edit metadata
+     *
+     * @throws JiraException when the client fails to retrieve issue metadata
+     */
+    @NotNull
+    public Field.Schema getEditSchema() throws JiraException {
+        return Field.compile(getEditMetadata());
+    }
+
+    /**
+     * Retrieves and compiles the edit metadata of the given issue.
+     *
+     * @param restclient REST client instance
+     * @param key Issue key (PROJ-123) or ID
+     *
+     * @return the compiled edit metadata
+     *
+     * @throws JiraException when the client fails to retrieve issue metadata
+     */
+    @NotNull
+    public static Field.Schema getEditSchema(@NotNull RestClient restclient, String key)
+        throws JiraException {
+
+        return Field.compile(getEditMetadata(restclient, key));
+    }
+
+    /**
+     * Begins an update that applies the same changes to many issues.
+     *
+     * @param restclient REST client instance
+     * @param keys Keys of the issues to update
+     * @param editmeta Compiled edit metadata shared by the issues
+     *
+     * @return a bulk update instance
+     */
+    @NotNull
+    public static BulkUpdate updateBulk(@NotNull RestClient restclient, @NotNull Collection<String> keys,
+                                        @NotNull Field.Schema editmeta) {
+
+        return new BulkUpdate(restclient, keys, editmeta);
+    }
+
+    /**
+     * Begins a transition of many issues.
+     *
+     * @param restclient REST client instance
+     * @param cache Cache to look up available transitions in
+     *
+     * @return a batch transition instance
+     */
+    @NotNull
+    public static BatchTransition transitionBulk(@NotNull RestClient restclient, @NotNull TransitionCache cache) {
+        return new BatchTransition(restclient, cache);
     }
 
     /**
@@ -1635,6 +2023,7 @@ public class Issue extends Resource {
 
     @Nullable
     public List<Attachment> getAttachments() {
+        inflate();
         return attachments;
     }
 
@@ -1643,8 +2032,21 @@ public class Issue extends Resource {
         return comments;
     }
 
+    /**
+     * Returns a lazy view of all comments of this issue. Unlike
+     * {@link #getComments()}, which holds only the comments embedded in the
+     * issue, the view pages through every comment on demand.
+     *
+     * @return a comment view, oldest comment first unless ordered otherwise
+     */
+    @NotNull
+    public CommentView getCommentView() {
+        return new CommentView(restclient, key);
+    }
+
     @Nullable
     public List<Component> getComponents() {
+        inflate();
         return components;
     }
 
@@ -1665,11 +2067,13 @@ public class Issue extends Resource {
 
     @Nullable
     public List<IssueLink> getIssueLinks() {
+        inflate();
         return issueLinks;
     }
 
     @Nullable
     public IssueType getIssueType() {
+        inflate();
         return issueType;
     }
 
@@ -1680,16 +2084,19 @@ public class Issue extends Resource {
 
     @Nullable
     public Issue getParent() {
+        inflate();
         return parent;
     }
 
     @Nullable
     public Priority getPriority() {
+        inflate();
         return priority;
     }
 
     @Nullable
     public Project getProject() {
+        inflate();
         return project;
     }
 
@@ -1715,6 +2122,7 @@ public class Issue extends Resource {
 
     @Nullable
     public Resolution getResolution() {
+        inflate();
         return resolution;
     }
 
@@ -1730,6 +2138,7 @@ public class Issue extends Resource {
 
     @Nullable
     public List<Issue> getSubtasks() {
+        inflate();
         return subtasks;
     }
 
@@ -1740,6 +2149,7 @@ public class Issue extends Resource {
 
     @Nullable
     public TimeTracking getTimeTracking() {
+        inflate();
         return timeTracking;
     }
 
@@ -1750,11 +2160,13 @@ public class Issue extends Resource {
 
     @Nullable
     public Votes getVotes() {
+        inflate();
         return votes;
     }
 
     @Nullable
     public Watches getWatches() {
+        inflate();
         return watches;
     }
 
@@ -1763,19 +2175,52 @@ public class Issue extends Resource {
         return workLogs;
     }
 
+    /**
+     * Retrieves every work log of this issue, reading all pages.
+     *
+     * @return the work logs
+     *
+     * @throws JiraException when the retrieval fails
+     */
     @NotNull
     public List<WorkLog> getAllWorkLogs() throws JiraException {
-        JSONObject obj;
+        List<WorkLog> result = new ArrayList<WorkLog>();
+
         try {
-            URI uri = restclient.buildURI(getRestUri(key) + "/worklog");
-            JSON json = restclient.get(uri);
-            obj = (JSONObject) json;
-        } catch (Exception ex) {
-            throw new JiraException("Failed to get worklog for issue "
-                    + key, ex);
+            Iterator<WorkLog> it = iterateWorkLogs();
+            while (it.hasNext())
+                result.add(it.next());
+        } catch (RuntimeException ex) {
+            if (ex.getCause() instanceof JiraException)
+                throw (JiraException) ex.getCause();
+
+            throw ex;
         }
 
-        return Field.getWorkLogs(obj, restclient);
+        return result;
+    }
+
+    /**
+     * Iterates over the work logs of this issue. The next page is requested
+     * in the background while the current one is consumed.
+     *
+     * @return a work log iterator
+     */
+    @NotNull
+    public Iterator<WorkLog> iterateWorkLogs() {
+        return iterateWorkLogs(WorkLog.DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Iterates over the work logs of this issue.
+     *
+     * @param pageSize Number of work logs requested per page
+     *
+     * @return a work log iterator
+     */
+    @NotNull
+    public Iterator<WorkLog> iterateWorkLogs(int pageSize) {
+        return WorkLog.iterator(restclient, key, pageSize);
     }
 
     @Nullable
@@ -1800,6 +2245,7 @@ public class Issue extends Resource {
 
     @Nullable
     public Security getSecurity() {
+        inflate();
         return security;
     }
 
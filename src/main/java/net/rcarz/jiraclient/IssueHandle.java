@@ -0,0 +1,127 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+
+/**
+ * A reference to an issue that only knows its ID, key and URL.
+ *
+ * Handles are returned by creates that skip fetching the new issue. The
+ * full issue is retrieved on the first call to {@link #getIssue()} and kept
+ * for later calls.
+ */
+public class IssueHandle extends Resource {
+
+    @Nullable
+    private String key = null;
+    @Nullable
+    private volatile Issue issue = null;
+
+    /**
+     * Creates a handle from a create response or any other issue reference.
+     *
+     * @param restclient REST client instance
+     * @param json JSON payload with the id, key and self properties
+     */
+    protected IssueHandle(RestClient restclient, @Nullable JSONObject json) {
+        super(restclient);
+
+        if (json != null)
+            deserialise(json);
+    }
+
+    IssueHandle(RestClient restclient, String id, String key, String self, @Nullable Issue issue) {
+        super(restclient);
+
+        this.id = id;
+        this.key = key;
+        this.self = self;
+        this.issue = issue;
+    }
+
+    private void deserialise(JSONObject json) {
+        id = Field.getString(((Map) json).get("id"));
+        key = Field.getString(((Map) json).get("key"));
+        self = Field.getString(((Map) json).get("self"));
+    }
+
+    @Nullable
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return true when the full issue has been retrieved
+     */
+    public boolean isHydrated() {
+        return issue != null;
+    }
+
+    /**
+     * Gets the full issue, retrieving it with all fields on the first call.
+     *
+     * @return the issue
+     *
+     * @throws JiraException when the retrieval fails
+     */
+    @NotNull
+    public Issue getIssue() throws JiraException {
+        Issue result = issue;
+
+        if (result == null) {
+            synchronized (this) {
+                result = issue;
+                if (result == null)
+                    issue = result = Issue.get(restclient, key);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Retrieves the issue with the given fields, replacing any previously
+     * retrieved issue.
+     *
+     * @param includedFields Specifies which issue fields will be included in
+     * the result, as with {@link Issue#get(RestClient, String, String)}
+     *
+     * @return the issue
+     *
+     * @throws JiraException when the retrieval fails
+     */
+    @NotNull
+    public Issue getIssue(String includedFields) throws JiraException {
+        Issue result = Issue.get(restclient, key, includedFields);
+        issue = result;
+        return result;
+    }
+
+    @Nullable
+    @Override
+    public String toString() {
+        return getKey();
+    }
+}
@@ -28,23 +28,26 @@ import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.IOException;
+import java.io.File;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
 /**
  * A simple JIRA REST client.
  */
 public class JiraClient {
 
+    private static final int DEFAULT_CHANGELOG_PARALLELISM = 4;
+
     @Nullable
     private RestClient restclient = null;
+
     @Nullable
     private String username = null;
+    @NotNull
+    private final TransitionCache transitionCache = new TransitionCache();
 
     /**
      * Creates a JIRA client.
@@ -109,6 +112,119 @@ public class JiraClient {
         return Issue.create(restclient, project, issueType);
     }
 
+    /**
+     * Creates many issues in the given project using the bulk create resource.
+     *
+     * @param project Key of the project to create in
+     * @param issueType Name of the issue type to create
+     *
+     * @return a bulk create instance
+     *
+     * @throws JiraException when something goes wrong
+     */
+    @NotNull
+    public BulkCreate createIssues(String project, String issueType)
+            throws JiraException {
+
+        return Issue.createBulk(restclient, project, issueType);
+    }
+
+    /**
+     * Begins an update that applies the same changes to many issues. The edit
+     * metadata of the first issue is fetched once and shared by all of them,
+     * so the issues should have the same project and issue type.
+     *
+     * @param keys Keys of the issues to update
+     *
+     * @return a bulk update instance
+     *
+     * @throws JiraException when something goes wrong
+     */
+    @NotNull
+    public BulkUpdate updateIssues(@NotNull Collection<String> keys)
+            throws JiraException {
+
+        if (keys.isEmpty())
+            throw new JiraException("No issues were given for update");
+
+        return Issue.updateBulk(
+            restclient, keys, Issue.getEditSchema(restclient, keys.iterator().next()));
+    }
+
+    /**
+     * Begins a transition of many issues. Transitions are looked up through
+     * a cache shared by all batches of this client.
+     *
+     * @param keys Keys of the issues to transition
+     *
+     * @return a batch transition instance
+     */
+    @NotNull
+    public BatchTransition transitionIssues(@NotNull Collection<String> keys) {
+        return Issue.transitionBulk(restclient, transitionCache).addKeys(keys);
+    }
+
+    /**
+     * Gets the transition cache shared by the batch transitions of this
+     * client.
+     *
+     * @return the transition cache
+     */
+    @NotNull
+    public TransitionCache getTransitionCache() {
+        return transitionCache;
+    }
+
+    /**
+     * Opens a write-behind outbox on the given journal file. Writes left in
+     * the journal by a previous run are sent with the next replay.
+     *
+     * @param journal Journal file, created if missing
+     *
+     * @return an outbox
+     *
+     * @throws JiraException when the journal cannot be opened
+     */
+    @NotNull
+    public Outbox openOutbox(@NotNull File journal) throws JiraException {
+        return new Outbox(restclient, journal);
+    }
+
+    /**
+     * Begins an upload of attachments to many issues.
+     *
+     * @return an attachment uploader
+     */
+    @NotNull
+    public AttachmentUploader uploadAttachments() {
+        return new AttachmentUploader(restclient);
+    }
+
+    /**
+     * Begins an export of all attachments of the issues matching a query.
+     *
+     * @param jql JQL statement selecting the issues
+     * @param directory Directory to export to
+     *
+     * @return an attachment exporter
+     */
+    @NotNull
+    public AttachmentExporter exportAttachments(@NotNull String jql, @NotNull File directory) {
+        return new AttachmentExporter(restclient, jql, directory);
+    }
+
+    /**
+     * Begins a harvest of the change history of all issues matching a query.
+     *
+     * @param jql JQL statement selecting the issues
+     *
+     * @return a changelog harvester
+     */
+    @NotNull
+    public ChangeLogHarvester harvestChangeLogs(@NotNull String jql) {
+        return new ChangeLogHarvester(restclient, jql);
+    }
+
     /**
      * Retreives the issue with the given key.
      *
@@ -471,6 +587,15 @@ public class JiraClient {
         return restclient;
     }
 
+    /**
+     * Sets a local cache for attachment downloads.
+     *
+     * @param cache Attachment cache, or null to stop caching
+     */
+    public void setAttachmentCache(@Nullable AttachmentCache cache) {
+        restclient.setAttachmentCache(cache);
+    }
+
     @Nullable
     public String getSelf() {
         return username;
@@ -568,71 +693,74 @@ public class JiraClient {
         return Component.get(restclient, id);
     }
     
+    /**
+     * Opens a feed of the work logs changed after the given time.
+     *
+     * @param since Time in milliseconds since the epoch, typically the
+     *              {@link WorkLogFeed#getSince()} of the previous sync
+     *
+     * @return a work log feed
+     */
     @NotNull
-    public ArrayList<IssueHistory> filterChangeLog(@NotNull List<IssueHistory> histoy, String fields) {
-        ArrayList<IssueHistory> result = new ArrayList<IssueHistory>(histoy.size());
-        fields = "," + fields + ",";
-
-        for (IssueHistory record : histoy) {
-            ArrayList<IssueHistoryItem> list = new ArrayList<IssueHistoryItem>(record.getChanges().size());
-            for (IssueHistoryItem item : record.getChanges()) {
-                if (fields.contains(item.getField())) {
-                    list.add(item);
-                }
-            }
+    public WorkLogFeed getWorkLogFeed(long since) {
+        return new WorkLogFeed(restclient, since);
+    }
 
-            if (list.size() > 0) {
-                result.add(new IssueHistory(record,list));
-            }
-        }
-        return result;
+    /**
+     * Begins an aggregation of the time logged on the issues matching a query.
+     *
+     * @param jql JQL statement selecting the issues
+     *
+     * @return a work log aggregator
+     */
+    @NotNull
+    public WorkLogAggregator aggregateWorkLogs(@NotNull String jql) {
+        return new WorkLogAggregator(restclient, jql);
+    }
+
+    /**
+     * Copies the given histories, keeping only the changes of the given fields.
+     * See {@link HistoryQuery} for a view that does not copy.
+     *
+     * @param histoy Histories to filter
+     * @param fields Comma-separated list of field names
+     *
+     * @return the histories with at least one change of the given fields
+     */
+    @NotNull
+    public ArrayList<IssueHistory> filterChangeLog(@NotNull List<IssueHistory> histoy, @NotNull String fields) {
+        return HistoryQuery.of(histoy).fields(fields.split(",")).toList();
     }
 
+    /**
+     * Retrieves the complete change history of an issue. Pages after the
+     * first are fetched concurrently from the changelog resource, without
+     * issue fields. Servers without that resource are read through the
+     * issue's expanded changelog instead.
+     *
+     * @param issue Issue to retrieve the history of
+     *
+     * @return the histories of the issue, oldest first
+     *
+     * @throws JiraException when the retrieval fails
+     */
     @Nullable
     public ArrayList<IssueHistory> getIssueChangeLog(@NotNull Issue issue) throws JiraException {
-        try {
-            ArrayList<IssueHistory> changes = null;
-            JSON response = getNextPortion(issue, 0);
-
-            while (true) {
-                JSONObject object = JSONObject.fromObject(response);
-                Object opers = object.get("changelog");
-                object = JSONObject.fromObject(opers);
-                Integer totalObj = (Integer)object.get("total");
-                JSONArray histories = JSONArray.fromObject(object.get("histories"));
-
-                if (changes == null) {
-                    changes = new ArrayList<IssueHistory>(totalObj);
-                }
-
-                for (int i = 0; i < histories.size(); i++) {
-                    JSONObject p = histories.getJSONObject(i);
-                    changes.add(new IssueHistory(restclient, p));
-                }
-
-                if (changes.size() >= totalObj) {
-                    break;
-                } else {
-                    response = getNextPortion(issue,changes.size());
-                }
-            } 
-           
-            return changes;
-        } catch (Exception ex) {
-            throw new JiraException(ex.getMessage(), ex);
-        }
+        return getIssueChangeLog(issue, DEFAULT_CHANGELOG_PARALLELISM);
     }
 
-    private JSON getNextPortion(@NotNull Issue issue, @Nullable Integer startAt)
-            throws URISyntaxException, RestException, IOException {
-
-        Map<String, String> params = new HashMap<String, String>();
-        if (startAt != null) {
-            params.put("startAt", String.valueOf(startAt));
-        }
-
-        params.put("expand","changelog.fields");
-        URI uri = restclient.buildURI(Issue.getBaseUri() + "issue/" + issue.id, params);
-        return restclient.get(uri);
+    /**
+     * Retrieves the complete change history of an issue.
+     *
+     * @param issue Issue to retrieve the history of
+     * @param parallelism Maximum number of pages fetched at the same time
+     *
+     * @return the histories of the issue, oldest first
+     *
+     * @throws JiraException when the retrieval fails
+     */
+    @Nullable
+    public ArrayList<IssueHistory> getIssueChangeLog(@NotNull Issue issue, int parallelism) throws JiraException {
+        return ChangeLogPager.fetchWithFallback(restclient, issue, new ArrayList<IssueHistory>(), parallelism);
     }
 }
@@ -0,0 +1,995 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.utils.ConcurrencyUtils;
+import net.rcarz.utils.WorklogUtils;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind queue for comments, worklogs and field updates.
+ *
+ * Each write is appended to a local journal file and synced before the
+ * enqueue call returns, so callers never wait on the JIRA server and queued
+ * writes survive a restart. Writes are replayed in batches by
+ * {@link #flush()}, or periodically once {@link #start(long)} is called.
+ * Writes to the same issue are sent one at a time in the order they were
+ * queued; writes to different issues are sent concurrently.
+ *
+ * A write that fails with a server or network error is retried with backoff
+ * and holds back the later writes to its issue. A write the server rejects
+ * outright, or one that runs out of attempts, becomes a dead letter.
+ *
+ * Replay is at-least-once: a write is marked done in the journal only after
+ * the server accepted it, so a crash between the two sends it again on the
+ * next open. Failures of background replay are kept for
+ * {@link #getLastReplayError()}.
+ */
+public final class Outbox {
+
+    /**
+     * Default number of writes sent per replay.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    /**
+     * Default number of issues replayed at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Default number of attempts before a write becomes a dead letter.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 8;
+
+    private static final long BASE_BACKOFF = 1000;
+    private static final long MAX_BACKOFF = 5 * 60 * 1000;
+    private static final int COMPACT_THRESHOLD = 1000;
+
+    private static final int REC_WRITE = 1;
+    private static final int REC_DONE = 2;
+    private static final int REC_DEAD = 3;
+
+    private static final String METHOD_POST = "POST";
+    private static final String METHOD_PUT = "PUT";
+    private static final String METHOD_UPDATE = "UPDATE";
+
+    @NotNull
+    private final RestClient restclient;
+    @NotNull
+    private final File journal;
+    @NotNull
+    private final Object replayLock = new Object();
+    @NotNull
+    private final Map<Long, Entry> pending = new LinkedHashMap<Long, Entry>();
+    @NotNull
+    private final Map<Long, Entry> dead = new LinkedHashMap<Long, Entry>();
+    @Nullable
+    private DataOutputStream out = null;
+    @Nullable
+    private FileOutputStream fos = null;
+    @Nullable
+    private ScheduledExecutorService scheduler = null;
+    @Nullable
+    private volatile Exception lastReplayError = null;
+    private long nextSeq = 1;
+    private int finished = 0;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    /**
+     * A queued write.
+     */
+    public static final class Entry {
+        private final long seq;
+        private final long created;
+        private final String key;
+        private final String method;
+        private final String path;
+        @NotNull
+        private final JSONObject body;
+        private int attempts = 0;
+        private long notBefore = 0;
+        @Nullable
+        private String error = null;
+
+        Entry(long seq, long created, String key, String method, String path, @NotNull JSONObject body) {
+            this.seq = seq;
+            this.created = created;
+            this.key = key;
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+
+        /**
+         * @return sequence number assigned when the write was queued
+         */
+        public long getSequence() {
+            return seq;
+        }
+
+        /**
+         * @return time the write was queued, in milliseconds since the epoch
+         */
+        public long getCreated() {
+            return created;
+        }
+
+        /**
+         * @return key of the issue the write applies to
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return HTTP method of the write, or UPDATE for a field update that
+         * is serialised against the edit metadata when it is sent
+         */
+        public String getMethod() {
+            return method;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return number of failed attempts since the outbox was opened
+         */
+        public int getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * @return the last failure message, or null if the write has not failed
+         */
+        @Nullable
+        public String getLastError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + seq + " " + method + " " + path + (error != null ? ": " + error : "");
+        }
+    }
+
+    /**
+     * Used to chain fields to a queued update.
+     */
+    public final class Update {
+        private final String key;
+        @NotNull
+        private final JSONObject fields = new JSONObject();
+        @NotNull
+        private final JSONObject opers = new JSONObject();
+
+        private Update(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Appends a field to the update. Values are stored in the journal, so
+         * they should be strings, numbers, booleans, lists or maps.
+         *
+         * @param name Name of the field
+         * @param value New field value
+         *
+         * @return the current update instance
+         */
+        @NotNull
+        public Update field(String name, Object value) {
+            fields.put(name, value);
+            return this;
+        }
+
+        @NotNull
+        private Update fieldOperation(String oper, String name, Object value) {
+            if (!opers.containsKey(name))
+                opers.put(name, new JSONArray());
+
+            JSONObject op = new JSONObject();
+            op.put(oper, value);
+            ((JSONArray) opers.get(name)).add(op);
+            return this;
+        }
+
+        /**
+         *  Adds a field value to the existing value set.
+         *
+         *  @param name Name of the field
+         *  @param value Field value to append
+         *
+         *  @return the current update instance
+         */
+        @NotNull
+        public Update fieldAdd(String name, Object value) {
+            return fieldOperation("add", name, value);
+        }
+
+        /**
+         *  Removes a field value from the existing value set.
+         *
+         *  @param name Name of the field
+         *  @param value Field value to remove
+         *
+         *  @return the current update instance
+         */
+        @NotNull
+        public Update fieldRemove(String name, Object value) {
+            return fieldOperation("remove", name, value);
+        }
+
+        /**
+         * Queues the update. The edit metadata of the issue is retrieved when
+         * the update is sent.
+         *
+         * @return the sequence number of the queued write
+         *
+         * @throws JiraException when the journal cannot be written
+         */
+        public long enqueue() throws JiraException {
+            if (fields.size() == 0 && opers.size() == 0)
+                throw new JiraException("No fields were given for update");
+
+            JSONObject body = new JSONObject();
+            body.put("fields", fields);
+            body.put("update", opers);
+
+            return append(key, METHOD_UPDATE, Resource.getBaseUri() + "issue/" + key, body);
+        }
+
+        /**
+         * Serialises the update against the given edit metadata and queues it.
+         *
+         * @param editmeta Compiled edit metadata of the issue
+         *
+         * @return the sequence number of the queued write
+         *
+         * @throws JiraException when a field cannot be serialised or the
+         * journal cannot be written
+         */
+        public long enqueue(@NotNull Field.Schema editmeta) throws JiraException {
+            return append(key, METHOD_PUT, Resource.getBaseUri() + "issue/" + key,
+                Issue.buildUpdateRequest(editmeta, fields, toOperations(opers)));
+        }
+    }
+
+    /**
+     * Opens an outbox on the given journal file, loading any writes left over
+     * from a previous run.
+     *
+     * @param restclient REST client instance
+     * @param journal Journal file, created if missing
+     *
+     * @throws JiraException when the journal cannot be read or opened
+     */
+    public Outbox(@NotNull RestClient restclient, @NotNull File journal) throws JiraException {
+        this.restclient = restclient;
+        this.journal = journal;
+
+        try {
+            long valid = load();
+
+            if (journal.exists() && journal.length() > valid) {
+                /* drop a record torn by a crash mid-append */
+                RandomAccessFile raf = new RandomAccessFile(journal, "rw");
+                try {
+                    raf.setLength(valid);
+                } finally {
+                    raf.close();
+                }
+            }
+
+            openJournal(true);
+        } catch (IOException ex) {
+            throw new JiraException("Failed to open outbox journal " + journal, ex);
+        }
+    }
+
+    /**
+     * Sets the number of writes sent per replay.
+     *
+     * @param batchSize Writes per replay
+     *
+     * @return the current outbox
+     */
+    @NotNull
+    public Outbox batchSize(int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be positive");
+
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets the number of issues replayed at the same time.
+     *
+     * @param parallelism Concurrent requests
+     *
+     * @return the current outbox
+     */
+    @NotNull
+    public Outbox parallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the number of attempts before a write becomes a dead letter.
+     *
+     * @param maxAttempts Attempts per write
+     *
+     * @return the current outbox
+     */
+    @NotNull
+    public Outbox maxAttempts(int maxAttempts) {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("Attempts must be positive");
+
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * Queues a comment.
+     *
+     * @param key Issue key
+     * @param body Comment text
+     *
+     * @return the sequence number of the queued write
+     *
+     * @throws JiraException when the journal cannot be written
+     */
+    public long addComment(String key, String body) throws JiraException {
+        return addComment(key, body, null, null);
+    }
+
+    /**
+     * Queues a comment with limited visibility.
+     *
+     * @param key Issue key
+     * @param body Comment text
+     * @param visType Target audience type (role or group)
+     * @param visName Name of the role or group to limit visibility to
+     *
+     * @return the sequence number of the queued write
+     *
+     * @throws JiraException when the journal cannot be written
+     */
+    public long addComment(String key, String body, @Nullable String visType, @Nullable String visName)
+        throws JiraException {
+
+        JSONObject req = new JSONObject();
+        req.put("body", body);
+
+        if (visType != null && visName != null) {
+            JSONObject vis = new JSONObject();
+            vis.put("type", visType);
+            vis.put("value", visName);
+
+            req.put("visibility", vis);
+        }
+
+        return append(key, METHOD_POST, Resource.getBaseUri() + "issue/" + key + "/comment", req);
+    }
+
+    /**
+     * Queues a worklog.
+     *
+     * @param key Issue key
+     * @param comment Worklog comment
+     * @param startDate Start of the logged work
+     * @param timeSpentSeconds Time spent. This cannot be lower than 1 minute
+     *
+     * @return the sequence number of the queued write
+     *
+     * @throws JiraException when the journal cannot be written
+     */
+    public long addWorkLog(String key, @NotNull String comment, @NotNull DateTime startDate, long timeSpentSeconds)
+        throws JiraException {
+
+        if (timeSpentSeconds < 60)
+            throw new IllegalArgumentException("Time spent cannot be lower than 1 minute.");
+
+        JSONObject req = new JSONObject();
+        req.put("comment", comment);
+        req.put("started", DateTimeFormat.forPattern(Field.DATETIME_FORMAT).print(startDate.getMillis()));
+        req.put("timeSpent", WorklogUtils.formatDurationFromSeconds(timeSpentSeconds));
+
+        return append(key, METHOD_POST, Resource.getBaseUri() + "issue/" + key + "/worklog", req);
+    }
+
+    /**
+     * Begins a queued field update.
+     *
+     * @param key Issue key
+     *
+     * @return an update instance
+     */
+    @NotNull
+    public Update update(String key) {
+        return new Update(key);
+    }
+
+    /**
+     * @return number of writes not yet sent
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return age of the oldest write not yet sent in milliseconds, or zero
+     * when nothing is pending
+     */
+    public synchronized long getLagMillis() {
+        if (pending.isEmpty())
+            return 0;
+
+        return Math.max(0, System.currentTimeMillis() - pending.values().iterator().next().created);
+    }
+
+    /**
+     * @return the writes not yet sent, oldest first
+     */
+    @NotNull
+    public synchronized List<Entry> getPending() {
+        return new ArrayList<Entry>(pending.values());
+    }
+
+    /**
+     * @return the writes that were given up on, oldest first
+     */
+    @NotNull
+    public synchronized List<Entry> getDeadLetters() {
+        return new ArrayList<Entry>(dead.values());
+    }
+
+    /**
+     * Forgets the dead letters.
+     *
+     * @throws JiraException when the journal cannot be written
+     */
+    public synchronized void clearDeadLetters() throws JiraException {
+        for (Entry e : new ArrayList<Entry>(dead.values()))
+            finish(e, REC_DONE, null);
+    }
+
+    /**
+     * Starts replaying in the background.
+     *
+     * @param intervalMillis Delay between replays
+     */
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null)
+            return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(ConcurrencyUtils.newThreadFactory());
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    while (flush() >= batchSize)
+                        ;
+                    lastReplayError = null;
+                } catch (JiraException ex) {
+                    /* the journal is retried on the next run */
+                    lastReplayError = ex;
+                } catch (RuntimeException ex) {
+                    /* keep the schedule alive, an escaping exception would cancel it */
+                    lastReplayError = ex;
+                }
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the failure of the latest background replay, or null when it
+     * succeeded or none has run
+     */
+    @Nullable
+    public Exception getLastReplayError() {
+        return lastReplayError;
+    }
+
+    /**
+     * Sends one batch of due writes.
+     *
+     * @return number of writes that were sent or given up on
+     *
+     * @throws JiraException when the outbox is closed or the journal cannot
+     * be written
+     */
+    public int flush() throws JiraException {
+        synchronized (replayLock) {
+            /* writes sent now could not be marked done and would be sent again */
+            synchronized (this) {
+                if (out == null)
+                    throw new JiraException("Outbox is closed");
+            }
+
+            List<List<Entry>> lanes = takeBatch();
+            List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>(lanes.size());
+
+            for (final List<Entry> lane : lanes) {
+                tasks.add(new Callable<Integer>() {
+                    public Integer call() throws JiraException {
+                        return replay(lane);
+                    }
+                });
+            }
+
+            int done = 0;
+
+            try {
+                for (Integer n : ConcurrencyUtils.invokeAll(tasks, parallelism))
+                    done += n;
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof JiraException)
+                    throw (JiraException) ex.getCause();
+
+                throw new JiraException("Failed to replay outbox", ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new JiraException("Interrupted while replaying outbox", ex);
+            }
+
+            compact();
+            return done;
+        }
+    }
+
+    /**
+     * Stops background replay, waits for a running replay and closes the
+     * journal. Pending writes stay in the journal for the next time it is
+     * opened.
+     *
+     * @throws JiraException when the journal cannot be closed
+     */
+    public void close() throws JiraException {
+        ScheduledExecutorService s;
+
+        synchronized (this) {
+            s = scheduler;
+            scheduler = null;
+        }
+
+        if (s != null) {
+            s.shutdown();
+
+            try {
+                s.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (replayLock) {
+            synchronized (this) {
+                try {
+                    if (out != null)
+                        out.close();
+                } catch (IOException ex) {
+                    throw new JiraException("Failed to close outbox journal " + journal, ex);
+                } finally {
+                    out = null;
+                    fos = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Picks up to one batch of due writes, grouped per issue in queue order.
+     * An issue whose oldest write is backing off is skipped entirely.
+     */
+    @NotNull
+    private synchronized List<List<Entry>> takeBatch() {
+        long now = System.currentTimeMillis();
+        Map<String, List<Entry>> lanes = new LinkedHashMap<String, List<Entry>>();
+        Set<String> blocked = new HashSet<String>();
+        int taken = 0;
+
+        for (Entry e : pending.values()) {
+            if (taken >= batchSize)
+                break;
+            if (blocked.contains(e.key))
+                continue;
+
+            if (e.notBefore > now) {
+                blocked.add(e.key);
+                continue;
+            }
+
+            List<Entry> lane = lanes.get(e.key);
+            if (lane == null) {
+                lane = new ArrayList<Entry>();
+                lanes.put(e.key, lane);
+            }
+
+            lane.add(e);
+            taken++;
+        }
+
+        return new ArrayList<List<Entry>>(lanes.values());
+    }
+
+    private int replay(@NotNull List<Entry> lane) throws JiraException {
+        int done = 0;
+
+        for (Entry e : lane) {
+            try {
+                send(e);
+                finish(e, REC_DONE, null);
+                done++;
+            } catch (Exception ex) {
+                String error = ex.getMessage() != null ? ex.getMessage() : ex.toString();
+
+                synchronized (this) {
+                    e.attempts++;
+                    e.error = error;
+                    e.notBefore = System.currentTimeMillis() +
+                        Math.min(MAX_BACKOFF, BASE_BACKOFF << Math.min(e.attempts - 1, 16));
+                }
+
+                if (!isRetryable(ex) || e.attempts >= maxAttempts) {
+                    finish(e, REC_DEAD, error);
+                    done++;
+                    continue;
+                }
+
+                /* keep the rest of this issue's writes behind the failed one */
+                break;
+            }
+        }
+
+        return done;
+    }
+
+    private void send(@NotNull Entry e) throws Exception {
+        if (METHOD_POST.equals(e.method)) {
+            restclient.post(e.path, e.body);
+        } else if (METHOD_PUT.equals(e.method)) {
+            restclient.put(e.path, e.body);
+        } else if (METHOD_UPDATE.equals(e.method)) {
+            Map<String, Object> fields = new HashMap<String, Object>();
+            Object f = e.body.get("fields");
+
+            if (f instanceof JSONObject) {
+                for (Object k : ((JSONObject) f).keySet())
+                    fields.put(k.toString(), ((JSONObject) f).get(k));
+            }
+
+            Object u = e.body.get("update");
+            Map<String, List> opers = toOperations(u instanceof JSONObject ? (JSONObject) u : new JSONObject());
+
+            Field.Schema editmeta = Issue.getEditSchema(restclient, e.key);
+            restclient.put(e.path, Issue.buildUpdateRequest(editmeta, fields, opers));
+        } else {
+            throw new JiraException("Unknown outbox method " + e.method);
+        }
+    }
+
+    @NotNull
+    private static Map<String, List> toOperations(@NotNull JSONObject opers) {
+        Map<String, List> result = new HashMap<String, List>();
+
+        for (Object name : opers.keySet()) {
+            List<Field.Operation> list = new ArrayList<Field.Operation>();
+
+            for (Object o : (List) opers.get(name)) {
+                Map op = (Map) o;
+                for (Object oper : op.keySet())
+                    list.add(new Field.Operation(oper.toString(), op.get(oper)));
+            }
+
+            result.put(name.toString(), list);
+        }
+
+        return result;
+    }
+
+    /**
+     * Server errors, throttling and network failures are worth retrying;
+     * other client errors are not.
+     */
+    static boolean isRetryable(@NotNull Throwable ex) {
+        Throwable cause = ex;
+
+        while (cause != null) {
+            if (cause instanceof RestException) {
+                int status = ((RestException) cause).getHttpStatusCode();
+                return status >= 500 || status == 408 || status == 429;
+            }
+
+            if (cause instanceof IOException)
+                return true;
+
+            cause = cause.getCause();
+        }
+
+        return false;
+    }
+
+    private synchronized long append(String key, String method, String path, @NotNull JSONObject body)
+        throws JiraException {
+
+        Entry e = new Entry(nextSeq, System.currentTimeMillis(), key, method, path, body);
+
+        try {
+            writeRecord(REC_WRITE, e, null);
+            sync();
+        } catch (IOException ex) {
+            throw new JiraException("Failed to write outbox journal " + journal, ex);
+        }
+
+        nextSeq++;
+        pending.put(e.seq, e);
+        return e.seq;
+    }
+
+    private synchronized void finish(@NotNull Entry e, int type, @Nullable String error) throws JiraException {
+        try {
+            writeRecord(type, e, error);
+            sync();
+        } catch (IOException ex) {
+            throw new JiraException("Failed to write outbox journal " + journal, ex);
+        }
+
+        pending.remove(e.seq);
+
+        if (type == REC_DEAD)
+            dead.put(e.seq, e);
+        else
+            dead.remove(e.seq);
+
+        finished++;
+    }
+
+    /**
+     * Rewrites the journal with only the live records once enough finished
+     * ones have piled up.
+     */
+    private synchronized void compact() throws JiraException {
+        if (out == null)
+            return;
+
+        if (finished < COMPACT_THRESHOLD && !(pending.isEmpty() && dead.isEmpty() && finished > 0))
+            return;
+
+        File tmp = new File(journal.getPath() + ".tmp");
+        File old = new File(journal.getPath() + ".old");
+        IOException failure = null;
+
+        try {
+            out.close();
+
+            FileOutputStream tmpFos = new FileOutputStream(tmp);
+            DataOutputStream tmpOut = new DataOutputStream(new BufferedOutputStream(tmpFos));
+            try {
+                for (Entry e : pending.values())
+                    writeRecord(tmpOut, REC_WRITE, e, null);
+
+                for (Entry e : dead.values()) {
+                    writeRecord(tmpOut, REC_WRITE, e, null);
+                    writeRecord(tmpOut, REC_DEAD, e, e.error);
+                }
+
+                tmpOut.flush();
+                tmpFos.getFD().sync();
+            } finally {
+                tmpOut.close();
+            }
+
+            /* rename replaces the journal atomically on POSIX; elsewhere move it aside first */
+            if (!tmp.renameTo(journal)) {
+                if (!journal.renameTo(old))
+                    throw new IOException("Failed to move " + journal + " to " + old);
+
+                if (!tmp.renameTo(journal))
+                    throw new IOException("Failed to replace " + journal + " with " + tmp);
+
+                old.delete();
+            }
+
+            finished = 0;
+        } catch (IOException ex) {
+            failure = ex;
+            recover();
+        }
+
+        try {
+            openJournal(true);
+        } catch (IOException ex) {
+            if (failure == null)
+                failure = ex;
+        }
+
+        if (failure != null)
+            throw new JiraException("Failed to compact outbox journal " + journal, failure);
+    }
+
+    /**
+     * Finishes or rolls back a compaction that was cut short. The new journal
+     * is synced before the old one is moved aside, so it is complete whenever
+     * the journal itself is missing. Otherwise the journal is still the one
+     * in use and the leftovers are discarded.
+     */
+    private void recover() {
+        File tmp = new File(journal.getPath() + ".tmp");
+        File old = new File(journal.getPath() + ".old");
+
+        if (!journal.exists()) {
+            if (tmp.exists())
+                tmp.renameTo(journal);
+            else if (old.exists())
+                old.renameTo(journal);
+        }
+
+        if (journal.exists()) {
+            tmp.delete();
+            old.delete();
+        }
+    }
+
+    private void openJournal(boolean append) throws IOException {
+        fos = new FileOutputStream(journal, append);
+        out = new DataOutputStream(new BufferedOutputStream(fos));
+    }
+
+    private void sync() throws IOException {
+        out.flush();
+        fos.getFD().sync();
+    }
+
+    private void writeRecord(int type, @NotNull Entry e, @Nullable String error) throws IOException {
+        if (out == null)
+            throw new IOException("Outbox is closed");
+
+        writeRecord(out, type, e, error);
+    }
+
+    /**
+     * Writes a record as its length, the record bytes and a CRC-32 of the
+     * bytes, so a record torn by a crash is detected on load.
+     */
+    private static void writeRecord(@NotNull DataOutputStream target, int type, @NotNull Entry e,
+                                    @Nullable String error) throws IOException {
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        SnapshotCodec.Writer w = new SnapshotCodec.Writer(bos);
+
+        w.out.writeByte(type);
+        w.writeVarLong(e.seq);
+
+        if (type == REC_WRITE) {
+            w.writeVarLong(e.created);
+            w.writeString(e.key);
+            w.writeString(e.method);
+            w.writeString(e.path);
+            w.writeValue(e.body);
+        } else if (type == REC_DEAD) {
+            w.writeString(error);
+        }
+
+        w.out.flush();
+        byte[] data = bos.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        target.writeInt(data.length);
+        target.write(data);
+        target.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Reads the journal into the pending and dead maps.
+     *
+     * @return length of the valid part of the journal
+     */
+    private long load() throws IOException {
+        recover();
+
+        if (!journal.exists())
+            return 0;
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)));
+        Map<Long, Entry> written = new LinkedHashMap<Long, Entry>();
+        long valid = 0;
+
+        try {
+            while (true) {
+                int length;
+
+                try {
+                    length = in.readInt();
+                } catch (EOFException ex) {
+                    break;
+                }
+
+                if (length < 0 || valid + 8 + length > journal.length())
+                    break;
+
+                byte[] data = new byte[length];
+                in.readFully(data);
+
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                if (in.readInt() != (int) crc.getValue())
+                    break;
+
+                valid += 8 + length;
+
+                SnapshotCodec.Reader r = new SnapshotCodec.Reader(new ByteArrayInputStream(data));
+                int type = r.in.readUnsignedByte();
+                long seq = r.readVarLong();
+                nextSeq = Math.max(nextSeq, seq + 1);
+
+                if (type == REC_WRITE) {
+                    long created = r.readVarLong();
+                    String key = r.readString();
+                    String method = r.readString();
+                    String path = r.readString();
+                    Object body = r.readValue();
+
+                    written.put(seq, new Entry(seq, created, key, method, path,
+                        body instanceof JSONObject ? (JSONObject) body : new JSONObject()));
+                } else {
+                    Entry e = written.remove(seq);
+                    finished++;
+
+                    if (type == REC_DEAD && e != null) {
+                        e.error = r.readString();
+                        dead.put(seq, e);
+                    } else if (type == REC_DONE) {
+                        dead.remove(seq);
+                    }
+                }
+            }
+        } finally {
+            in.close();
+        }
+
+        pending.putAll(written);
+        return valid;
+    }
+}
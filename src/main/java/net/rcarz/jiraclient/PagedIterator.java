@@ -0,0 +1,177 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.utils.ConcurrencyUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Iterates over a paginated resource, requesting the next page once the
+ * current one is used up.
+ *
+ * With prefetch on, the request for the next page is started on the shared
+ * executor of {@link ConcurrencyUtils} as soon as the current page arrives,
+ * so the caller rarely waits on the network while working through a page.
+ * Failures surface from {@link #hasNext()} as a RuntimeException wrapping
+ * the JiraException, like the search iterator.
+ */
+abstract class PagedIterator<T> implements Iterator<T> {
+
+    /**
+     * One page of a paginated resource.
+     */
+    static final class Page<T> {
+        final int startAt;
+        final int total;
+        final boolean last;
+        @NotNull
+        final List<T> values;
+
+        /**
+         * @param startAt Offset of the first value
+         * @param total Total number of values, or -1 when unknown
+         * @param last Whether the server flagged this as the last page
+         * @param values Values in the page
+         */
+        Page(int startAt, int total, boolean last, @NotNull List<T> values) {
+            this.startAt = startAt;
+            this.total = total;
+            this.last = last;
+            this.values = values;
+        }
+    }
+
+    private final boolean prefetch;
+    @Nullable
+    private Iterator<T> current = null;
+    @Nullable
+    private FutureTask<Page<T>> pending = null;
+    private int nextStart;
+    private int total = -1;
+    private boolean exhausted = false;
+
+    PagedIterator(int startAt, boolean prefetch) {
+        this.nextStart = startAt;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Fetches the page starting at the given offset.
+     *
+     * @param startAt Offset of the first value
+     *
+     * @return the page
+     *
+     * @throws JiraException when the page cannot be retrieved
+     */
+    @NotNull
+    abstract Page<T> fetch(int startAt) throws JiraException;
+
+    /**
+     * @return the total reported by the last page, or -1 before the first
+     *         page or when the resource does not report it
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (current == null || !current.hasNext()) {
+            if (exhausted)
+                return false;
+
+            Page<T> page;
+
+            try {
+                page = take();
+            } catch (JiraException ex) {
+                exhausted = true;
+                throw new RuntimeException(ex);
+            }
+
+            current = page.values.iterator();
+            total = page.total;
+            nextStart = page.startAt + page.values.size();
+            exhausted = page.last || page.values.isEmpty() || (total >= 0 && nextStart >= total);
+
+            if (!exhausted && prefetch)
+                pending = start(nextStart);
+        }
+
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        return current.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Method remove() not support for class " +
+                                                this.getClass().getName());
+    }
+
+    @NotNull
+    private Page<T> take() throws JiraException {
+        FutureTask<Page<T>> task = pending;
+        pending = null;
+
+        if (task == null)
+            return fetch(nextStart);
+
+        try {
+            return task.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof JiraException)
+                throw (JiraException) ex.getCause();
+
+            throw new JiraException("Failed to retrieve page at " + nextStart, ex.getCause());
+        } catch (InterruptedException ex) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while retrieving page at " + nextStart, ex);
+        }
+    }
+
+    @NotNull
+    private FutureTask<Page<T>> start(final int startAt) {
+        FutureTask<Page<T>> task = new FutureTask<Page<T>>(new Callable<Page<T>>() {
+            public Page<T> call() throws JiraException {
+                return fetch(startAt);
+            }
+        });
+
+        ConcurrencyUtils.sharedExecutor().execute(task);
+        return task;
+    }
+}
@@ -0,0 +1,311 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.utils.ConcurrencyUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.util.EntityUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Downloads a file in segments using HTTP range requests.
+ *
+ * The target file is sized up front and each segment writes straight to its
+ * own region. Progress is kept in a sidecar file next to the target, so an
+ * interrupted download picks up where each segment left off.
+ */
+final class RangedDownload {
+
+    /**
+     * Files smaller than this are not worth splitting.
+     */
+    static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+
+    /**
+     * Segment progress is persisted every this many bytes.
+     */
+    static final long CHECKPOINT_INTERVAL = 1024 * 1024;
+
+    private static final int MAGIC = 0x4A435244; /* "JCRD" */
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 24;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @NotNull
+    private final RestClient restclient;
+    @NotNull
+    private final String url;
+    @NotNull
+    private final File file;
+    @NotNull
+    private final File progress;
+
+    RangedDownload(@NotNull RestClient restclient, @NotNull String url, @NotNull File file) {
+        this.restclient = restclient;
+        this.url = url;
+        this.file = file;
+        this.progress = getProgressFile(file);
+    }
+
+    /**
+     * @return the sidecar file that tracks the progress of a download
+     */
+    @NotNull
+    static File getProgressFile(@NotNull File file) {
+        return new File(file.getPath() + ".progress");
+    }
+
+    /**
+     * Asks the server for the content length and whether it accepts byte
+     * ranges.
+     *
+     * @return the content length, or -1 when ranges are not supported
+     */
+    long probe() throws RestException, IOException {
+        HttpResponse resp = restclient.execute(new HttpHead(url));
+        EntityUtils.consumeQuietly(resp.getEntity());
+
+        Header ranges = resp.getFirstHeader("Accept-Ranges");
+        Header length = resp.getFirstHeader("Content-Length");
+
+        if (ranges == null || !"bytes".equalsIgnoreCase(ranges.getValue().trim()) || length == null)
+            return -1;
+
+        try {
+            return Long.parseLong(length.getValue().trim());
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Downloads the file with up to the given number of concurrent segments,
+     * resuming from the sidecar file when it matches.
+     *
+     * @param length Content length reported by {@link #probe()}
+     * @param segments Number of segments
+     */
+    void run(long length, int segments) throws JiraException {
+        RandomAccessFile data = null;
+        RandomAccessFile meta = null;
+
+        try {
+            data = new RandomAccessFile(file, "rw");
+            meta = new RandomAccessFile(progress, "rw");
+
+            final FileChannel dataChannel = data.getChannel();
+            final FileChannel metaChannel = meta.getChannel();
+            long[][] slots = readProgress(metaChannel, length);
+
+            if (slots == null || data.length() != length) {
+                slots = plan(length, segments);
+                data.setLength(length);
+                writeProgress(metaChannel, length, slots);
+            }
+
+            final long[][] plan = slots;
+            List<Callable<Exception>> tasks = new ArrayList<Callable<Exception>>();
+
+            for (int i = 0; i < plan.length; i++) {
+                final int slot = i;
+                if (plan[i][2] >= plan[i][1])
+                    continue;
+
+                /* a failed segment must not interrupt the others, so they
+                   all get as far as they can before the next resume */
+                tasks.add(new Callable<Exception>() {
+                    public Exception call() {
+                        try {
+                            fetch(slot, plan[slot], dataChannel, metaChannel);
+                            return null;
+                        } catch (Exception ex) {
+                            return ex;
+                        }
+                    }
+                });
+            }
+
+            for (Exception ex : ConcurrencyUtils.invokeAll(tasks, plan.length)) {
+                if (ex != null)
+                    throw new JiraException("Failed downloading attachment from " + url + " to " + file, ex);
+            }
+
+            dataChannel.force(false);
+        } catch (ExecutionException ex) {
+            throw new JiraException("Failed downloading attachment from " + url + " to " + file, ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted downloading attachment from " + url, ex);
+        } catch (IOException ex) {
+            throw new JiraException("Failed downloading attachment from " + url + " to " + file, ex);
+        } finally {
+            Attachment.closeQuietly(data);
+            Attachment.closeQuietly(meta);
+        }
+
+        progress.delete();
+    }
+
+    /**
+     * Splits the content into segments of at least {@link #MIN_SEGMENT_SIZE}
+     * bytes. Each slot holds the start, the end (exclusive) and the next
+     * position to fetch.
+     */
+    @NotNull
+    static long[][] plan(long length, int segments) {
+        int count = (int) Math.max(1, Math.min(segments, length / MIN_SEGMENT_SIZE));
+        long size = (length + count - 1) / count;
+        long[][] slots = new long[count][3];
+
+        for (int i = 0; i < count; i++) {
+            slots[i][0] = Math.min(length, i * size);
+            slots[i][1] = Math.min(length, (i + 1) * size);
+            slots[i][2] = slots[i][0];
+        }
+
+        return slots;
+    }
+
+    private void fetch(int slot, @NotNull long[] range, @NotNull FileChannel dataChannel,
+                       @NotNull FileChannel metaChannel) throws RestException, IOException {
+
+        HttpGet get = new HttpGet(url);
+        get.addHeader("Range", "bytes=" + range[2] + "-" + (range[1] - 1));
+
+        HttpResponse resp = restclient.execute(get);
+        HttpEntity entity = resp.getEntity();
+
+        if (resp.getStatusLine().getStatusCode() != 206 || entity == null) {
+            EntityUtils.consumeQuietly(entity);
+            throw new IOException("Server ignored range request for " + url);
+        }
+
+        InputStream in = entity.getContent();
+
+        try {
+            byte[] buf = new byte[BUFFER_SIZE];
+            long checkpoint = range[2];
+            int n;
+
+            while (range[2] < range[1] && (n = in.read(buf, 0, (int) Math.min(buf.length, range[1] - range[2]))) != -1) {
+                ByteBuffer bb = ByteBuffer.wrap(buf, 0, n);
+                while (bb.hasRemaining())
+                    range[2] += dataChannel.write(bb, range[2]);
+
+                if (range[2] - checkpoint >= CHECKPOINT_INTERVAL) {
+                    dataChannel.force(false);
+                    writeSlot(metaChannel, slot, range[2]);
+                    checkpoint = range[2];
+                }
+            }
+
+            if (range[2] < range[1])
+                throw new IOException("Segment ended early at byte " + range[2] + " of " + url);
+
+            dataChannel.force(false);
+            writeSlot(metaChannel, slot, range[2]);
+        } finally {
+            Attachment.closeQuietly(in);
+        }
+    }
+
+    private static void writeProgress(@NotNull FileChannel channel, long length, @NotNull long[][] slots)
+        throws IOException {
+
+        ByteBuffer bb = ByteBuffer.allocate(HEADER_SIZE + slots.length * SLOT_SIZE);
+        bb.putInt(MAGIC).putLong(length).putInt(slots.length);
+
+        for (long[] slot : slots)
+            bb.putLong(slot[0]).putLong(slot[1]).putLong(slot[2]);
+
+        bb.flip();
+        channel.truncate(0);
+        while (bb.hasRemaining())
+            channel.write(bb, bb.position());
+        channel.force(false);
+    }
+
+    private static void writeSlot(@NotNull FileChannel channel, int slot, long next) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(8);
+        bb.putLong(next).flip();
+
+        long position = HEADER_SIZE + slot * SLOT_SIZE + 16;
+        while (bb.hasRemaining())
+            channel.write(bb, position + bb.position());
+        channel.force(false);
+    }
+
+    /**
+     * Reads the sidecar file.
+     *
+     * @return the saved slots, or null when the file is missing, damaged or
+     * belongs to content of another length
+     */
+    @Nullable
+    private static long[][] readProgress(@NotNull FileChannel channel, long length) throws IOException {
+        if (channel.size() < HEADER_SIZE)
+            return null;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0)
+            ;
+        header.flip();
+
+        if (header.getInt() != MAGIC || header.getLong() != length)
+            return null;
+
+        int count = header.getInt();
+        if (count < 1 || channel.size() != HEADER_SIZE + (long) count * SLOT_SIZE)
+            return null;
+
+        ByteBuffer body = ByteBuffer.allocate(count * SLOT_SIZE);
+        while (body.hasRemaining() && channel.read(body, HEADER_SIZE + body.position()) > 0)
+            ;
+        body.flip();
+
+        long[][] slots = new long[count][3];
+        for (int i = 0; i < count; i++) {
+            slots[i][0] = body.getLong();
+            slots[i][1] = body.getLong();
+            slots[i][2] = body.getLong();
+
+            if (slots[i][0] < 0 || slots[i][1] > length || slots[i][2] < slots[i][0] || slots[i][2] > slots[i][1])
+                return null;
+        }
+
+        return slots;
+    }
+}
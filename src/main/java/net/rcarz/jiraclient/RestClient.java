@@ -28,7 +28,9 @@ import org.apache.http.client.methods.*;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.entity.mime.MultipartEntity;
+import org.apache.http.entity.mime.content.AbstractContentBody;
 import org.apache.http.entity.mime.content.ByteArrayBody;
+import org.apache.http.entity.mime.content.ContentBody;
 import org.apache.http.entity.mime.content.FileBody;
 import org.apache.http.entity.mime.content.InputStreamBody;
 import org.apache.http.util.EntityUtils;
@@ -51,6 +53,8 @@ public class RestClient {
     private ICredentials creds = null;
     @Nullable
     private URI uri = null;
+    @Nullable
+    private volatile AttachmentCache attachmentCache = null;
 
     /**
      * Creates a REST client instance with a URI.
@@ -162,6 +166,34 @@ public class RestClient {
         return result.length() > 0 ? JSONSerializer.toJSON(result.toString()): null;
     }
 
+    /**
+     * Executes a request and hands back the response with its entity still
+     * open, for content that is streamed rather than parsed as JSON. The
+     * caller must consume or close the entity.
+     *
+     * @param req Request to execute
+     *
+     * @return the HTTP response
+     *
+     * @throws RestException when an HTTP-level error occurs
+     * @throws IOException when the request fails
+     */
+    @NotNull
+    HttpResponse execute(@NotNull HttpRequestBase req) throws RestException, IOException {
+        if (creds != null)
+            creds.authenticate(req);
+
+        HttpResponse resp = httpClient.execute(req);
+        StatusLine sl = resp.getStatusLine();
+
+        if (sl.getStatusCode() >= 300) {
+            String result = resp.getEntity() != null ? EntityUtils.toString(resp.getEntity()) : "";
+            throw new RestException(sl.getReasonPhrase(), sl.getStatusCode(), result, resp.getAllHeaders());
+        }
+
+        return resp;
+    }
+
     @Nullable
     private JSON request(@NotNull HttpEntityEnclosingRequestBase req, @Nullable String payload)
         throws RestException, IOException {
@@ -201,23 +233,8 @@ public class RestClient {
         if (attachments != null) {
             req.setHeader("X-Atlassian-Token", "nocheck");
             MultipartEntity ent = new MultipartEntity();
-            for(Issue.NewAttachment attachment : attachments) {
-                String filename = attachment.getFilename();
-                Object content = attachment.getContent();
-                if (content instanceof byte[]) {
-                    ent.addPart("file", new ByteArrayBody((byte[]) content, filename));
-                } else if (content instanceof InputStream) {
-                    ent.addPart("file", new InputStreamBody((InputStream) content, filename));
-                } else if (content instanceof File) {
-                    ent.addPart("file", new FileBody((File) content, filename));
-                } else if (content == null) {
-                    throw new IllegalArgumentException("Missing content for the file " + filename);
-                } else {
-                    throw new IllegalArgumentException(
-                        "Expected file type byte[], java.io.InputStream or java.io.File but provided " +
-                            content.getClass().getName() + " for the file " + filename);
-                }
-            }
+            for (Issue.NewAttachment attachment : attachments)
+                ent.addPart("file", createBody(attachment));
             req.setEntity(ent);
         }
         return request(req);
@@ -230,6 +247,97 @@ public class RestClient {
         return request(req, payload != null ? payload.toString() : null);
     }
 
+    /**
+     * Creates the multipart body of an attachment, declaring the length of
+     * the content and reporting progress when the attachment has a listener.
+     *
+     * @param attachment Attachment to upload
+     *
+     * @return the content body
+     */
+    @NotNull
+    static ContentBody createBody(@NotNull final Issue.NewAttachment attachment) {
+        String filename = attachment.getFilename();
+        Object content = attachment.getContent();
+        ContentBody body;
+        if (content instanceof byte[]) {
+            body = new ByteArrayBody((byte[]) content, filename);
+        } else if (content instanceof InputStream) {
+            body = new InputStreamBody((InputStream) content, filename) {
+                @Override
+                public long getContentLength() {
+                    return attachment.getLength();
+                }
+            };
+        } else if (content instanceof File) {
+            body = new FileBody((File) content, filename);
+        } else if (content == null) {
+            throw new IllegalArgumentException("Missing content for the file " + filename);
+        } else {
+            throw new IllegalArgumentException(
+                "Expected file type byte[], java.io.InputStream or java.io.File but provided " +
+                    content.getClass().getName() + " for the file " + filename);
+        }
+        if (attachment.getProgressListener() != null)
+            body = new ProgressBody(body, attachment);
+        return body;
+    }
+
+    /**
+     * Multipart body that reports the bytes written to an attachment's
+     * progress listener.
+     */
+    private static final class ProgressBody extends AbstractContentBody {
+        @NotNull
+        private final ContentBody body;
+        @NotNull
+        private final Issue.NewAttachment attachment;
+
+        ProgressBody(@NotNull ContentBody body, @NotNull Issue.NewAttachment attachment) {
+            super(body.getMimeType());
+            this.body = body;
+            this.attachment = attachment;
+        }
+
+        public String getFilename() {
+            return body.getFilename();
+        }
+
+        public String getCharset() {
+            return body.getCharset();
+        }
+
+        public String getTransferEncoding() {
+            return body.getTransferEncoding();
+        }
+
+        public long getContentLength() {
+            return body.getContentLength();
+        }
+
+        public void writeTo(final OutputStream out) throws IOException {
+            final long total = body.getContentLength();
+            final Issue.NewAttachment.ProgressListener listener = attachment.getProgressListener();
+
+            body.writeTo(new FilterOutputStream(out) {
+                private long sent = 0;
+
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    listener.progress(attachment, ++sent, total);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    sent += len;
+                    listener.progress(attachment, sent, total);
+                }
+            });
+        }
+    }
+
     /**
      * Executes an HTTP DELETE with the given URI.
      *
@@ -457,6 +565,25 @@ public class RestClient {
         return put(buildURI(path), payload);
     }
     
+    /**
+     * Gets the cache attachment downloads go through.
+     *
+     * @return the attachment cache, or null when downloads are not cached
+     */
+    @Nullable
+    public AttachmentCache getAttachmentCache() {
+        return attachmentCache;
+    }
+
+    /**
+     * Sets the cache attachment downloads go through.
+     *
+     * @param attachmentCache Attachment cache, or null to stop caching
+     */
+    public void setAttachmentCache(@Nullable AttachmentCache attachmentCache) {
+        this.attachmentCache = attachmentCache;
+    }
+
     /**
      * Exposes the http client.
      *
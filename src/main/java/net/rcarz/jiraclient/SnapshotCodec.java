@@ -0,0 +1,445 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONNull;
+import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Compact, versioned binary encoding for issues and their nested resources.
+ *
+ * Snapshots are meant for local caches and on-disk storage between runs.
+ * Typed properties are written and read directly without going through
+ * json-lib. The raw field map returned by {@link Issue#getField(String)} is
+ * kept packed and only turned back into JSON objects on first access.
+ *
+ * Strings are written once per stream and referenced by index afterwards, so
+ * repeated user names, status names and field keys cost a few bytes each.
+ * New strings are stored as a length-prefixed UTF-8 byte sequence of any
+ * size.
+ */
+public final class SnapshotCodec {
+
+    /**
+     * Current snapshot format version.
+     */
+    public static final int VERSION = 2;
+
+    private static final int MAGIC = 0x4A435331; /* "JCS1" */
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_TRUE = 1;
+    private static final int TAG_FALSE = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_LONG = 4;
+    private static final int TAG_DOUBLE = 5;
+    private static final int TAG_STRING = 6;
+    private static final int TAG_OBJECT = 7;
+    private static final int TAG_ARRAY = 8;
+
+    private SnapshotCodec() { }
+
+    /**
+     * Encodes an issue.
+     *
+     * @param issue Issue to encode
+     *
+     * @return the encoded snapshot
+     *
+     * @throws JiraException when encoding fails
+     */
+    @NotNull
+    public static byte[] encode(@NotNull Issue issue) throws JiraException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        encode(Collections.singletonList(issue), bos);
+        return bos.toByteArray();
+    }
+
+    /**
+     * Encodes a list of issues to the given stream. The stream is flushed but
+     * not closed.
+     *
+     * @param issues Issues to encode
+     * @param out Target stream
+     *
+     * @throws JiraException when encoding fails
+     */
+    public static void encode(@NotNull List<Issue> issues, @NotNull OutputStream out) throws JiraException {
+        try {
+            Writer w = new Writer(new BufferedOutputStream(out));
+            w.out.writeInt(MAGIC);
+            w.out.writeByte(VERSION);
+            w.writeVarInt(issues.size());
+
+            for (Issue issue : issues)
+                issue.writeSnapshot(w);
+
+            w.out.flush();
+        } catch (IOException ex) {
+            throw new JiraException("Failed to encode issue snapshot", ex);
+        }
+    }
+
+    /**
+     * Decodes a single issue.
+     *
+     * @param restclient REST client instance to attach to the decoded issue
+     * @param data Encoded snapshot
+     *
+     * @return the decoded issue
+     *
+     * @throws JiraException when the snapshot is malformed or of an unknown version
+     */
+    @NotNull
+    public static Issue decode(RestClient restclient, @NotNull byte[] data) throws JiraException {
+        List<Issue> issues = decode(restclient, new ByteArrayInputStream(data));
+
+        if (issues.size() != 1)
+            throw new JiraException("Snapshot contains " + issues.size() + " issues, expected 1");
+
+        return issues.get(0);
+    }
+
+    /**
+     * Decodes a list of issues from the given stream. The stream is not
+     * closed.
+     *
+     * @param restclient REST client instance to attach to the decoded issues
+     * @param in Source stream
+     *
+     * @return the decoded issues
+     *
+     * @throws JiraException when the snapshot is malformed or of an unknown version
+     */
+    @NotNull
+    public static List<Issue> decode(RestClient restclient, @NotNull InputStream in) throws JiraException {
+        try {
+            Reader r = new Reader(new BufferedInputStream(in));
+
+            if (r.in.readInt() != MAGIC)
+                throw new JiraException("Not an issue snapshot");
+
+            int version = r.in.readUnsignedByte();
+            if (version != VERSION)
+                throw new JiraException("Unsupported snapshot version " + version);
+
+            int count = r.readVarInt();
+            List<Issue> issues = new ArrayList<Issue>(count);
+
+            for (int i = 0; i < count; i++)
+                issues.add(Issue.read(restclient, r));
+
+            return issues;
+        } catch (IOException ex) {
+            throw new JiraException("Failed to decode issue snapshot", ex);
+        }
+    }
+
+    /**
+     * Packs a raw JSON value into a self-contained byte array.
+     */
+    @NotNull
+    static byte[] pack(@Nullable Object value) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        Writer w = new Writer(bos);
+        w.writeValue(value);
+        w.out.flush();
+        return bos.toByteArray();
+    }
+
+    /**
+     * Unpacks a byte array created by {@link #pack(Object)}.
+     */
+    @Nullable
+    static Object unpack(@NotNull byte[] data) throws IOException {
+        return new Reader(new ByteArrayInputStream(data)).readValue();
+    }
+
+    /**
+     * Snapshot output with string interning and variable-length integers.
+     */
+    static final class Writer {
+        @NotNull
+        final DataOutputStream out;
+        @NotNull
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        Writer(@NotNull OutputStream out) {
+            this.out = new DataOutputStream(out);
+        }
+
+        void writeVarInt(int v) throws IOException {
+            writeVarLong(v & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long v) throws IOException {
+            while ((v & ~0x7FL) != 0) {
+                out.writeByte((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            out.writeByte((int) v);
+        }
+
+        void writeSignedLong(long v) throws IOException {
+            writeVarLong((v << 1) ^ (v >> 63));
+        }
+
+        void writeBoolean(boolean b) throws IOException {
+            out.writeBoolean(b);
+        }
+
+        void writeString(@Nullable String s) throws IOException {
+            if (s == null) {
+                writeVarInt(0);
+                return;
+            }
+
+            Integer ref = strings.get(s);
+            if (ref != null) {
+                writeVarInt(ref + 2);
+            } else {
+                strings.put(s, strings.size());
+                byte[] bytes = s.getBytes(UTF8);
+                writeVarInt(1);
+                writeVarInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        void writeDate(@Nullable Date d) throws IOException {
+            out.writeBoolean(d != null);
+            if (d != null)
+                writeSignedLong(d.getTime());
+        }
+
+        void writeStrings(@Nullable List<String> list) throws IOException {
+            if (list == null) {
+                writeVarInt(0);
+                return;
+            }
+
+            writeVarInt(list.size() + 1);
+            for (String s : list)
+                writeString(s);
+        }
+
+        void writeStringMap(@Nullable Map<String, String> map) throws IOException {
+            if (map == null) {
+                writeVarInt(0);
+                return;
+            }
+
+            writeVarInt(map.size() + 1);
+            for (Map.Entry<String, String> ent : map.entrySet()) {
+                writeString(ent.getKey());
+                writeString(ent.getValue());
+            }
+        }
+
+        void writeUser(@Nullable User user) throws IOException {
+            out.writeBoolean(user != null);
+            if (user != null)
+                user.writeSnapshot(this);
+        }
+
+        void writeValue(@Nullable Object v) throws IOException {
+            if (v == null || v instanceof JSONNull) {
+                out.writeByte(TAG_NULL);
+            } else if (v instanceof Boolean) {
+                out.writeByte((Boolean) v ? TAG_TRUE : TAG_FALSE);
+            } else if (v instanceof Integer) {
+                out.writeByte(TAG_INT);
+                writeSignedLong((Integer) v);
+            } else if (v instanceof Long) {
+                out.writeByte(TAG_LONG);
+                writeSignedLong((Long) v);
+            } else if (v instanceof Double || v instanceof Float) {
+                out.writeByte(TAG_DOUBLE);
+                out.writeDouble(((Number) v).doubleValue());
+            } else if (v instanceof Map) {
+                Map m = (Map) v;
+                out.writeByte(TAG_OBJECT);
+                writeVarInt(m.size());
+                for (Object k : m.keySet()) {
+                    writeString(k.toString());
+                    writeValue(m.get(k));
+                }
+            } else if (v instanceof List) {
+                List l = (List) v;
+                out.writeByte(TAG_ARRAY);
+                writeVarInt(l.size());
+                for (Object item : l)
+                    writeValue(item);
+            } else {
+                out.writeByte(TAG_STRING);
+                writeString(v.toString());
+            }
+        }
+    }
+
+    /**
+     * Snapshot input matching {@link Writer}.
+     */
+    static final class Reader {
+        @NotNull
+        final DataInputStream in;
+        @NotNull
+        private final List<String> strings = new ArrayList<String>();
+
+        Reader(@NotNull InputStream in) {
+            this.in = new DataInputStream(in);
+        }
+
+        int readVarInt() throws IOException {
+            return (int) readVarLong();
+        }
+
+        long readVarLong() throws IOException {
+            long result = 0;
+            int shift = 0;
+
+            while (true) {
+                int b = in.readUnsignedByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return result;
+                shift += 7;
+                if (shift > 63)
+                    throw new IOException("Malformed variable-length integer");
+            }
+        }
+
+        long readSignedLong() throws IOException {
+            long v = readVarLong();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        boolean readBoolean() throws IOException {
+            return in.readBoolean();
+        }
+
+        @Nullable
+        String readString() throws IOException {
+            int ref = readVarInt();
+
+            if (ref == 0)
+                return null;
+            else if (ref == 1) {
+                int length = readVarInt();
+                if (length < 0)
+                    throw new IOException("Malformed string length " + length);
+
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                String s = new String(bytes, UTF8);
+                strings.add(s);
+                return s;
+            } else if (ref - 2 < strings.size())
+                return strings.get(ref - 2);
+
+            throw new IOException("Malformed string reference " + ref);
+        }
+
+        @Nullable
+        Date readDate() throws IOException {
+            return in.readBoolean() ? new Date(readSignedLong()) : null;
+        }
+
+        @Nullable
+        List<String> readStrings() throws IOException {
+            int n = readVarInt();
+            if (n == 0)
+                return null;
+
+            List<String> list = new ArrayList<String>(n - 1);
+            for (int i = 1; i < n; i++)
+                list.add(readString());
+
+            return list;
+        }
+
+        @Nullable
+        Map<String, String> readStringMap() throws IOException {
+            int n = readVarInt();
+            if (n == 0)
+                return null;
+
+            Map<String, String> map = new HashMap<String, String>();
+            for (int i = 1; i < n; i++)
+                map.put(readString(), readString());
+
+            return map;
+        }
+
+        @Nullable
+        User readUser(RestClient restclient) throws IOException {
+            return in.readBoolean() ? User.read(restclient, this) : null;
+        }
+
+        @Nullable
+        Object readValue() throws IOException {
+            int tag = in.readUnsignedByte();
+
+            switch (tag) {
+                case TAG_NULL:
+                    return JSONNull.getInstance();
+                case TAG_TRUE:
+                    return Boolean.TRUE;
+                case TAG_FALSE:
+                    return Boolean.FALSE;
+                case TAG_INT:
+                    return (int) readSignedLong();
+                case TAG_LONG:
+                    return readSignedLong();
+                case TAG_DOUBLE:
+                    return in.readDouble();
+                case TAG_STRING:
+                    return readString();
+                case TAG_OBJECT: {
+                    int n = readVarInt();
+                    JSONObject jo = new JSONObject();
+                    for (int i = 0; i < n; i++) {
+                        String k = readString();
+                        jo.put(k, readValue());
+                    }
+                    return jo;
+                }
+                case TAG_ARRAY: {
+                    int n = readVarInt();
+                    JSONArray ja = new JSONArray();
+                    for (int i = 0; i < n; i++)
+                        ja.add(readValue());
+                    return ja;
+                }
+                default:
+                    throw new IOException("Malformed value tag " + tag);
+            }
+        }
+    }
+}
@@ -24,6 +24,7 @@ import net.sf.json.JSONObject;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -60,6 +61,36 @@ public class Status extends Resource {
         name = Field.getString(((Map) json).get("name"));
     }
 
+    /**
+     * Creates a status from a snapshot.
+     *
+     * @param restclient REST client instance
+     * @param in Snapshot input
+     * @return the status
+     */
+    @NotNull
+    static Status read(RestClient restclient, @NotNull SnapshotCodec.Reader in) throws IOException {
+        Status status = new Status(restclient, (JSONObject) null);
+        status.readSnapshot(in);
+        return status;
+    }
+
+    private void readSnapshot(@NotNull SnapshotCodec.Reader in) throws IOException {
+        self = in.readString();
+        id = in.readString();
+        description = in.readString();
+        iconUrl = in.readString();
+        name = in.readString();
+    }
+
+    void writeSnapshot(@NotNull SnapshotCodec.Writer out) throws IOException {
+        out.writeString(self);
+        out.writeString(id);
+        out.writeString(description);
+        out.writeString(iconUrl);
+        out.writeString(name);
+    }
+
     /**
      * Retrieves the given status record.
      *
@@ -0,0 +1,586 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.utils.ConcurrencyUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Computes time in status, lead time and cycle time from the change history
+ * of many issues.
+ *
+ * Histories are reduced to status timelines as they are added and kept in
+ * primitive arrays, with status names replaced by small integer codes, so
+ * a million transitions take a few megabytes. {@link #compute(Date)} then
+ * walks the timelines in parallel and summarises the durations as
+ * percentiles.
+ *
+ * The analytics can be fed directly by a {@link ChangeLogHarvester}, provided
+ * the harvest includes the creation date of each issue.
+ *
+ * <pre>
+ * StatusAnalytics analytics = new StatusAnalytics()
+ *     .cycleStart("In Progress")
+ *     .done("Done", "Closed");
+ *
+ * jira.harvestChangeLogs("project = TEST").execute(analytics);
+ * StatusAnalytics.Report report = analytics.compute(new Date());
+ * long p85 = report.getCycleTime().getPercentile(85);
+ * </pre>
+ */
+public final class StatusAnalytics implements ChangeLogHarvester.Handler {
+
+    /**
+     * Default number of threads used by {@link #compute(Date)}.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private static final int UNKNOWN = -1;
+    private static final int MIN_CHUNK = 1024;
+
+    @NotNull
+    private final Set<String> cycleStart = new HashSet<String>();
+    @NotNull
+    private final Set<String> done = new HashSet<String>();
+    private int parallelism = DEFAULT_PARALLELISM;
+
+    /* status dictionary */
+    @NotNull
+    private final Map<String, Integer> codes = new HashMap<String, Integer>();
+    @NotNull
+    private final List<String> names = new ArrayList<String>();
+
+    /* issue i owns timeline entries offsets[i] until offsets[i + 1] */
+    @NotNull
+    private final List<String> keys = new ArrayList<String>();
+    @NotNull
+    private final Map<String, Integer> index = new HashMap<String, Integer>();
+    @NotNull
+    private int[] offsets = new int[] { 0 };
+    @NotNull
+    private long[] times = new long[64];
+    @NotNull
+    private int[] statuses = new int[64];
+    private int size = 0;
+
+    /**
+     * Distribution of a set of durations, in milliseconds.
+     */
+    public static final class Stats {
+        @NotNull
+        private final long[] sorted;
+
+        Stats(@NotNull long[] values, int count) {
+            sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+        }
+
+        public int getCount() {
+            return sorted.length;
+        }
+
+        public long getMin() {
+            return sorted.length > 0 ? sorted[0] : 0;
+        }
+
+        public long getMax() {
+            return sorted.length > 0 ? sorted[sorted.length - 1] : 0;
+        }
+
+        public long getTotal() {
+            long total = 0;
+            for (long v : sorted)
+                total += v;
+            return total;
+        }
+
+        public double getMean() {
+            return sorted.length > 0 ? (double) getTotal() / sorted.length : 0;
+        }
+
+        public long getMedian() {
+            return getPercentile(50);
+        }
+
+        /**
+         * Returns the nearest-rank percentile.
+         *
+         * @param percentile Percentile between 0 and 100
+         *
+         * @return the duration at that percentile, zero when empty
+         */
+        public long getPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100)
+                throw new IllegalArgumentException("Percentile must be between 0 and 100");
+
+            if (sorted.length == 0)
+                return 0;
+
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d min=%d p50=%d p85=%d p95=%d max=%d",
+                getCount(), getMin(), getMedian(), getPercentile(85), getPercentile(95), getMax());
+        }
+    }
+
+    /**
+     * One stay of an issue in a status.
+     */
+    public static final class Interval {
+        @NotNull
+        private final String status;
+        @NotNull
+        private final Date start;
+        @Nullable
+        private final Date end;
+
+        Interval(@NotNull String status, @NotNull Date start, @Nullable Date end) {
+            this.status = status;
+            this.start = start;
+            this.end = end;
+        }
+
+        @NotNull
+        public String getStatus() {
+            return status;
+        }
+
+        @NotNull
+        public Date getStart() {
+            return start;
+        }
+
+        /**
+         * @return the end of the stay, null while the issue is still in the status
+         */
+        @Nullable
+        public Date getEnd() {
+            return end;
+        }
+    }
+
+    /**
+     * Duration summaries over all analysed issues.
+     */
+    public static final class Report {
+        private final int issues;
+        @NotNull
+        private final Stats leadTime;
+        @NotNull
+        private final Stats cycleTime;
+        @NotNull
+        private final Map<String, Stats> timeInStatus;
+
+        Report(int issues, @NotNull Stats leadTime, @NotNull Stats cycleTime,
+               @NotNull Map<String, Stats> timeInStatus) {
+            this.issues = issues;
+            this.leadTime = leadTime;
+            this.cycleTime = cycleTime;
+            this.timeInStatus = timeInStatus;
+        }
+
+        public int getIssues() {
+            return issues;
+        }
+
+        /**
+         * @return time from creation to completion, over completed issues
+         */
+        @NotNull
+        public Stats getLeadTime() {
+            return leadTime;
+        }
+
+        /**
+         * @return time from the start of work to completion, over completed issues
+         */
+        @NotNull
+        public Stats getCycleTime() {
+            return cycleTime;
+        }
+
+        /**
+         * @return names of the statuses seen, in order of first appearance
+         */
+        @NotNull
+        public Set<String> getStatuses() {
+            return Collections.unmodifiableSet(timeInStatus.keySet());
+        }
+
+        /**
+         * Returns the total time each issue spent in a status, over the issues
+         * that were ever in it.
+         *
+         * @param status Status name
+         *
+         * @return the duration summary, null when no issue was in the status
+         */
+        @Nullable
+        public Stats getTimeInStatus(@NotNull String status) {
+            return timeInStatus.get(status);
+        }
+    }
+
+    /**
+     * Growable array of longs.
+     */
+    private static final class Longs {
+        @NotNull
+        long[] values = new long[16];
+        int size = 0;
+
+        void add(long v) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        void addAll(@NotNull Longs other) {
+            if (size + other.size > values.length)
+                values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+    }
+
+    /**
+     * Durations collected from a range of issues.
+     */
+    private static final class Partial {
+        @NotNull
+        final Longs lead = new Longs();
+        @NotNull
+        final Longs cycle = new Longs();
+        @NotNull
+        final Longs[] inStatus;
+
+        Partial(int statusCount) {
+            inStatus = new Longs[statusCount];
+            for (int i = 0; i < statusCount; i++)
+                inStatus[i] = new Longs();
+        }
+    }
+
+    /**
+     * Names the statuses that mark the start of work. Without any, cycle time
+     * starts at the first status change.
+     *
+     * @param statuses Status names
+     *
+     * @return the current analytics
+     */
+    @NotNull
+    public StatusAnalytics cycleStart(@NotNull String... statuses) {
+        cycleStart.addAll(Arrays.asList(statuses));
+        return this;
+    }
+
+    /**
+     * Names the statuses that mark an issue as complete.
+     *
+     * @param statuses Status names
+     *
+     * @return the current analytics
+     */
+    @NotNull
+    public StatusAnalytics done(@NotNull String... statuses) {
+        done.addAll(Arrays.asList(statuses));
+        return this;
+    }
+
+    /**
+     * Sets the number of threads used by {@link #compute(Date)}.
+     *
+     * @param parallelism Threads
+     *
+     * @return the current analytics
+     */
+    @NotNull
+    public StatusAnalytics parallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Adds an issue harvested with its creation date.
+     *
+     * @param issue Issue
+     * @param histories Histories of the issue
+     */
+    public void handle(@NotNull Issue issue, @NotNull List<IssueHistory> histories) {
+        add(issue.getKey(), issue.getCreatedDate(), histories);
+    }
+
+    /**
+     * Adds the status timeline of an issue.
+     *
+     * @param key Issue key
+     * @param created Creation time of the issue, or null to start the
+     *                timeline at the first status change
+     * @param histories Histories of the issue, in any order
+     */
+    public synchronized void add(@NotNull String key, @Nullable Date created, @NotNull List<IssueHistory> histories) {
+        List<IssueHistory> sorted = new ArrayList<IssueHistory>(histories);
+        Collections.sort(sorted, new Comparator<IssueHistory>() {
+            public int compare(IssueHistory a, IssueHistory b) {
+                long x = a.getCreated() != null ? a.getCreated().getTime() : Long.MIN_VALUE;
+                long y = b.getCreated() != null ? b.getCreated().getTime() : Long.MIN_VALUE;
+                return x < y ? -1 : (x == y ? 0 : 1);
+            }
+        });
+
+        boolean first = true;
+
+        for (IssueHistory history : sorted) {
+            if (history.getCreated() == null || history.getChanges() == null)
+                continue;
+
+            for (IssueHistoryItem item : history.getChanges()) {
+                if (!Field.STATUS.equals(item.getField()))
+                    continue;
+
+                if (first) {
+                    long start = created != null ? created.getTime() : history.getCreated().getTime();
+                    append(start, code(item.getFromStr()));
+                    first = false;
+                }
+
+                append(history.getCreated().getTime(), code(item.getToStr()));
+            }
+        }
+
+        if (first && created != null)
+            append(created.getTime(), UNKNOWN);
+
+        index.put(key, keys.size());
+        keys.add(key);
+        if (keys.size() + 1 > offsets.length)
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        offsets[keys.size()] = size;
+    }
+
+    /**
+     * @return number of issues added
+     */
+    public synchronized int getIssueCount() {
+        return keys.size();
+    }
+
+    /**
+     * @return number of timeline entries held
+     */
+    public synchronized int getTransitionCount() {
+        return size;
+    }
+
+    /**
+     * Returns the status timeline of an issue.
+     *
+     * @param key Issue key
+     *
+     * @return the stays in each status, oldest first, or an empty list for an
+     *         unknown issue
+     */
+    @NotNull
+    public synchronized List<Interval> getTimeline(@NotNull String key) {
+        List<Interval> result = new ArrayList<Interval>();
+        Integer i = index.get(key);
+
+        if (i == null)
+            return result;
+
+        for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+            if (statuses[j] == UNKNOWN)
+                continue;
+
+            Date end = j + 1 < offsets[i + 1] ? new Date(times[j + 1]) : null;
+            result.add(new Interval(names.get(statuses[j]), new Date(times[j]), end));
+        }
+
+        return result;
+    }
+
+    /**
+     * Computes the duration summaries. Issues that are not complete count
+     * their current status up to the given time and are left out of lead
+     * and cycle times.
+     *
+     * @param now End of the analysis
+     *
+     * @return the report
+     *
+     * @throws JiraException when the computation is interrupted
+     */
+    @NotNull
+    public synchronized Report compute(@NotNull Date now) throws JiraException {
+        final long end = now.getTime();
+        final int issues = keys.size();
+        final boolean[] isDone = codeSet(done);
+        final boolean[] isStart = codeSet(cycleStart);
+
+        int chunk = Math.max(MIN_CHUNK, (issues + parallelism - 1) / Math.max(1, parallelism));
+        List<Callable<Partial>> tasks = new ArrayList<Callable<Partial>>();
+
+        for (int from = 0; from < issues; from += chunk) {
+            final int lo = from;
+            final int hi = Math.min(issues, from + chunk);
+
+            tasks.add(new Callable<Partial>() {
+                public Partial call() {
+                    return analyse(lo, hi, end, isDone, isStart);
+                }
+            });
+        }
+
+        List<Partial> partials;
+
+        try {
+            partials = ConcurrencyUtils.invokeAll(tasks, parallelism);
+        } catch (ExecutionException ex) {
+            throw new JiraException("Failed to compute status analytics", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while computing status analytics", ex);
+        }
+
+        Partial total = new Partial(names.size());
+        for (Partial p : partials) {
+            total.lead.addAll(p.lead);
+            total.cycle.addAll(p.cycle);
+            for (int s = 0; s < names.size(); s++)
+                total.inStatus[s].addAll(p.inStatus[s]);
+        }
+
+        Map<String, Stats> inStatus = new LinkedHashMap<String, Stats>();
+        for (int s = 0; s < names.size(); s++) {
+            if (total.inStatus[s].size > 0)
+                inStatus.put(names.get(s), new Stats(total.inStatus[s].values, total.inStatus[s].size));
+        }
+
+        return new Report(issues,
+            new Stats(total.lead.values, total.lead.size),
+            new Stats(total.cycle.values, total.cycle.size),
+            inStatus);
+    }
+
+    /**
+     * Collects the durations of issues lo until hi. Reads the arrays only,
+     * so ranges can be analysed side by side.
+     */
+    @NotNull
+    private Partial analyse(int lo, int hi, long now, @NotNull boolean[] isDone, @NotNull boolean[] isStart) {
+        Partial partial = new Partial(names.size());
+        boolean anyStart = !cycleStart.isEmpty();
+        long[] spent = new long[names.size()];
+
+        for (int i = lo; i < hi; i++) {
+            int from = offsets[i];
+            int to = offsets[i + 1];
+
+            if (from == to)
+                continue;
+
+            Arrays.fill(spent, -1);
+            long workStart = -1;
+            long doneAt = -1;
+
+            for (int j = from; j < to; j++) {
+                int s = statuses[j];
+                long until = j + 1 < to ? times[j + 1] : Math.max(now, times[j]);
+
+                if (s == UNKNOWN)
+                    continue;
+
+                spent[s] = (spent[s] < 0 ? 0 : spent[s]) + (until - times[j]);
+
+                if (workStart < 0 && (anyStart ? isStart[s] : j > from))
+                    workStart = times[j];
+
+                if (isDone[s]) {
+                    if (doneAt < 0)
+                        doneAt = times[j];
+                } else {
+                    doneAt = -1;
+                }
+            }
+
+            for (int s = 0; s < spent.length; s++) {
+                if (spent[s] >= 0)
+                    partial.inStatus[s].add(spent[s]);
+            }
+
+            if (doneAt >= 0) {
+                partial.lead.add(doneAt - times[from]);
+                if (workStart >= 0 && workStart <= doneAt)
+                    partial.cycle.add(doneAt - workStart);
+            }
+        }
+
+        return partial;
+    }
+
+    /**
+     * Maps a set of status names to a lookup indexed by status code.
+     */
+    @NotNull
+    private boolean[] codeSet(@NotNull Set<String> statusNames) {
+        boolean[] result = new boolean[names.size()];
+        for (int s = 0; s < names.size(); s++)
+            result[s] = statusNames.contains(names.get(s));
+        return result;
+    }
+
+    private int code(@Nullable String name) {
+        if (name == null)
+            return UNKNOWN;
+
+        Integer code = codes.get(name);
+        if (code == null) {
+            code = names.size();
+            codes.put(name, code);
+            names.add(name);
+        }
+
+        return code;
+    }
+
+    private void append(long time, int status) {
+        if (size == times.length) {
+            times = Arrays.copyOf(times, size * 2);
+            statuses = Arrays.copyOf(statuses, size * 2);
+        }
+
+        times[size] = time;
+        statuses[size] = status;
+        size++;
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caches the transitions available to issues, keyed by project, issue type
+ * and status.
+ *
+ * Issues that share those three normally share a workflow step, so the
+ * transitions of one issue stand in for all of them. Concurrent lookups of
+ * the same step wait for a single request. Entries are dropped with
+ * {@link #invalidate(Issue)} when the server rejects a cached transition.
+ */
+public final class TransitionCache {
+
+    @NotNull
+    private final ConcurrentMap<String, FutureTask<List<Transition>>> entries =
+        new ConcurrentHashMap<String, FutureTask<List<Transition>>>();
+    @NotNull
+    private final AtomicInteger hits = new AtomicInteger();
+    @NotNull
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Gets the transitions available to an issue, from the cache if possible.
+     *
+     * @param restclient REST client instance
+     * @param issue Issue with its project, issue type and status loaded
+     *
+     * @return the available transitions
+     *
+     * @throws JiraException when the transitions could not be retrieved
+     */
+    @NotNull
+    public List<Transition> get(@NotNull final RestClient restclient, @NotNull final Issue issue)
+        throws JiraException {
+
+        String cacheKey = keyOf(issue);
+
+        if (cacheKey == null) {
+            misses.incrementAndGet();
+            return Issue.getTransitions(restclient, issue.getKey());
+        }
+
+        FutureTask<List<Transition>> task = entries.get(cacheKey);
+
+        if (task == null) {
+            FutureTask<List<Transition>> created = new FutureTask<List<Transition>>(
+                new Callable<List<Transition>>() {
+                    public List<Transition> call() throws JiraException {
+                        return Issue.getTransitions(restclient, issue.getKey());
+                    }
+                });
+
+            task = entries.putIfAbsent(cacheKey, created);
+            if (task == null) {
+                task = created;
+                misses.incrementAndGet();
+                created.run();
+            } else {
+                hits.incrementAndGet();
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+
+        try {
+            return task.get();
+        } catch (ExecutionException ex) {
+            entries.remove(cacheKey, task);
+
+            if (ex.getCause() instanceof JiraException)
+                throw (JiraException) ex.getCause();
+
+            throw new JiraException("Failed to retrieve transitions", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while retrieving transitions", ex);
+        }
+    }
+
+    /**
+     * Drops the cached transitions of the workflow step the issue is in.
+     *
+     * @param issue Issue whose step should be looked up again
+     */
+    public void invalidate(@NotNull Issue issue) {
+        String cacheKey = keyOf(issue);
+
+        if (cacheKey != null)
+            entries.remove(cacheKey);
+    }
+
+    /**
+     * Drops all cached transitions.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return number of cached workflow steps
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of lookups that went to the server
+     */
+    public int getMisses() {
+        return misses.get();
+    }
+
+    @Nullable
+    static String keyOf(@NotNull Issue issue) {
+        if (issue.getProject() == null || issue.getIssueType() == null || issue.getStatus() == null)
+            return null;
+
+        return issue.getProject().getId() + "|" + issue.getIssueType().getId() + "|" +
+            issue.getStatus().getId();
+    }
+}
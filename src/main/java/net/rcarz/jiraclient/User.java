@@ -24,6 +24,7 @@ import net.sf.json.JSONObject;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -94,6 +95,40 @@ public class User extends Resource {
         name = Field.getString(((Map) json).get("name"));
     }
 
+    /**
+     * Creates a user from a snapshot.
+     *
+     * @param restclient REST client instance
+     * @param in Snapshot input
+     * @return the user
+     */
+    @NotNull
+    static User read(RestClient restclient, @NotNull SnapshotCodec.Reader in) throws IOException {
+        User user = new User(restclient, (JSONObject) null);
+        user.readSnapshot(in);
+        return user;
+    }
+
+    private void readSnapshot(@NotNull SnapshotCodec.Reader in) throws IOException {
+        self = in.readString();
+        id = in.readString();
+        active = in.readBoolean();
+        avatarUrls = in.readStringMap();
+        displayName = in.readString();
+        email = in.readString();
+        name = in.readString();
+    }
+
+    void writeSnapshot(@NotNull SnapshotCodec.Writer out) throws IOException {
+        out.writeString(self);
+        out.writeString(id);
+        out.writeBoolean(active);
+        out.writeStringMap(avatarUrls);
+        out.writeString(displayName);
+        out.writeString(email);
+        out.writeString(name);
+    }
+
     /**
      * API changes email address might be represented as either "email" or "emailAddress"
      *
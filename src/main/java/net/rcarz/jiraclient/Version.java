@@ -24,6 +24,7 @@ import net.sf.json.JSONObject;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -151,6 +152,40 @@ public class Version extends Resource {
         description = Field.getString(((Map) json).get("description"));
     }
 
+    /**
+     * Creates a version from a snapshot.
+     *
+     * @param restclient REST client instance
+     * @param in Snapshot input
+     * @return the version
+     */
+    @NotNull
+    static Version read(RestClient restclient, @NotNull SnapshotCodec.Reader in) throws IOException {
+        Version version = new Version(restclient, (JSONObject) null);
+        version.readSnapshot(in);
+        return version;
+    }
+
+    private void readSnapshot(@NotNull SnapshotCodec.Reader in) throws IOException {
+        self = in.readString();
+        id = in.readString();
+        name = in.readString();
+        archived = in.readBoolean();
+        released = in.readBoolean();
+        releaseDate = in.readString();
+        description = in.readString();
+    }
+
+    void writeSnapshot(@NotNull SnapshotCodec.Writer out) throws IOException {
+        out.writeString(self);
+        out.writeString(id);
+        out.writeString(name);
+        out.writeBoolean(archived);
+        out.writeBoolean(released);
+        out.writeString(releaseDate);
+        out.writeString(description);
+    }
+
     @Nullable
     @Override
     public String toString() {
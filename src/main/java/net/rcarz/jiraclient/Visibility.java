@@ -1,8 +1,10 @@
 package net.rcarz.jiraclient;
 
 import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -31,6 +33,21 @@ public class Visibility extends Resource {
             deserialise(json);
     }
 
+    /**
+     * Creates a visibility from a snapshot.
+     *
+     * @param restclient REST client instance
+     * @param in Snapshot input
+     * @return the visibility
+     */
+    @NotNull
+    static Visibility read(RestClient restclient, @NotNull SnapshotCodec.Reader in) throws IOException {
+        Visibility visibility = new Visibility(restclient, (JSONObject) null);
+        visibility.type = in.readString();
+        visibility.value = in.readString();
+        return visibility;
+    }
+
     private void deserialise(JSONObject json) {
 
         type = Field.getString(((Map) json).get("type"));
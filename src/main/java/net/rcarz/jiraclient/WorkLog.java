@@ -24,7 +24,11 @@ import net.sf.json.JSONObject;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -32,6 +36,11 @@ import java.util.Map;
  */
 public class WorkLog extends Resource {
 
+    /**
+     * Default number of work logs requested per page.
+     */
+    static final int DEFAULT_PAGE_SIZE = 1000;
+
     @Nullable
     private User author = null;
     @Nullable
@@ -47,6 +56,8 @@ public class WorkLog extends Resource {
     @Nullable
     private String timeSpent = null;
     private int timeSpentSeconds = 0;
+    @Nullable
+    private String issueId = null;
 
     /**
      * Creates a work log from a JSON payload.
@@ -73,6 +84,47 @@ public class WorkLog extends Resource {
         started = Field.getDateTime(((Map) json).get("started"));
         timeSpent = Field.getString(((Map) json).get("timeSpent"));
         timeSpentSeconds = Field.getInteger(((Map) json).get("timeSpentSeconds"));
+        issueId = Field.getString(((Map) json).get("issueId"));
+    }
+
+    /**
+     * Creates a work log from a snapshot.
+     *
+     * @param restclient REST client instance
+     * @param in Snapshot input
+     * @return the work log
+     */
+    @NotNull
+    static WorkLog read(RestClient restclient, @NotNull SnapshotCodec.Reader in) throws IOException {
+        WorkLog workLog = new WorkLog(restclient, (JSONObject) null);
+        workLog.readSnapshot(in);
+        return workLog;
+    }
+
+    private void readSnapshot(@NotNull SnapshotCodec.Reader in) throws IOException {
+        self = in.readString();
+        id = in.readString();
+        author = in.readUser(restclient);
+        comment = in.readString();
+        created = in.readDate();
+        updated = in.readDate();
+        updateAuthor = in.readUser(restclient);
+        started = in.readDate();
+        timeSpent = in.readString();
+        timeSpentSeconds = (int) in.readSignedLong();
+    }
+
+    void writeSnapshot(@NotNull SnapshotCodec.Writer out) throws IOException {
+        out.writeString(self);
+        out.writeString(id);
+        out.writeUser(author);
+        out.writeString(comment);
+        out.writeDate(created);
+        out.writeDate(updated);
+        out.writeUser(updateAuthor);
+        out.writeDate(started);
+        out.writeString(timeSpent);
+        out.writeSignedLong(timeSpentSeconds);
     }
 
     /**
@@ -103,6 +155,48 @@ public class WorkLog extends Resource {
         return new WorkLog(restclient, (JSONObject)result);
     }
 
+    /**
+     * Iterates over all work logs of an issue, page by page.
+     *
+     * @param restclient REST client instance
+     * @param issue Key or ID of the issue
+     * @param pageSize Number of work logs requested per page
+     *
+     * @return an iterator prefetching the next page
+     */
+    @NotNull
+    static PagedIterator<WorkLog> iterator(@NotNull final RestClient restclient, final String issue,
+                                           final int pageSize) {
+
+        return new PagedIterator<WorkLog>(0, true) {
+            @NotNull
+            @Override
+            Page<WorkLog> fetch(int startAt) throws JiraException {
+                JSON result = null;
+
+                try {
+                    Map<String, String> params = new HashMap<String, String>();
+                    params.put("startAt", String.valueOf(startAt));
+                    params.put("maxResults", String.valueOf(pageSize));
+
+                    URI uri = restclient.buildURI(getBaseUri() + "issue/" + issue + "/worklog", params);
+                    result = restclient.get(uri);
+                } catch (Exception ex) {
+                    throw new JiraException("Failed to get worklog for issue " + issue, ex);
+                }
+
+                if (!(result instanceof JSONObject))
+                    throw new JiraException("JSON payload is malformed");
+
+                Map map = (Map) result;
+                List<WorkLog> values = Field.getWorkLogs(result, restclient);
+                int total = map.containsKey("total") ? Field.getInteger(map.get("total")) : values.size();
+
+                return new Page<WorkLog>(startAt, total, false, values);
+            }
+        };
+    }
+
     @Nullable
     @Override
     public String toString() {
@@ -144,5 +238,14 @@ public class WorkLog extends Resource {
         return timeSpentSeconds;
     }
 
+    /**
+     * @return ID of the issue, when the work log was read through the
+     *         work log feed rather than from its issue
+     */
+    @Nullable
+    public String getIssueId() {
+        return issueId;
+    }
+
 }
 
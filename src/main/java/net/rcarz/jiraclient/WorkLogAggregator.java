@@ -0,0 +1,582 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.rcarz.utils.ConcurrencyUtils;
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Sums the time logged on the issues matching a JQL query per user, day
+ * and project.
+ *
+ * Issues are searched with their embedded work logs; only issues with more
+ * work logs than the search returns are followed up, several at a time.
+ * Sums are kept in a hash table keyed by a packed long of user, project
+ * and day codes, so tens of thousands of issues aggregate with little
+ * garbage.
+ *
+ * <pre>
+ * WorkLogAggregator.Table table = jira.aggregateWorkLogs("project = TEST")
+ *     .since(monthStart)
+ *     .execute();
+ *
+ * for (WorkLogAggregator.Row row : table.getRows())
+ *     ...
+ * </pre>
+ */
+public final class WorkLogAggregator {
+
+    /**
+     * Default number of follow-up requests running at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Default number of issues fetched per search page.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static final long DAY = 24 * 3600 * 1000L;
+    private static final int DAY_BITS = 22;
+    private static final int PROJECT_BITS = 20;
+
+    @NotNull
+    private final RestClient restclient;
+    @NotNull
+    private final String jql;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    @NotNull
+    private TimeZone timeZone = TimeZone.getDefault();
+    @Nullable
+    private Date since = null;
+    @Nullable
+    private Date until = null;
+
+    /**
+     * Time logged by one user on one project on one day.
+     */
+    public static final class Row {
+        @NotNull
+        private final String user;
+        @NotNull
+        private final String project;
+        @NotNull
+        private final String day;
+        private final long seconds;
+
+        Row(@NotNull String user, @NotNull String project, @NotNull String day, long seconds) {
+            this.user = user;
+            this.project = project;
+            this.day = day;
+            this.seconds = seconds;
+        }
+
+        /**
+         * @return user name of the work log author
+         */
+        @NotNull
+        public String getUser() {
+            return user;
+        }
+
+        /**
+         * @return project key
+         */
+        @NotNull
+        public String getProject() {
+            return project;
+        }
+
+        /**
+         * @return the day the work started, formatted as yyyy-MM-dd
+         */
+        @NotNull
+        public String getDay() {
+            return day;
+        }
+
+        public long getSeconds() {
+            return seconds;
+        }
+
+        @Override
+        public String toString() {
+            return user + "\t" + project + "\t" + day + "\t" + seconds;
+        }
+    }
+
+    /**
+     * Result of an aggregation.
+     */
+    public static final class Table {
+        @NotNull
+        private final List<Row> rows;
+        private final int issues;
+        private final int worklogs;
+        private final long elapsed;
+        @NotNull
+        private final List<String> failures;
+
+        Table(@NotNull List<Row> rows, int issues, int worklogs, long elapsed, @NotNull List<String> failures) {
+            this.rows = rows;
+            this.issues = issues;
+            this.worklogs = worklogs;
+            this.elapsed = elapsed;
+            this.failures = failures;
+        }
+
+        /**
+         * @return rows ordered by user, project and day
+         */
+        @NotNull
+        public List<Row> getRows() {
+            return Collections.unmodifiableList(rows);
+        }
+
+        /**
+         * @return the total time logged, in seconds
+         */
+        public long getTotalSeconds() {
+            long total = 0;
+            for (Row row : rows)
+                total += row.seconds;
+            return total;
+        }
+
+        /**
+         * @return the time logged per user, in seconds
+         */
+        @NotNull
+        public Map<String, Long> getSecondsByUser() {
+            Map<String, Long> result = new TreeMap<String, Long>();
+            for (Row row : rows) {
+                Long sum = result.get(row.user);
+                result.put(row.user, (sum != null ? sum : 0) + row.seconds);
+            }
+            return result;
+        }
+
+        /**
+         * @return number of issues returned by the search
+         */
+        public int getIssues() {
+            return issues;
+        }
+
+        /**
+         * @return number of work logs counted
+         */
+        public int getWorkLogs() {
+            return worklogs;
+        }
+
+        /**
+         * @return failure messages, one per issue whose work logs could not be read
+         */
+        @NotNull
+        public List<String> getFailures() {
+            return Collections.unmodifiableList(failures);
+        }
+
+        public long getElapsedMillis() {
+            return elapsed;
+        }
+    }
+
+    /**
+     * Open-addressing hash table from packed keys to sums.
+     */
+    private static final class Sums {
+        private long[] keys = new long[1024];
+        private long[] values = new long[1024];
+        private boolean[] used = new boolean[1024];
+        private int size = 0;
+
+        void add(long key, long value) {
+            if (size * 2 >= keys.length)
+                grow();
+
+            int i = slot(keys, used, key);
+            if (!used[i]) {
+                used[i] = true;
+                keys[i] = key;
+                size++;
+            }
+            values[i] += value;
+        }
+
+        private static int slot(long[] keys, boolean[] used, long key) {
+            int mask = keys.length - 1;
+            int i = (int) (key ^ (key >>> 29) ^ (key >>> 47)) * 0x9E3779B9 & mask;
+
+            while (used[i] && keys[i] != key)
+                i = (i + 1) & mask;
+
+            return i;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            boolean[] oldUsed = used;
+
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldUsed[j]) {
+                    int i = slot(keys, used, oldKeys[j]);
+                    used[i] = true;
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Work logs of one issue, read by a follow-up.
+     */
+    private static final class FollowUp {
+        @NotNull
+        final String key;
+        @NotNull
+        final String project;
+        @Nullable
+        List<WorkLog> worklogs;
+        @Nullable
+        Exception error;
+
+        FollowUp(@NotNull String key, @NotNull String project) {
+            this.key = key;
+            this.project = project;
+        }
+    }
+
+    WorkLogAggregator(@NotNull RestClient restclient, @NotNull String jql) {
+        this.restclient = restclient;
+        this.jql = jql;
+    }
+
+    /**
+     * Sets the number of follow-up requests running at the same time.
+     *
+     * @param parallelism Concurrent follow-ups
+     *
+     * @return the current aggregator
+     */
+    @NotNull
+    public WorkLogAggregator parallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the number of issues fetched per search page.
+     *
+     * @param pageSize Issues per page
+     *
+     * @return the current aggregator
+     */
+    @NotNull
+    public WorkLogAggregator pageSize(int pageSize) {
+        if (pageSize < 1)
+            throw new IllegalArgumentException("Page size must be positive");
+
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Sets the time zone that decides which day a work log falls on.
+     * Defaults to the system time zone.
+     *
+     * @param timeZone Time zone
+     *
+     * @return the current aggregator
+     */
+    @NotNull
+    public WorkLogAggregator timeZone(@NotNull TimeZone timeZone) {
+        this.timeZone = timeZone;
+        return this;
+    }
+
+    /**
+     * Counts only work started at or after the given time.
+     *
+     * @param since Earliest start time
+     *
+     * @return the current aggregator
+     */
+    @NotNull
+    public WorkLogAggregator since(@Nullable Date since) {
+        this.since = since;
+        return this;
+    }
+
+    /**
+     * Counts only work started before the given time.
+     *
+     * @param until Start time limit, exclusive
+     *
+     * @return the current aggregator
+     */
+    @NotNull
+    public WorkLogAggregator until(@Nullable Date until) {
+        this.until = until;
+        return this;
+    }
+
+    /**
+     * Runs the aggregation.
+     *
+     * @return the result table
+     *
+     * @throws JiraException when the search fails
+     */
+    @NotNull
+    public Table execute() throws JiraException {
+        Sums sums = new Sums();
+        Map<String, Integer> users = new HashMap<String, Integer>();
+        Map<String, Integer> projects = new HashMap<String, Integer>();
+        List<String> failures = new ArrayList<String>();
+        int[] counts = new int[2];
+
+        ExecutorService executor = ConcurrencyUtils.newExecutor(parallelism);
+        CompletionService<FollowUp> followUps = new ExecutorCompletionService<FollowUp>(executor);
+        long start = System.currentTimeMillis();
+        int pending = 0;
+        int startAt = 0;
+
+        try {
+            while (true) {
+                Map page = search(startAt);
+                Object issues = page.get("issues");
+
+                if (!(issues instanceof JSONArray) || ((JSONArray) issues).isEmpty())
+                    break;
+
+                for (Object o : (JSONArray) issues) {
+                    if (!(o instanceof JSONObject))
+                        continue;
+
+                    Map json = (Map) o;
+                    Map fields = json.get("fields") instanceof Map ? (Map) json.get("fields") : new HashMap();
+                    String key = Field.getString(json.get("key"));
+                    String project = fields.get(Field.PROJECT) instanceof Map
+                        ? Field.getString(((Map) fields.get(Field.PROJECT)).get("key")) : null;
+                    Object worklog = fields.get(Field.WORKLOG);
+
+                    counts[0]++;
+
+                    List<WorkLog> embedded = Field.getWorkLogs(worklog, restclient);
+                    if (worklog instanceof Map && Field.getInteger(((Map) worklog).get("total")) <= embedded.size()) {
+                        add(sums, users, projects, project, embedded, counts);
+                        continue;
+                    }
+
+                    while (pending >= parallelism * 2) {
+                        complete(followUps.take(), sums, users, projects, failures, counts);
+                        pending--;
+                    }
+
+                    followUps.submit(followUp(key, project != null ? project : ""));
+                    pending++;
+                }
+
+                Future<FollowUp> done;
+                while ((done = followUps.poll()) != null) {
+                    complete(done, sums, users, projects, failures, counts);
+                    pending--;
+                }
+
+                startAt += ((JSONArray) issues).size();
+                if (startAt >= Field.getInteger(page.get("total")))
+                    break;
+            }
+
+            while (pending > 0) {
+                complete(followUps.take(), sums, users, projects, failures, counts);
+                pending--;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while aggregating worklogs", ex);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return new Table(toRows(sums, users, projects), counts[0], counts[1],
+            System.currentTimeMillis() - start, failures);
+    }
+
+    @NotNull
+    private Map search(int startAt) throws JiraException {
+        JSON result;
+
+        try {
+            result = restclient.get(Issue.createSearchURI(
+                restclient, jql, Field.PROJECT + "," + Field.WORKLOG, null, pageSize, startAt));
+        } catch (Exception ex) {
+            throw new JiraException("Failed to search issues", ex);
+        }
+
+        if (!(result instanceof JSONObject))
+            throw new JiraException("JSON payload is malformed");
+
+        return (Map) result;
+    }
+
+    @NotNull
+    private Callable<FollowUp> followUp(@NotNull final String key, @NotNull final String project) {
+        return new Callable<FollowUp>() {
+            public FollowUp call() {
+                FollowUp result = new FollowUp(key, project);
+                List<WorkLog> worklogs = new ArrayList<WorkLog>();
+
+                try {
+                    Iterator<WorkLog> it = WorkLog.iterator(restclient, key, WorkLog.DEFAULT_PAGE_SIZE);
+                    while (it.hasNext())
+                        worklogs.add(it.next());
+
+                    result.worklogs = worklogs;
+                } catch (RuntimeException ex) {
+                    result.error = ex.getCause() instanceof JiraException ? (JiraException) ex.getCause() : ex;
+                }
+
+                return result;
+            }
+        };
+    }
+
+    private void complete(@NotNull Future<FollowUp> future, @NotNull Sums sums, @NotNull Map<String, Integer> users,
+                          @NotNull Map<String, Integer> projects, @NotNull List<String> failures,
+                          @NotNull int[] counts) throws InterruptedException {
+        FollowUp result;
+
+        try {
+            result = future.get();
+        } catch (ExecutionException ex) {
+            failures.add(String.valueOf(ex.getCause()));
+            return;
+        }
+
+        if (result.worklogs != null)
+            add(sums, users, projects, result.project, result.worklogs, counts);
+        else
+            failures.add(result.key + ": " + result.error);
+    }
+
+    private void add(@NotNull Sums sums, @NotNull Map<String, Integer> users, @NotNull Map<String, Integer> projects,
+                     @Nullable String project, @NotNull List<WorkLog> worklogs, @NotNull int[] counts) {
+
+        int p = code(projects, project != null ? project : "");
+
+        for (WorkLog w : worklogs) {
+            Date started = w.getStarted();
+
+            if (started == null || (since != null && started.before(since)) ||
+                    (until != null && !started.before(until)))
+                continue;
+
+            User author = w.getAuthor();
+            String user = author == null ? "" : author.getName() != null ? author.getName() : author.getId();
+            long day = Math.max(0, (started.getTime() + timeZone.getOffset(started.getTime())) / DAY);
+
+            long key = ((long) code(users, user != null ? user : "") << (PROJECT_BITS + DAY_BITS)) |
+                ((long) p << DAY_BITS) | day;
+
+            sums.add(key, w.getTimeSpentSeconds());
+            counts[1]++;
+        }
+    }
+
+    @NotNull
+    private List<Row> toRows(@NotNull Sums sums, @NotNull Map<String, Integer> users,
+                             @NotNull Map<String, Integer> projects) {
+
+        String[] userNames = names(users);
+        String[] projectKeys = names(projects);
+        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd");
+        df.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        List<Row> rows = new ArrayList<Row>(sums.size);
+
+        for (int i = 0; i < sums.keys.length; i++) {
+            if (!sums.used[i])
+                continue;
+
+            long key = sums.keys[i];
+            int user = (int) (key >>> (PROJECT_BITS + DAY_BITS));
+            int project = (int) ((key >>> DAY_BITS) & ((1 << PROJECT_BITS) - 1));
+            long day = key & ((1 << DAY_BITS) - 1);
+
+            rows.add(new Row(userNames[user], projectKeys[project], df.format(new Date(day * DAY)), sums.values[i]));
+        }
+
+        Collections.sort(rows, new Comparator<Row>() {
+            public int compare(Row a, Row b) {
+                int c = a.user.compareTo(b.user);
+                if (c == 0)
+                    c = a.project.compareTo(b.project);
+                if (c == 0)
+                    c = a.day.compareTo(b.day);
+                return c;
+            }
+        });
+
+        return rows;
+    }
+
+    @NotNull
+    private static String[] names(@NotNull Map<String, Integer> codes) {
+        String[] result = new String[codes.size()];
+        for (Map.Entry<String, Integer> e : codes.entrySet())
+            result[e.getValue()] = e.getKey();
+        return result;
+    }
+
+    private static int code(@NotNull Map<String, Integer> codes, @NotNull String name) {
+        Integer code = codes.get(name);
+        if (code == null) {
+            code = codes.size();
+            codes.put(name, code);
+        }
+        return code;
+    }
+}
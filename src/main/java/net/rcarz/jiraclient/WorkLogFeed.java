@@ -0,0 +1,164 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental feed of changed work logs.
+ *
+ * The feed keeps a cursor, in milliseconds since the epoch. Each
+ * {@link #poll(Handler)} walks <code>/worklog/updated</code> from the cursor
+ * and reads the changed work logs through <code>/worklog/list</code>, one
+ * batch per page of IDs, so a sync costs requests in proportion to the
+ * number of changed work logs. Persist {@link #getSince()} between runs to
+ * resume where the last sync stopped.
+ */
+public final class WorkLogFeed {
+
+    /**
+     * Largest number of IDs accepted by <code>/worklog/list</code>.
+     */
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * Receives batches of changed work logs.
+     */
+    public interface Handler {
+
+        /**
+         * Called once per batch, in feed order.
+         *
+         * @param worklogs Changed work logs, carrying their issue ID
+         */
+        void handle(@NotNull List<WorkLog> worklogs);
+    }
+
+    @NotNull
+    private final RestClient restclient;
+    private volatile long since;
+
+    WorkLogFeed(@NotNull RestClient restclient, long since) {
+        this.restclient = restclient;
+        this.since = since;
+    }
+
+    /**
+     * @return the cursor, the time from which the next poll reads changes
+     */
+    public long getSince() {
+        return since;
+    }
+
+    /**
+     * Reads all work logs changed since the cursor and advances it. The
+     * cursor only moves past a page once its batch was handled, so a failed
+     * poll can simply be repeated.
+     *
+     * @param handler Receiver of the changed work logs
+     *
+     * @return number of work logs handed to the handler
+     *
+     * @throws JiraException when a request fails
+     */
+    public synchronized int poll(@NotNull Handler handler) throws JiraException {
+        int count = 0;
+
+        while (true) {
+            Map page = getUpdated(since);
+            List<String> ids = new ArrayList<String>();
+            Object values = page.get("values");
+
+            if (values instanceof JSONArray) {
+                for (Object v : (JSONArray) values) {
+                    if (v instanceof JSONObject && ((Map) v).get("worklogId") != null)
+                        ids.add(String.valueOf(((Map) v).get("worklogId")));
+                }
+            }
+
+            for (int i = 0; i < ids.size(); i += MAX_BATCH_SIZE) {
+                List<WorkLog> batch = getList(ids.subList(i, Math.min(ids.size(), i + MAX_BATCH_SIZE)));
+                handler.handle(batch);
+                count += batch.size();
+            }
+
+            Object until = page.get("until");
+            if (until instanceof Number)
+                since = ((Number) until).longValue();
+
+            if (ids.isEmpty() || Boolean.TRUE.equals(page.get("lastPage")) || !(until instanceof Number))
+                break;
+        }
+
+        return count;
+    }
+
+    @NotNull
+    private Map getUpdated(long since) throws JiraException {
+        JSON result = null;
+
+        try {
+            Map<String, String> params = new HashMap<String, String>();
+            params.put("since", String.valueOf(since));
+
+            URI uri = restclient.buildURI(Resource.getBaseUri() + "worklog/updated", params);
+            result = restclient.get(uri);
+        } catch (Exception ex) {
+            throw new JiraException("Failed to retrieve updated worklogs", ex);
+        }
+
+        if (!(result instanceof JSONObject))
+            throw new JiraException("JSON payload is malformed");
+
+        return (Map) result;
+    }
+
+    @NotNull
+    private List<WorkLog> getList(@NotNull List<String> ids) throws JiraException {
+        JSON result = null;
+
+        try {
+            JSONArray list = new JSONArray();
+            for (String id : ids)
+                list.add(Long.valueOf(id));
+
+            JSONObject req = new JSONObject();
+            req.put("ids", list);
+
+            result = restclient.post(Resource.getBaseUri() + "worklog/list", req);
+        } catch (Exception ex) {
+            throw new JiraException("Failed to retrieve worklogs", ex);
+        }
+
+        if (!(result instanceof JSONArray))
+            throw new JiraException("JSON payload is malformed");
+
+        return Field.getResourceArray(WorkLog.class, result, restclient);
+    }
+}
@@ -22,6 +22,7 @@ package net.rcarz.jiraclient.agile;
 import net.rcarz.jiraclient.JiraClient;
 import net.rcarz.jiraclient.JiraException;
 import net.rcarz.jiraclient.RestClient;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
@@ -67,6 +68,16 @@ public class AgileClient {
         return Board.getAll(restClient);
     }
 
+    /**
+     * Iterates lazily over all boards visible to the session user.
+     *
+     * @param pageSize Number of boards requested per page
+     * @return an iterator over the boards
+     */
+    public AgileIterator<Board> iterateBoards(int pageSize) {
+        return Board.iterateAll(restClient, pageSize);
+    }
+
     /**
      * Retrieves the sprint with the given ID.
      *
@@ -111,6 +122,36 @@ public class AgileClient {
         return Epic.get(restClient, id);
     }
 
+    /**
+     * Begins loading a snapshot of all boards, their sprints and the issues
+     * of those sprints.
+     *
+     * @return a snapshot loader
+     */
+    public AgileSnapshot.Loader loadSnapshot() {
+        return new AgileSnapshot.Loader(restClient);
+    }
+
+    /**
+     * Sets which raw attributes the resources retrieved from now on keep for
+     * {@link AgileResource#getAttribute(String)}. The setting belongs to the
+     * REST client of the JIRA client this Agile client was created from;
+     * other clients keep their own.
+     *
+     * @param retention The attribute retention, {@link AttributeRetention#FULL} by default.
+     */
+    public void setAttributeRetention(@NotNull AttributeRetention retention) {
+        AgileResource.setAttributeRetention(restClient, retention);
+    }
+
+    /**
+     * @return The attribute retention applied to new resources.
+     */
+    @NotNull
+    public AttributeRetention getAttributeRetention() {
+        return AgileResource.getAttributeRetention(restClient);
+    }
+
     @Nullable
     public RestClient getRestClient() {
         return restClient;
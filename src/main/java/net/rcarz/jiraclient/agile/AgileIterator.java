@@ -0,0 +1,254 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient.agile;
+
+import net.rcarz.jiraclient.Field;
+import net.rcarz.jiraclient.JiraException;
+import net.rcarz.jiraclient.RestClient;
+import net.rcarz.utils.ConcurrencyUtils;
+import net.sf.json.JSON;
+import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Iterates lazily over a paginated Agile resource list.
+ *
+ * Pages are read with startAt/maxResults and the end is detected from
+ * isLast, total or an empty page, whichever the resource reports. Once the
+ * first page tells the page size and total, up to the configured number of
+ * later pages are requested concurrently in the background. Failures
+ * surface from {@link #hasNext()} as a RuntimeException wrapping the
+ * JiraException.
+ *
+ * @param <T> The type of Agile resource.
+ */
+public class AgileIterator<T extends AgileResource> implements Iterator<T> {
+
+    private static final class Page {
+        int startAt;
+        int maxResults;
+        int total = -1;
+        boolean last;
+        @Nullable
+        JSONObject json;
+    }
+
+    @NotNull
+    private final RestClient restclient;
+    @NotNull
+    private final Class<T> type;
+    @NotNull
+    private final String url;
+    @NotNull
+    private final String listName;
+    @NotNull
+    private final Map<String, String> query;
+    private final int pageSize;
+    private final int prefetch;
+
+    @Nullable
+    private Iterator<T> current = null;
+    @NotNull
+    private final LinkedList<FutureTask<Page>> inflight = new LinkedList<FutureTask<Page>>();
+    @NotNull
+    private final LinkedList<Integer> inflightStarts = new LinkedList<Integer>();
+    private int nextStart = 0;
+    private int scheduled = 0;
+    private int stride;
+    private int total = -1;
+    private boolean exhausted = false;
+
+    /**
+     * @param restclient REST client instance
+     * @param type       The type of the object to deserialize.
+     * @param url        The URL to call.
+     * @param listName   The name of the list of items in the JSON response.
+     * @param query      Additional query parameters sent with every page.
+     * @param pageSize   Number of items requested per page.
+     * @param prefetch   Number of later pages requested in the background.
+     */
+    AgileIterator(@NotNull RestClient restclient, @NotNull Class<T> type, @NotNull String url,
+                  @NotNull String listName, @NotNull Map<String, String> query, int pageSize, int prefetch) {
+        this.restclient = restclient;
+        this.type = type;
+        this.url = url;
+        this.listName = listName;
+        this.query = query;
+        this.pageSize = pageSize;
+        this.prefetch = prefetch;
+        this.stride = pageSize;
+    }
+
+    /**
+     * @return the total reported by the resource, or -1 before the first
+     * page or when the resource does not report it
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (current == null || !current.hasNext()) {
+            if (exhausted)
+                return false;
+
+            try {
+                current = read(take()).iterator();
+            } catch (JiraException ex) {
+                exhausted = true;
+                cancel();
+                throw new RuntimeException(ex);
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        return current.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Method remove() not support for class " +
+                this.getClass().getName());
+    }
+
+    @NotNull
+    private List<T> read(@NotNull Page page) throws JiraException {
+        List<T> values = AgileResource.getResourceArray(type, page.json, restclient, listName);
+
+        if (page.maxResults > 0)
+            stride = page.maxResults;
+        if (page.total >= 0)
+            total = page.total;
+
+        nextStart = page.startAt + values.size();
+        exhausted = page.last || values.isEmpty() || (total >= 0 && nextStart >= total);
+
+        /* a short page moves every later offset, so the pages in flight are stale */
+        if (!inflightStarts.isEmpty() && inflightStarts.getFirst() != nextStart) {
+            cancel();
+            scheduled = nextStart;
+        }
+
+        if (!exhausted)
+            schedule();
+
+        return values;
+    }
+
+    @NotNull
+    private Page take() throws JiraException {
+        if (inflight.isEmpty())
+            return fetch(nextStart, pageSize);
+
+        FutureTask<Page> task = inflight.removeFirst();
+        inflightStarts.removeFirst();
+
+        try {
+            return task.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof JiraException)
+                throw (JiraException) ex.getCause();
+
+            throw new JiraException("Failed to retrieve a list of " + type.getSimpleName() + " : " + url, ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new JiraException("Interrupted while retrieving a list of " + type.getSimpleName(), ex);
+        }
+    }
+
+    private void schedule() {
+        if (scheduled < nextStart)
+            scheduled = nextStart;
+
+        /* without a total, only the next page is known to be worth asking for */
+        int depth = total >= 0 ? prefetch : Math.min(prefetch, 1);
+
+        while (inflight.size() < depth && (total < 0 || scheduled < total)) {
+            final int startAt = scheduled;
+            final int maxResults = stride;
+
+            FutureTask<Page> task = new FutureTask<Page>(new Callable<Page>() {
+                public Page call() throws JiraException {
+                    return fetch(startAt, maxResults);
+                }
+            });
+
+            ConcurrencyUtils.sharedExecutor().execute(task);
+            inflight.add(task);
+            inflightStarts.add(startAt);
+            scheduled += stride;
+        }
+    }
+
+    private void cancel() {
+        for (FutureTask<Page> task : inflight)
+            task.cancel(true);
+
+        inflight.clear();
+        inflightStarts.clear();
+    }
+
+    @NotNull
+    private Page fetch(int startAt, int maxResults) throws JiraException {
+        JSON result;
+
+        try {
+            Map<String, String> params = new HashMap<String, String>(query);
+            params.put("startAt", String.valueOf(startAt));
+            params.put("maxResults", String.valueOf(maxResults));
+            result = restclient.get(url, params);
+        } catch (Exception ex) {
+            throw new JiraException("Failed to retrieve a list of " + type.getSimpleName() + " : " + url, ex);
+        }
+
+        if (!(result instanceof JSONObject))
+            throw new JiraException("JSON payload is malformed");
+
+        JSONObject json = (JSONObject) result;
+        Page page = new Page();
+        page.json = json;
+        page.startAt = json.containsKey("startAt") ? Field.getInteger(json.get("startAt")) : startAt;
+        page.maxResults = Field.getInteger(json.get("maxResults"));
+        page.total = json.containsKey("total") ? Field.getInteger(json.get("total")) : -1;
+        /* a list reporting neither isLast nor total is not paginated */
+        page.last = Boolean.TRUE.equals(json.get("isLast")) ||
+                (!json.containsKey("isLast") && !json.containsKey("total"));
+        return page;
+    }
+}
@@ -31,7 +31,14 @@ import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A base class for Agile resources.
@@ -47,13 +54,28 @@ public abstract class AgileResource {
 
     public static final String RESOURCE_URI = "/rest/agile/1.0/";
 
+    /**
+     * Default number of items requested per page of a list.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    /**
+     * Number of later pages of a list requested in the background.
+     */
+    static final int DEFAULT_PREFETCH = 2;
+
     @Nullable
     private RestClient restclient = null;
     private long id = 0;
     private String name;
     private String self;
-    @NotNull
-    private final JSONObject attributes = new JSONObject();
+    /* allocated on the first retained attribute */
+    @Nullable
+    private JSONObject attributes = null;
+
+    /* per REST client, so one client's slim mode leaves the others alone */
+    private static final Map<RestClient, AttributeRetention> RETENTIONS =
+            Collections.synchronizedMap(new WeakHashMap<RestClient, AttributeRetention>());
 
     /**
      * Creates a new Agile resource.
@@ -69,6 +91,150 @@ public abstract class AgileResource {
         }
     }
 
+    /**
+     * Creates Agile resources of one type from JSON payloads.
+     *
+     * @param <T> The type of Agile resource.
+     */
+    public interface ResourceFactory<T extends AgileResource> {
+
+        /**
+         * @param restclient REST client instance
+         * @param json       JSON payload
+         * @return a new resource
+         * @throws JiraException when the payload cannot be deserialized
+         */
+        T create(RestClient restclient, JSONObject json) throws JiraException;
+    }
+
+    /**
+     * Factories by resource type. Types without a registered factory get one
+     * wrapping their (RestClient, JSONObject) constructor, looked up once.
+     */
+    private static final ConcurrentMap<Class<?>, ResourceFactory<?>> FACTORIES =
+            new ConcurrentHashMap<Class<?>, ResourceFactory<?>>();
+
+    static {
+        register(Board.class, new ResourceFactory<Board>() {
+            public Board create(RestClient restclient, JSONObject json) throws JiraException {
+                return new Board(restclient, json);
+            }
+        });
+        register(Comment.class, new ResourceFactory<Comment>() {
+            public Comment create(RestClient restclient, JSONObject json) throws JiraException {
+                return new Comment(restclient, json);
+            }
+        });
+        register(Epic.class, new ResourceFactory<Epic>() {
+            public Epic create(RestClient restclient, JSONObject json) throws JiraException {
+                return new Epic(restclient, json);
+            }
+        });
+        register(Issue.class, new ResourceFactory<Issue>() {
+            public Issue create(RestClient restclient, JSONObject json) throws JiraException {
+                return new Issue(restclient, json);
+            }
+        });
+        register(IssueType.class, new ResourceFactory<IssueType>() {
+            public IssueType create(RestClient restclient, JSONObject json) throws JiraException {
+                return new IssueType(restclient, json);
+            }
+        });
+        register(Priority.class, new ResourceFactory<Priority>() {
+            public Priority create(RestClient restclient, JSONObject json) throws JiraException {
+                return new Priority(restclient, json);
+            }
+        });
+        register(Project.class, new ResourceFactory<Project>() {
+            public Project create(RestClient restclient, JSONObject json) throws JiraException {
+                return new Project(restclient, json);
+            }
+        });
+        register(Resolution.class, new ResourceFactory<Resolution>() {
+            public Resolution create(RestClient restclient, JSONObject json) throws JiraException {
+                return new Resolution(restclient, json);
+            }
+        });
+        register(Sprint.class, new ResourceFactory<Sprint>() {
+            public Sprint create(RestClient restclient, JSONObject json) throws JiraException {
+                return new Sprint(restclient, json);
+            }
+        });
+        register(Status.class, new ResourceFactory<Status>() {
+            public Status create(RestClient restclient, JSONObject json) throws JiraException {
+                return new Status(restclient, json);
+            }
+        });
+        register(TimeTracking.class, new ResourceFactory<TimeTracking>() {
+            public TimeTracking create(RestClient restclient, JSONObject json) throws JiraException {
+                return new TimeTracking(restclient, json);
+            }
+        });
+        register(User.class, new ResourceFactory<User>() {
+            public User create(RestClient restclient, JSONObject json) throws JiraException {
+                return new User(restclient, json);
+            }
+        });
+        register(Worklog.class, new ResourceFactory<Worklog>() {
+            public Worklog create(RestClient restclient, JSONObject json) throws JiraException {
+                return new Worklog(restclient, json);
+            }
+        });
+    }
+
+    /**
+     * Registers the factory used to deserialize a resource type, replacing
+     * the reflective constructor lookup for subclasses defined elsewhere.
+     *
+     * @param type    Resource data type
+     * @param factory Factory creating instances of the type
+     * @param <T>     The type of Agile resource.
+     */
+    public static <T extends AgileResource> void register(
+            @NotNull Class<T> type, @NotNull ResourceFactory<T> factory) {
+        FACTORIES.put(type, factory);
+    }
+
+    /**
+     * Gets the factory for a resource type.
+     *
+     * @param type Resource data type
+     * @param <T>  The type of Agile resource.
+     * @return the registered factory, or one wrapping the type's constructor
+     * @throws JiraException when the type has no suitable constructor
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    static <T extends AgileResource> ResourceFactory<T> getFactory(@NotNull Class<T> type) throws JiraException {
+        ResourceFactory<T> factory = (ResourceFactory<T>) FACTORIES.get(type);
+
+        if (factory == null) {
+            final Constructor<T> constructor;
+            try {
+                constructor = type.getDeclaredConstructor(RestClient.class, JSONObject.class);
+            } catch (Exception e) {
+                throw new JiraException("Failed to deserialize object.", e);
+            }
+
+            factory = new ResourceFactory<T>() {
+                public T create(RestClient restclient, JSONObject json) throws JiraException {
+                    try {
+                        return constructor.newInstance(restclient, json);
+                    } catch (Exception e) {
+                        throw new JiraException("Failed to deserialize object.", e);
+                    }
+                }
+            };
+
+            ResourceFactory<T> existing = (ResourceFactory<T>) FACTORIES.putIfAbsent(type, factory);
+            if (existing != null) {
+                factory = existing;
+            }
+        }
+
+        return factory;
+    }
+
     /**
      * Gets an Agile resource from the given object.
      *
@@ -90,8 +256,9 @@ public abstract class AgileResource {
 
         if (!((JSONObject) r).isNullObject()) {
             try {
-                Constructor<T> constructor = type.getDeclaredConstructor(RestClient.class, JSONObject.class);
-                result = constructor.newInstance(restclient, r);
+                result = getFactory(type).create(restclient, (JSONObject) r);
+            } catch (JiraException e) {
+                throw e;
             } catch (Exception e) {
                 throw new JiraException("Failed to deserialize object.", e);
             }
@@ -151,7 +318,7 @@ public abstract class AgileResource {
     }
 
     /**
-     * Retrieves all boards visible to the session user.
+     * Retrieves all items of a paginated list, reading every page.
      *
      * @param restclient REST client instance
      * @param type       The type of the object to deserialize.
@@ -163,20 +330,102 @@ public abstract class AgileResource {
     @NotNull
     static <T extends AgileResource> List<T> list(
             @NotNull RestClient restclient, @NotNull Class<T> type, String url, String listName) throws JiraException {
+        return list(restclient, type, url, listName, new HashMap<String, String>());
+    }
+
+    /**
+     * Retrieves all items of a paginated list, reading every page.
+     *
+     * @param restclient REST client instance
+     * @param type       The type of the object to deserialize.
+     * @param url        The URL to call.
+     * @param listName   The name of the list of items in the JSON response.
+     * @param query      Additional query parameters, such as jql or fields.
+     * @return a list of boards
+     * @throws JiraException when the retrieval fails
+     */
+    @NotNull
+    static <T extends AgileResource> List<T> list(
+            @NotNull RestClient restclient, @NotNull Class<T> type, String url, String listName,
+            @NotNull Map<String, String> query) throws JiraException {
+
+        List<T> result = new ArrayList<T>();
 
-        JSON result;
         try {
-            result = restclient.get(url);
-        } catch (Exception ex) {
-            throw new JiraException("Failed to retrieve a list of " + type.getSimpleName() + " : " + url, ex);
+            Iterator<T> it = iterate(restclient, type, url, listName, query, DEFAULT_PAGE_SIZE);
+            while (it.hasNext()) {
+                result.add(it.next());
+            }
+        } catch (RuntimeException ex) {
+            if (ex.getCause() instanceof JiraException) {
+                throw (JiraException) ex.getCause();
+            }
+            throw ex;
         }
 
-        return getResourceArray(
-                type,
-                result,
-                restclient,
-                listName
-        );
+        return result;
+    }
+
+    /**
+     * Iterates lazily over a paginated list.
+     *
+     * @param restclient REST client instance
+     * @param type       The type of the object to deserialize.
+     * @param url        The URL to call.
+     * @param listName   The name of the list of items in the JSON response.
+     * @param pageSize   Number of items requested per page.
+     * @return an iterator requesting later pages in the background
+     */
+    @NotNull
+    static <T extends AgileResource> AgileIterator<T> iterate(
+            @NotNull RestClient restclient, @NotNull Class<T> type, String url, String listName, int pageSize) {
+        return iterate(restclient, type, url, listName, new HashMap<String, String>(), pageSize);
+    }
+
+    /**
+     * Iterates lazily over a paginated list.
+     *
+     * @param restclient REST client instance
+     * @param type       The type of the object to deserialize.
+     * @param url        The URL to call.
+     * @param listName   The name of the list of items in the JSON response.
+     * @param query      Additional query parameters, such as jql or fields.
+     * @param pageSize   Number of items requested per page.
+     * @return an iterator requesting later pages in the background
+     */
+    @NotNull
+    static <T extends AgileResource> AgileIterator<T> iterate(
+            @NotNull RestClient restclient, @NotNull Class<T> type, String url, String listName,
+            @NotNull Map<String, String> query, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return new AgileIterator<T>(restclient, type, url, listName, query, pageSize, DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Builds the query parameters of an issue listing, leaving out the
+     * ones that are not set.
+     *
+     * @param jql            Filters the issues with a JQL query, or null.
+     * @param includedFields Comma-separated fields to return, or null for all.
+     * @param expand         Comma-separated entities to expand, or null.
+     * @return the query parameters
+     */
+    @NotNull
+    static Map<String, String> issueQuery(@Nullable String jql, @Nullable String includedFields,
+                                          @Nullable String expand) {
+        Map<String, String> query = new HashMap<String, String>();
+        if (jql != null) {
+            query.put("jql", jql);
+        }
+        if (includedFields != null) {
+            query.put("fields", includedFields);
+        }
+        if (expand != null) {
+            query.put("expand", expand);
+        }
+        return query;
     }
 
     /**
@@ -286,7 +535,7 @@ public abstract class AgileResource {
      * @return The value of the attribute.
      */
     public Object getAttribute(String name) {
-        return attributes.get(name);
+        return attributes != null ? attributes.get(name) : null;
     }
 
     /**
@@ -309,7 +558,51 @@ public abstract class AgileResource {
      * @param json The json object to extract attributes from.
      */
     void addAttributes(@NotNull JSONObject json) {
-        attributes.putAll(json);
+        AttributeRetention current = getAttributeRetention(restclient);
+
+        switch (current.getMode()) {
+            case FULL:
+                getAttributes().putAll(json);
+                break;
+            case WHITELIST:
+                for (String key : current.getKeys()) {
+                    if (json.containsKey(key)) {
+                        getAttributes().put(key, json.get(key));
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @NotNull
+    private JSONObject getAttributes() {
+        if (attributes == null) {
+            attributes = new JSONObject();
+        }
+        return attributes;
+    }
+
+    /**
+     * Sets which raw attributes resources created from now on through the
+     * given REST client keep. Resources already created are not affected.
+     *
+     * @param restclient REST client instance
+     * @param retention  The attribute retention, {@link AttributeRetention#FULL} by default.
+     */
+    static void setAttributeRetention(@NotNull RestClient restclient, @NotNull AttributeRetention retention) {
+        RETENTIONS.put(restclient, retention);
+    }
+
+    /**
+     * @param restclient REST client instance
+     * @return The attribute retention applied to new resources of the REST client.
+     */
+    @NotNull
+    static AttributeRetention getAttributeRetention(@Nullable RestClient restclient) {
+        AttributeRetention retention = restclient != null ? RETENTIONS.get(restclient) : null;
+        return retention != null ? retention : AttributeRetention.FULL;
     }
 
     long getLong(Object o) {
@@ -0,0 +1,412 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient.agile;
+
+import net.rcarz.jiraclient.Field;
+import net.rcarz.jiraclient.JiraException;
+import net.rcarz.jiraclient.RestClient;
+import net.rcarz.utils.ConcurrencyUtils;
+import net.sf.json.JSON;
+import net.sf.json.JSONObject;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * An in-memory, cross-linked model of boards, their sprints and the issues
+ * of those sprints.
+ *
+ * A snapshot is built by a {@link Loader}, which walks the boards, sprints
+ * and sprint issues concurrently. {@link Loader#refresh(AgileSnapshot)}
+ * builds a new snapshot that reuses the issues of every sprint that has not
+ * changed since the previous one.
+ */
+public final class AgileSnapshot {
+
+    /**
+     * Default number of requests running at the same time.
+     */
+    public static final int DEFAULT_PARALLELISM = 8;
+
+    /**
+     * Sprint states loaded by default.
+     */
+    public static final String DEFAULT_SPRINT_STATES = "active";
+
+    private final long loadedAt;
+    private final int reloadedSprints;
+    @NotNull
+    private final List<Board> boards;
+    @NotNull
+    private final Map<Long, Board> boardsById = new HashMap<Long, Board>();
+    @NotNull
+    private final Map<Long, List<Sprint>> sprintsByBoard;
+    @NotNull
+    private final Map<Long, Sprint> sprintsById = new LinkedHashMap<Long, Sprint>();
+    @NotNull
+    private final Map<Long, List<Board>> boardsBySprint = new HashMap<Long, List<Board>>();
+    @NotNull
+    private final Map<Long, List<Issue>> issuesBySprint;
+    @NotNull
+    private final Map<String, Issue> issuesByKey = new HashMap<String, Issue>();
+    @NotNull
+    private final Map<String, Sprint> sprintsByIssue = new HashMap<String, Sprint>();
+
+    private AgileSnapshot(long loadedAt, int reloadedSprints, @NotNull List<Board> boards,
+                          @NotNull Map<Long, List<Sprint>> sprintsByBoard,
+                          @NotNull Map<Long, List<Issue>> issuesBySprint) {
+        this.loadedAt = loadedAt;
+        this.reloadedSprints = reloadedSprints;
+        this.boards = boards;
+        this.sprintsByBoard = sprintsByBoard;
+        this.issuesBySprint = issuesBySprint;
+
+        for (Board board : boards) {
+            boardsById.put(board.getId(), board);
+
+            List<Sprint> sprints = sprintsByBoard.get(board.getId());
+            if (sprints == null) {
+                continue;
+            }
+
+            for (Sprint sprint : sprints) {
+                if (!sprintsById.containsKey(sprint.getId())) {
+                    sprintsById.put(sprint.getId(), sprint);
+                }
+
+                List<Board> linked = boardsBySprint.get(sprint.getId());
+                if (linked == null) {
+                    linked = new ArrayList<Board>();
+                    boardsBySprint.put(sprint.getId(), linked);
+                }
+                linked.add(board);
+            }
+        }
+
+        for (Map.Entry<Long, List<Issue>> e : issuesBySprint.entrySet()) {
+            for (Issue issue : e.getValue()) {
+                issuesByKey.put(issue.getKey(), issue);
+                sprintsByIssue.put(issue.getKey(), sprintsById.get(e.getKey()));
+            }
+        }
+    }
+
+    /**
+     * @return The time the snapshot was loaded, in milliseconds since the epoch.
+     */
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * @return The number of sprints whose issues were requested for this
+     * snapshot, rather than reused from the previous one.
+     */
+    public int getReloadedSprints() {
+        return reloadedSprints;
+    }
+
+    /**
+     * @return All boards.
+     */
+    @NotNull
+    public List<Board> getBoards() {
+        return Collections.unmodifiableList(boards);
+    }
+
+    /**
+     * @param id Board ID
+     * @return The board, or null when it is not part of the snapshot.
+     */
+    @Nullable
+    public Board getBoard(long id) {
+        return boardsById.get(id);
+    }
+
+    /**
+     * @return All sprints, each once, even when shared by several boards.
+     */
+    @NotNull
+    public Collection<Sprint> getSprints() {
+        return Collections.unmodifiableCollection(sprintsById.values());
+    }
+
+    /**
+     * @param board The board.
+     * @return The loaded sprints of the board.
+     */
+    @NotNull
+    public List<Sprint> getSprints(@NotNull Board board) {
+        List<Sprint> sprints = sprintsByBoard.get(board.getId());
+        return sprints != null ? Collections.unmodifiableList(sprints) : Collections.<Sprint>emptyList();
+    }
+
+    /**
+     * @param id Sprint ID
+     * @return The sprint, or null when it is not part of the snapshot.
+     */
+    @Nullable
+    public Sprint getSprint(long id) {
+        return sprintsById.get(id);
+    }
+
+    /**
+     * @param sprint The sprint.
+     * @return The boards showing the sprint.
+     */
+    @NotNull
+    public List<Board> getBoards(@NotNull Sprint sprint) {
+        List<Board> linked = boardsBySprint.get(sprint.getId());
+        return linked != null ? Collections.unmodifiableList(linked) : Collections.<Board>emptyList();
+    }
+
+    /**
+     * @param sprint The sprint.
+     * @return The issues of the sprint.
+     */
+    @NotNull
+    public List<Issue> getIssues(@NotNull Sprint sprint) {
+        List<Issue> issues = issuesBySprint.get(sprint.getId());
+        return issues != null ? Collections.unmodifiableList(issues) : Collections.<Issue>emptyList();
+    }
+
+    /**
+     * @param key Issue key
+     * @return The issue, or null when it is in none of the loaded sprints.
+     */
+    @Nullable
+    public Issue getIssue(String key) {
+        return issuesByKey.get(key);
+    }
+
+    /**
+     * @param issue The issue.
+     * @return The loaded sprint holding the issue, or null.
+     */
+    @Nullable
+    public Sprint getSprint(@NotNull Issue issue) {
+        return sprintsByIssue.get(issue.getKey());
+    }
+
+    /**
+     * Loads snapshots.
+     */
+    public static final class Loader {
+
+        @NotNull
+        private final RestClient restclient;
+        private int parallelism = DEFAULT_PARALLELISM;
+        @NotNull
+        private String states = DEFAULT_SPRINT_STATES;
+
+        Loader(@NotNull RestClient restclient) {
+            this.restclient = restclient;
+        }
+
+        /**
+         * Sets the number of requests running at the same time.
+         *
+         * @param parallelism Concurrent requests
+         * @return the current loader
+         */
+        @NotNull
+        public Loader parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("Parallelism must be positive");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Sets the states of the sprints to load.
+         *
+         * @param states Comma-separated sprint states: future, active, closed
+         * @return the current loader
+         */
+        @NotNull
+        public Loader sprintStates(@NotNull String states) {
+            this.states = states;
+            return this;
+        }
+
+        /**
+         * Loads a new snapshot.
+         *
+         * @return the snapshot
+         * @throws JiraException when a request fails
+         */
+        @NotNull
+        public AgileSnapshot load() throws JiraException {
+            return build(null);
+        }
+
+        /**
+         * Loads a new snapshot, reusing the issues of every sprint that is
+         * unchanged since the previous snapshot. A sprint counts as changed
+         * when it is new, its state or dates differ, its issue count differs,
+         * or one of its issues was updated since the previous snapshot was
+         * loaded. Issues moved out of a sprint or deleted are caught by the
+         * count, issues moved in by their update time.
+         *
+         * @param previous The previous snapshot.
+         * @return the new snapshot
+         * @throws JiraException when a request fails
+         */
+        @NotNull
+        public AgileSnapshot refresh(@NotNull AgileSnapshot previous) throws JiraException {
+            return build(previous);
+        }
+
+        @NotNull
+        private AgileSnapshot build(@Nullable final AgileSnapshot previous) throws JiraException {
+            long start = System.currentTimeMillis();
+            List<Board> boards = Board.getAll(restclient);
+
+            List<Callable<List<Sprint>>> sprintTasks = new ArrayList<Callable<List<Sprint>>>();
+            final List<Board> scrumBoards = new ArrayList<Board>();
+
+            for (final Board board : boards) {
+                /* only scrum boards have sprints */
+                if (board.getType() != null && !"scrum".equals(board.getType())) {
+                    continue;
+                }
+
+                scrumBoards.add(board);
+                sprintTasks.add(new Callable<List<Sprint>>() {
+                    public List<Sprint> call() throws JiraException {
+                        Map<String, String> query = new HashMap<String, String>();
+                        query.put("state", states);
+                        return AgileResource.list(restclient, Sprint.class,
+                                AgileResource.RESOURCE_URI + "board/" + board.getId() + "/sprint", "values", query);
+                    }
+                });
+            }
+
+            List<List<Sprint>> sprintLists = invokeAll(sprintTasks);
+            Map<Long, List<Sprint>> sprintsByBoard = new LinkedHashMap<Long, List<Sprint>>();
+            Map<Long, Sprint> unique = new LinkedHashMap<Long, Sprint>();
+
+            for (int i = 0; i < scrumBoards.size(); i++) {
+                sprintsByBoard.put(scrumBoards.get(i).getId(), sprintLists.get(i));
+                for (Sprint sprint : sprintLists.get(i)) {
+                    if (!unique.containsKey(sprint.getId())) {
+                        unique.put(sprint.getId(), sprint);
+                    }
+                }
+            }
+
+            /* minutes since the previous load, with a minute of slack for clock skew */
+            final long minutes = previous != null ? (start - previous.loadedAt) / 60000 + 2 : 0;
+            final int[] reloaded = new int[1];
+            List<Callable<List<Issue>>> issueTasks = new ArrayList<Callable<List<Issue>>>();
+
+            for (final Sprint sprint : unique.values()) {
+                issueTasks.add(new Callable<List<Issue>>() {
+                    public List<Issue> call() throws JiraException {
+                        if (previous != null && !isChanged(previous, sprint, minutes)) {
+                            return previous.issuesBySprint.get(sprint.getId());
+                        }
+
+                        synchronized (reloaded) {
+                            reloaded[0]++;
+                        }
+                        return AgileResource.list(restclient, Issue.class,
+                                AgileResource.RESOURCE_URI + "sprint/" + sprint.getId() + "/issue", "issues");
+                    }
+                });
+            }
+
+            List<List<Issue>> issueLists = invokeAll(issueTasks);
+            Map<Long, List<Issue>> issuesBySprint = new LinkedHashMap<Long, List<Issue>>();
+            int i = 0;
+
+            for (Sprint sprint : unique.values()) {
+                issuesBySprint.put(sprint.getId(), issueLists.get(i++));
+            }
+
+            synchronized (reloaded) {
+                return new AgileSnapshot(start, reloaded[0], boards, sprintsByBoard, issuesBySprint);
+            }
+        }
+
+        private boolean isChanged(@NotNull AgileSnapshot previous, @NotNull Sprint sprint, long minutes)
+                throws JiraException {
+            Sprint old = previous.sprintsById.get(sprint.getId());
+
+            if (old == null || !previous.issuesBySprint.containsKey(sprint.getId()) ||
+                    !equal(old.getState(), sprint.getState()) || !equal(old.getStartDate(), sprint.getStartDate()) ||
+                    !equal(old.getEndDate(), sprint.getEndDate()) ||
+                    !equal(old.getCompleteDate(), sprint.getCompleteDate())) {
+                return true;
+            }
+
+            /* issues moved out or deleted leave no updated issue behind, only a smaller count */
+            if (count(sprint, null) != previous.issuesBySprint.get(sprint.getId()).size()) {
+                return true;
+            }
+
+            return count(sprint, "updated >= -" + minutes + "m") > 0;
+        }
+
+        private int count(@NotNull Sprint sprint, @Nullable String jql) throws JiraException {
+            JSON result;
+            try {
+                Map<String, String> query = new HashMap<String, String>();
+                if (jql != null) {
+                    query.put("jql", jql);
+                }
+                query.put("fields", "key");
+                query.put("maxResults", "1");
+                result = restclient.get(AgileResource.RESOURCE_URI + "sprint/" + sprint.getId() + "/issue", query);
+            } catch (Exception ex) {
+                throw new JiraException("Failed to check sprint " + sprint.getId() + " for changes", ex);
+            }
+
+            if (!(result instanceof JSONObject)) {
+                throw new JiraException("JSON payload is malformed");
+            }
+
+            return Field.getInteger(((JSONObject) result).get("total"));
+        }
+
+        private static boolean equal(@Nullable Object a, @Nullable Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        @NotNull
+        private <T> List<T> invokeAll(@NotNull List<Callable<T>> tasks) throws JiraException {
+            try {
+                return ConcurrencyUtils.invokeAll(tasks, parallelism);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof JiraException) {
+                    throw (JiraException) ex.getCause();
+                }
+                throw new JiraException("Failed to load agile snapshot", ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new JiraException("Interrupted while loading agile snapshot", ex);
+            }
+        }
+    }
+}
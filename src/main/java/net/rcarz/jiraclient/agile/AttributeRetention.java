@@ -0,0 +1,100 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient.agile;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Decides which raw JSON attributes an Agile resource keeps for
+ * {@link AgileResource#getAttribute(String)}, on top of its decoded fields.
+ *
+ * Keeping every attribute, the default, roughly doubles the memory held by
+ * each resource. Applications holding many boards in memory can keep only
+ * the attributes they read, or none at all.
+ *
+ * @see AgileClient#setAttributeRetention(AttributeRetention)
+ */
+public final class AttributeRetention {
+
+    /**
+     * The retention modes.
+     */
+    public enum Mode {
+        /** Keep no attributes. */
+        NONE,
+        /** Keep only the listed attributes. */
+        WHITELIST,
+        /** Keep every attribute. */
+        FULL
+    }
+
+    /**
+     * Keeps every attribute.
+     */
+    public static final AttributeRetention FULL = new AttributeRetention(Mode.FULL, Collections.<String>emptySet());
+
+    /**
+     * Keeps no attributes.
+     */
+    public static final AttributeRetention NONE = new AttributeRetention(Mode.NONE, Collections.<String>emptySet());
+
+    @NotNull
+    private final Mode mode;
+    @NotNull
+    private final Set<String> keys;
+
+    private AttributeRetention(@NotNull Mode mode, @NotNull Set<String> keys) {
+        this.mode = mode;
+        this.keys = keys;
+    }
+
+    /**
+     * Keeps only the given attributes.
+     *
+     * @param keys Names of the attributes to keep
+     * @return a whitelist retention
+     */
+    @NotNull
+    public static AttributeRetention only(@NotNull String... keys) {
+        return new AttributeRetention(Mode.WHITELIST,
+                Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(keys))));
+    }
+
+    /**
+     * @return The retention mode.
+     */
+    @NotNull
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return The attributes kept in whitelist mode.
+     */
+    @NotNull
+    public Set<String> getKeys() {
+        return keys;
+    }
+}
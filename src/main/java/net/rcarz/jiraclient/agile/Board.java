@@ -69,6 +69,17 @@ public class Board extends AgileResource {
         return AgileResource.list(restclient, Board.class, RESOURCE_URI + "board");
     }
 
+    /**
+     * Iterates lazily over all boards visible to the session user.
+     *
+     * @param restclient REST client instance
+     * @param pageSize   Number of boards requested per page
+     * @return an iterator over the boards
+     */
+    public static AgileIterator<Board> iterateAll(RestClient restclient, int pageSize) {
+        return AgileResource.iterate(restclient, Board.class, RESOURCE_URI + "board", "values", pageSize);
+    }
+
     @Override
     protected void deserialize(@NotNull JSONObject json) throws JiraException {
         super.deserialize(json);
@@ -98,6 +109,26 @@ public class Board extends AgileResource {
         return AgileResource.list(getRestclient(), Issue.class, RESOURCE_URI + "board/" + getId() + "/backlog", "issues");
     }
 
+    /**
+     * @param jql            Filters the issues with a JQL query, or null.
+     * @param includedFields Comma-separated fields to return, or null for all.
+     * @param expand         Comma-separated entities to expand, or null.
+     * @return The matching issues in the Board backlog.
+     * @throws JiraException when the retrieval fails
+     */
+    public List<Issue> getBacklog(String jql, String includedFields, String expand) throws JiraException {
+        return AgileResource.list(getRestclient(), Issue.class, RESOURCE_URI + "board/" + getId() + "/backlog", "issues",
+                AgileResource.issueQuery(jql, includedFields, expand));
+    }
+
+    /**
+     * @param pageSize Number of issues requested per page
+     * @return An iterator over the issues in the Board backlog.
+     */
+    public AgileIterator<Issue> iterateBacklog(int pageSize) {
+        return AgileResource.iterate(getRestclient(), Issue.class, RESOURCE_URI + "board/" + getId() + "/backlog", "issues", pageSize);
+    }
+
     /**
      * @return All issues without epic in the Board .
      * @throws JiraException when the retrieval fails
@@ -106,6 +137,18 @@ public class Board extends AgileResource {
         return AgileResource.list(getRestclient(), Issue.class, RESOURCE_URI + "board/" + getId() + "/epic/none/issue", "issues");
     }
 
+    /**
+     * @param jql            Filters the issues with a JQL query, or null.
+     * @param includedFields Comma-separated fields to return, or null for all.
+     * @param expand         Comma-separated entities to expand, or null.
+     * @return The matching issues without epic in the Board.
+     * @throws JiraException when the retrieval fails
+     */
+    public List<Issue> getIssuesWithoutEpic(String jql, String includedFields, String expand) throws JiraException {
+        return AgileResource.list(getRestclient(), Issue.class, RESOURCE_URI + "board/" + getId() + "/epic/none/issue", "issues",
+                AgileResource.issueQuery(jql, includedFields, expand));
+    }
+
     /**
      * @return All epics associated to the Board.
      * @throws JiraException when the retrieval fails
@@ -81,6 +81,26 @@ public class Epic extends AgileResource {
         return AgileResource.list(getRestclient(), Issue.class, RESOURCE_URI + "epic/" + getId() + "/issue", "issues");
     }
 
+    /**
+     * @param jql            Filters the issues with a JQL query, or null.
+     * @param includedFields Comma-separated fields to return, or null for all.
+     * @param expand         Comma-separated entities to expand, or null.
+     * @return The matching issues in the Epic.
+     * @throws JiraException when the retrieval fails
+     */
+    public List<Issue> getIssues(String jql, String includedFields, String expand) throws JiraException {
+        return AgileResource.list(getRestclient(), Issue.class, RESOURCE_URI + "epic/" + getId() + "/issue", "issues",
+                AgileResource.issueQuery(jql, includedFields, expand));
+    }
+
+    /**
+     * @param pageSize Number of issues requested per page
+     * @return An iterator over the issues in the Epic.
+     */
+    public AgileIterator<Issue> iterateIssues(int pageSize) {
+        return AgileResource.iterate(getRestclient(), Issue.class, RESOURCE_URI + "epic/" + getId() + "/issue", "issues", pageSize);
+    }
+
     /**
      * Deserialize the json to extract standard attributes and keep a reference of
      * other attributes.
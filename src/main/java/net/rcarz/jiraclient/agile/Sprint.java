@@ -83,6 +83,26 @@ public class Sprint extends AgileResource {
         return AgileResource.list(getRestclient(), Issue.class, RESOURCE_URI + "sprint/" + getId() + "/issue", "issues");
     }
 
+    /**
+     * @param jql            Filters the issues with a JQL query, or null.
+     * @param includedFields Comma-separated fields to return, or null for all.
+     * @param expand         Comma-separated entities to expand, or null.
+     * @return The matching issues in the Sprint.
+     * @throws JiraException when the retrieval fails
+     */
+    public List<Issue> getIssues(String jql, String includedFields, String expand) throws JiraException {
+        return AgileResource.list(getRestclient(), Issue.class, RESOURCE_URI + "sprint/" + getId() + "/issue", "issues",
+                AgileResource.issueQuery(jql, includedFields, expand));
+    }
+
+    /**
+     * @param pageSize Number of issues requested per page
+     * @return An iterator over the issues in the Sprint.
+     */
+    public AgileIterator<Issue> iterateIssues(int pageSize) {
+        return AgileResource.iterate(getRestclient(), Issue.class, RESOURCE_URI + "sprint/" + getId() + "/issue", "issues", pageSize);
+    }
+
     @Override
     protected void deserialize(@NotNull JSONObject json) throws JiraException {
         super.deserialize(json);
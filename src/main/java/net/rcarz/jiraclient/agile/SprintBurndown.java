@@ -0,0 +1,580 @@
+/**
+ * jira-client - a simple JIRA REST client
+ * Copyright (c) 2013 Bob Carroll (bob.carroll@alum.rit.edu)
+ * <p>
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ * <p>
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * <p>
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package net.rcarz.jiraclient.agile;
+
+import net.rcarz.jiraclient.ChangeLogHarvester;
+import net.rcarz.jiraclient.Field;
+import net.rcarz.jiraclient.IssueHistory;
+import net.rcarz.jiraclient.IssueHistoryItem;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Computes the daily burndown and burnup series of a sprint from the status,
+ * estimate and sprint changes of its issues.
+ *
+ * Changes are kept per issue as they are added, and the daily values are
+ * cached. Adding more history only invalidates the days from the earliest
+ * new change onwards, and histories that were already added are skipped, so
+ * a refresh with the changelogs of recently updated issues only recomputes
+ * the days they touch.
+ *
+ * <pre>
+ * SprintBurndown burndown = new SprintBurndown(sprint).done("Done", "Closed");
+ *
+ * jira.harvestChangeLogs("sprint = " + sprint.getId())
+ *     .fields("status,timeestimate,created")
+ *     .execute(burndown);
+ * SprintBurndown.Chart chart = burndown.compute(new Date());
+ * </pre>
+ */
+public final class SprintBurndown implements ChangeLogHarvester.Handler {
+
+    /**
+     * Name of the changelog field recording sprint membership.
+     */
+    public static final String SPRINT_FIELD = "Sprint";
+
+    /**
+     * Statuses counted as complete when none are named.
+     */
+    private static final String[] DEFAULT_DONE = new String[] { "Done", "Closed", "Resolved" };
+
+    private final long sprintId;
+    private final long start;
+    @Nullable
+    private final Long end;
+    @NotNull
+    private final Set<String> done = new HashSet<String>();
+    @NotNull
+    private String estimateField = Field.TIME_ESTIMATE;
+    @NotNull
+    private TimeZone timeZone = TimeZone.getDefault();
+    @NotNull
+    private final Map<String, Track> tracks = new LinkedHashMap<String, Track>();
+    private int changes = 0;
+
+    /* day d covers [dayStarts[d], dayStarts[d + 1]); days before valid are cached */
+    @NotNull
+    private final List<Long> dayStarts = new ArrayList<Long>();
+    @NotNull
+    private double[] remaining = new double[16];
+    @NotNull
+    private double[] scope = new double[16];
+    @NotNull
+    private double[] completed = new double[16];
+    private int valid = 0;
+    private long dirtySince = Long.MAX_VALUE;
+
+    /**
+     * Values of one issue property over time.
+     */
+    private static final class Steps<T> {
+        @Nullable
+        T initial;
+        @NotNull
+        final List<Long> times = new ArrayList<Long>();
+        @NotNull
+        final List<T> values = new ArrayList<T>();
+
+        /**
+         * @return true when the value before the first change was replaced
+         */
+        boolean add(long time, @Nullable T from, @Nullable T to) {
+            int i = times.size();
+            while (i > 0 && times.get(i - 1) > time)
+                i--;
+
+            times.add(i, time);
+            values.add(i, to);
+
+            if (i == 0 && !equal(initial, from)) {
+                initial = from;
+                return true;
+            }
+            return false;
+        }
+
+        @Nullable
+        T at(long time) {
+            int lo = 0, hi = times.size() - 1, found = -1;
+
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (times.get(mid) <= time) {
+                    found = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+
+            return found < 0 ? initial : values.get(found);
+        }
+    }
+
+    /**
+     * Changes of one issue.
+     */
+    private static final class Track {
+        @Nullable
+        Long created;
+        @NotNull
+        final Steps<String> status = new Steps<String>();
+        @NotNull
+        final Steps<Double> estimate = new Steps<Double>();
+        @NotNull
+        final Steps<Boolean> member = new Steps<Boolean>();
+        @NotNull
+        final Set<String> seen = new HashSet<String>();
+    }
+
+    /**
+     * Work of the sprint at the end of one day.
+     */
+    public static final class Point {
+        @NotNull
+        private final Date day;
+        private final double remaining;
+        private final double scope;
+        private final double completed;
+
+        Point(@NotNull Date day, double remaining, double scope, double completed) {
+            this.day = day;
+            this.remaining = remaining;
+            this.scope = scope;
+            this.completed = completed;
+        }
+
+        /**
+         * @return the start of the day
+         */
+        @NotNull
+        public Date getDay() {
+            return day;
+        }
+
+        /**
+         * @return estimate of the incomplete issues in the sprint
+         */
+        public double getRemaining() {
+            return remaining;
+        }
+
+        /**
+         * @return estimate of all issues in the sprint
+         */
+        public double getScope() {
+            return scope;
+        }
+
+        /**
+         * @return estimate of the complete issues in the sprint
+         */
+        public double getCompleted() {
+            return completed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%tF remaining=%.1f scope=%.1f completed=%.1f", day, remaining, scope, completed);
+        }
+    }
+
+    /**
+     * Daily series of a sprint.
+     */
+    public static final class Chart {
+        @NotNull
+        private final List<Point> points;
+        private final double committed;
+        private final int recomputedDays;
+
+        Chart(@NotNull List<Point> points, double committed, int recomputedDays) {
+            this.points = points;
+            this.committed = committed;
+            this.recomputedDays = recomputedDays;
+        }
+
+        /**
+         * @return one point per day from the sprint start, oldest first
+         */
+        @NotNull
+        public List<Point> getPoints() {
+            return Collections.unmodifiableList(points);
+        }
+
+        /**
+         * @return the scope at the moment the sprint started
+         */
+        public double getCommitted() {
+            return committed;
+        }
+
+        /**
+         * @return number of days computed for this chart rather than read from the cache
+         */
+        public int getRecomputedDays() {
+            return recomputedDays;
+        }
+    }
+
+    /**
+     * Creates a burndown for an agile sprint.
+     *
+     * @param sprint The sprint, which must have a start date.
+     */
+    public SprintBurndown(@NotNull Sprint sprint) {
+        this(sprint.getId(), sprint.getStartDate(),
+                sprint.getCompleteDate() != null ? sprint.getCompleteDate() : sprint.getEndDate());
+    }
+
+    /**
+     * Creates a burndown for a sprint.
+     *
+     * @param sprintId ID of the sprint, used to follow changes of the sprint
+     *                 field, or zero to ignore them
+     * @param start    Start of the sprint
+     * @param end      End of the sprint, or null to chart until now
+     */
+    public SprintBurndown(long sprintId, @Nullable Date start, @Nullable Date end) {
+        if (start == null)
+            throw new IllegalArgumentException("Sprint has no start date");
+
+        this.sprintId = sprintId;
+        this.start = start.getTime();
+        this.end = end != null ? end.getTime() : null;
+    }
+
+    /**
+     * Names the statuses that mark an issue as complete. Without any, Done,
+     * Closed and Resolved are used.
+     *
+     * @param statuses Status names
+     *
+     * @return the current burndown
+     */
+    @NotNull
+    public synchronized SprintBurndown done(@NotNull String... statuses) {
+        done.addAll(Arrays.asList(statuses));
+        invalidate();
+        return this;
+    }
+
+    /**
+     * Names the changelog field holding the estimate, such as "Story Points".
+     * Defaults to the remaining time estimate, in seconds. Must be set before
+     * any issue is added.
+     *
+     * @param field Changelog field name
+     *
+     * @return the current burndown
+     */
+    @NotNull
+    public synchronized SprintBurndown estimateField(@NotNull String field) {
+        if (!tracks.isEmpty())
+            throw new IllegalStateException("Estimate field must be set before adding issues");
+
+        this.estimateField = field;
+        return this;
+    }
+
+    /**
+     * Sets the time zone in which days start.
+     *
+     * @param timeZone Time zone
+     *
+     * @return the current burndown
+     */
+    @NotNull
+    public synchronized SprintBurndown timeZone(@NotNull TimeZone timeZone) {
+        this.timeZone = timeZone;
+        dayStarts.clear();
+        invalidate();
+        return this;
+    }
+
+    /**
+     * Adds an issue harvested with its status, remaining estimate and
+     * creation date.
+     *
+     * @param issue Issue
+     * @param histories Histories of the issue
+     */
+    public void handle(@NotNull net.rcarz.jiraclient.Issue issue, @NotNull List<IssueHistory> histories) {
+        Double estimate = null;
+        if (Field.TIME_ESTIMATE.equals(estimateField) && issue.getTimeEstimate() != null)
+            estimate = issue.getTimeEstimate().doubleValue();
+
+        add(issue.getKey(), issue.getCreatedDate(),
+                issue.getStatus() != null ? issue.getStatus().getName() : null, estimate, histories);
+    }
+
+    /**
+     * Adds an agile issue, using its remaining time estimate.
+     *
+     * @param issue Issue
+     * @param histories Histories of the issue
+     */
+    public void add(@NotNull Issue issue, @NotNull List<IssueHistory> histories) {
+        Double estimate = null;
+        if (Field.TIME_ESTIMATE.equals(estimateField) && issue.getTimeTracking() != null)
+            estimate = (double) issue.getTimeTracking().getRemainingEstimateSeconds();
+
+        add(issue.getKey(), issue.getCreated(),
+                issue.getStatus() != null ? issue.getStatus().getName() : null, estimate, histories);
+    }
+
+    /**
+     * Adds an issue, or the new histories of an issue added before.
+     *
+     * Histories with an ID that was already added for the issue are skipped.
+     * The current status and estimate are only used for a new issue, and
+     * only until a change of them is known.
+     *
+     * @param key Issue key
+     * @param created Creation time of the issue, or null
+     * @param status Current status name
+     * @param estimate Current estimate
+     * @param histories Histories of the issue, in any order
+     */
+    public synchronized void add(@NotNull String key, @Nullable Date created, @Nullable String status,
+                                 @Nullable Double estimate, @NotNull List<IssueHistory> histories) {
+        Track track = tracks.get(key);
+
+        if (track == null) {
+            track = new Track();
+            track.created = created != null ? created.getTime() : null;
+            track.status.initial = status;
+            track.estimate.initial = estimate;
+            track.member.initial = Boolean.TRUE;
+            tracks.put(key, track);
+            dirtySince = Long.MIN_VALUE;
+        }
+
+        for (IssueHistory history : histories) {
+            if (history.getCreated() == null || history.getChanges() == null)
+                continue;
+
+            if (history.getId() != null && !track.seen.add(history.getId()))
+                continue;
+
+            long time = history.getCreated().getTime();
+
+            for (IssueHistoryItem item : history.getChanges()) {
+                boolean reset;
+
+                if (Field.STATUS.equals(item.getField())) {
+                    reset = track.status.add(time, item.getFromStr(), item.getToStr());
+                } else if (estimateField.equals(item.getField())) {
+                    reset = track.estimate.add(time, number(item.getFrom(), item.getFromStr()),
+                            number(item.getTo(), item.getToStr()));
+                } else if (SPRINT_FIELD.equals(item.getField()) && sprintId > 0) {
+                    reset = track.member.add(time, contains(item.getFrom()), contains(item.getTo()));
+                } else {
+                    continue;
+                }
+
+                changes++;
+                dirtySince = Math.min(dirtySince, reset ? Long.MIN_VALUE : time);
+            }
+        }
+    }
+
+    /**
+     * @return number of issues added
+     */
+    public synchronized int getIssueCount() {
+        return tracks.size();
+    }
+
+    /**
+     * @return number of changes held
+     */
+    public synchronized int getChangeCount() {
+        return changes;
+    }
+
+    /**
+     * Computes the daily series from the sprint start until the sprint end
+     * or now, whichever comes first. Only the days after the last complete
+     * day of the previous computation, or touched by changes added since,
+     * are computed again.
+     *
+     * @param now Current time
+     *
+     * @return the chart
+     */
+    @NotNull
+    public synchronized Chart compute(@NotNull Date now) {
+        long until = end != null ? Math.min(end, now.getTime()) : now.getTime();
+        int days = extendDays(until);
+
+        if (dirtySince != Long.MAX_VALUE) {
+            valid = Math.min(valid, dayOf(dirtySince));
+            dirtySince = Long.MAX_VALUE;
+        }
+
+        int from = Math.min(valid, days);
+
+        for (int d = from; d < days; d++) {
+            long sample = Math.min(dayStarts.get(d + 1) - 1, until);
+            double[] totals = totals(sample);
+            remaining[d] = totals[0];
+            scope[d] = totals[1];
+            completed[d] = totals[2];
+        }
+
+        /* the last day stays open while it has not ended */
+        valid = days > 0 && dayStarts.get(days) > until ? days - 1 : days;
+
+        List<Point> points = new ArrayList<Point>(days);
+        for (int d = 0; d < days; d++)
+            points.add(new Point(new Date(dayStarts.get(d)), remaining[d], scope[d], completed[d]));
+
+        return new Chart(points, totals(start)[1], days - from);
+    }
+
+    /**
+     * Sums the estimates of the issues in the sprint at a moment.
+     *
+     * @return remaining, scope and completed work
+     */
+    @NotNull
+    private double[] totals(long time) {
+        double[] totals = new double[3];
+
+        for (Track track : tracks.values()) {
+            if (track.created != null && track.created > time)
+                continue;
+
+            if (!Boolean.TRUE.equals(track.member.at(time)))
+                continue;
+
+            Double estimate = track.estimate.at(time);
+            double work = estimate != null ? estimate : 0;
+
+            totals[1] += work;
+            if (isDone(track.status.at(time)))
+                totals[2] += work;
+            else
+                totals[0] += work;
+        }
+
+        return totals;
+    }
+
+    private boolean isDone(@Nullable String status) {
+        if (status == null)
+            return false;
+
+        if (done.isEmpty())
+            return Arrays.asList(DEFAULT_DONE).contains(status);
+
+        return done.contains(status);
+    }
+
+    /**
+     * Adds day boundaries until the day holding the given time.
+     *
+     * @return the number of days from the sprint start to the given time
+     */
+    private int extendDays(long until) {
+        Calendar cal = Calendar.getInstance(timeZone);
+
+        if (dayStarts.isEmpty()) {
+            cal.setTimeInMillis(start);
+            cal.set(Calendar.HOUR_OF_DAY, 0);
+            cal.set(Calendar.MINUTE, 0);
+            cal.set(Calendar.SECOND, 0);
+            cal.set(Calendar.MILLISECOND, 0);
+            dayStarts.add(cal.getTimeInMillis());
+        }
+
+        while (dayStarts.get(dayStarts.size() - 1) <= until) {
+            cal.setTimeInMillis(dayStarts.get(dayStarts.size() - 1));
+            cal.add(Calendar.DAY_OF_MONTH, 1);
+            dayStarts.add(cal.getTimeInMillis());
+        }
+
+        int days = 0;
+        while (days + 1 < dayStarts.size() && dayStarts.get(days) <= until)
+            days++;
+
+        if (days > remaining.length) {
+            int size = Math.max(days, remaining.length * 2);
+            remaining = Arrays.copyOf(remaining, size);
+            scope = Arrays.copyOf(scope, size);
+            completed = Arrays.copyOf(completed, size);
+        }
+
+        return days;
+    }
+
+    /**
+     * @return the day holding the given time, zero for times before the sprint
+     */
+    private int dayOf(long time) {
+        int d = 0;
+        while (d + 1 < dayStarts.size() && dayStarts.get(d + 1) <= time)
+            d++;
+        return d;
+    }
+
+    private void invalidate() {
+        valid = 0;
+        dirtySince = Long.MAX_VALUE;
+    }
+
+    /**
+     * @return whether a comma-separated list of sprint IDs holds this sprint
+     */
+    @NotNull
+    private Boolean contains(@Nullable String sprints) {
+        if (sprints != null) {
+            for (String id : sprints.split(",")) {
+                if (id.trim().equals(String.valueOf(sprintId)))
+                    return Boolean.TRUE;
+            }
+        }
+        return Boolean.FALSE;
+    }
+
+    @Nullable
+    private static Double number(@Nullable String raw, @Nullable String display) {
+        for (String value : new String[] { raw, display }) {
+            if (value == null || value.trim().length() == 0)
+                continue;
+
+            try {
+                return Double.valueOf(value.trim());
+            } catch (NumberFormatException ex) {
+                // try the next form
+            }
+        }
+        return null;
+    }
+
+    private static boolean equal(@Nullable Object a, @Nullable Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,135 @@
+package net.rcarz.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A set of static helpers for running independent REST calls side by side
+ * with a bounded number of threads.
+ */
+public class ConcurrencyUtils {
+
+    /**
+     * Number of threads shared by all background page prefetches.
+     */
+    public static final int SHARED_THREADS = 8;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    /**
+     * Holds the shared executor, so it is only created when first used.
+     */
+    private static final class Shared {
+        static final ExecutorService EXECUTOR;
+
+        static {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(SHARED_THREADS, SHARED_THREADS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), newThreadFactory());
+            executor.allowCoreThreadTimeOut(true);
+            EXECUTOR = executor;
+        }
+    }
+
+    /**
+     * Runs the given tasks with at most <code>parallelism</code> of them in
+     * flight and returns their results in task order.
+     *
+     * When there is only one task, or parallelism is one or less, the tasks
+     * run on the calling thread. Otherwise a short-lived pool is created and
+     * shut down before returning. The first failing task cancels the rest.
+     *
+     * @param tasks Tasks to run
+     * @param parallelism Maximum number of tasks to run at once
+     *
+     * @return the task results, in the same order as the tasks
+     *
+     * @throws ExecutionException when a task throws
+     * @throws InterruptedException when the calling thread is interrupted
+     */
+    public static <T> List<T> invokeAll(Collection<? extends Callable<T>> tasks, int parallelism)
+            throws ExecutionException, InterruptedException {
+
+        List<T> results = new ArrayList<T>(tasks.size());
+
+        if (tasks.size() <= 1 || parallelism <= 1) {
+            for (Callable<T> task : tasks) {
+                try {
+                    results.add(task.call());
+                } catch (Exception ex) {
+                    throw new ExecutionException(ex);
+                }
+            }
+            return results;
+        }
+
+        ExecutorService executor = newExecutor(Math.min(parallelism, tasks.size()));
+        List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+
+        try {
+            for (Callable<T> task : tasks)
+                futures.add(executor.submit(task));
+
+            for (Future<T> future : futures)
+                results.add(future.get());
+        } finally {
+            for (Future<T> future : futures)
+                future.cancel(true);
+
+            executor.shutdownNow();
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns the executor shared by background page prefetches. It runs at
+     * most {@link #SHARED_THREADS} tasks at once across all iterators and
+     * views, queueing the rest, and lets its daemon threads exit when idle.
+     *
+     * Tasks given to it must not wait on other tasks of the same executor.
+     *
+     * @return the shared executor
+     */
+    public static Executor sharedExecutor() {
+        return Shared.EXECUTOR;
+    }
+
+    /**
+     * Creates a fixed-size pool of daemon threads, so an abandoned pool never
+     * keeps the JVM alive.
+     *
+     * @param threads Number of threads
+     *
+     * @return a new executor service
+     */
+    public static ExecutorService newExecutor(int threads) {
+        return Executors.newFixedThreadPool(Math.max(1, threads), newThreadFactory());
+    }
+
+    /**
+     * Creates a thread factory for named daemon threads.
+     *
+     * @return a new thread factory
+     */
+    public static ThreadFactory newThreadFactory() {
+        return new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "jira-client-" + THREAD_COUNTER.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+}
@@ -7,6 +7,8 @@ import org.hamcrest.core.IsNull
 import org.junit.Test
 
 import static org.junit.Assert.assertThat
+import static org.mockito.Matchers.anyMap
+import static org.mockito.Matchers.eq
 import static org.mockito.Mockito.when
 
 /**
@@ -18,7 +20,7 @@ class AgileClientTest extends AbstractResourceTest {
     @Test
     void "Given an agileClient, when calling getBoards(), then receive a list of Board."() {
         "given an Agile Client"()
-        when(mockRestClient.get(AgileResource.RESOURCE_URI + "board"))
+        when(mockRestClient.get(eq(AgileResource.RESOURCE_URI + "board"), anyMap()))
                 .thenReturn(JSONSerializer.toJSON(JSONResources.LIST_OF_BOARDS))
 
         List<Board> boards = agileClient.getBoards()
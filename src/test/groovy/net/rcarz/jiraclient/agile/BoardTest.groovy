@@ -13,6 +13,8 @@ import org.junit.Test
 import org.junit.rules.ExpectedException
 
 import static org.junit.Assert.assertThat
+import static org.mockito.Matchers.anyMap
+import static org.mockito.Matchers.eq
 import static org.mockito.Mockito.when
 
 /**
@@ -27,7 +29,7 @@ class BoardTest extends AbstractResourceTest {
     @Test
     void "Given a RestClient, when calling getAll(), then receive a list of Board."() {
         RestClient mockRestClient = "given a REST Client"()
-        when(mockRestClient.get(AgileResource.RESOURCE_URI + "board"))
+        when(mockRestClient.get(eq(AgileResource.RESOURCE_URI + "board"), anyMap()))
                 .thenReturn(JSONSerializer.toJSON(JSONResources.LIST_OF_BOARDS))
 
         List<Board> boards = Board.getAll(mockRestClient)
@@ -41,7 +43,7 @@ class BoardTest extends AbstractResourceTest {
     void "Given a RestClient, when calling getAll() and use doesn't have access, then throws an 401 error."() {
         RestException unauthorized = new RestException("Do not have access", 401, "Unauthorized", [])
         RestClient mockRestClient = "given a REST Client"()
-        when(mockRestClient.get(AgileResource.RESOURCE_URI + "board"))
+        when(mockRestClient.get(eq(AgileResource.RESOURCE_URI + "board"), anyMap()))
                 .thenThrow(unauthorized)
         expectedException.expect(JiraException.class)
         expectedException.expectMessage("Failed to retrieve a list of Board : /rest/agile/1.0/board")
@@ -76,7 +78,7 @@ class BoardTest extends AbstractResourceTest {
     void "Given a valid Board, when calling getSprints(), then receive a list of Sprints."() {
         RestClient mockRestClient = "given a REST Client"()
         Board mockBoard = new Board(mockRestClient, JSONSerializer.toJSON(JSONResources.BOARD) as JSONObject)
-        when(mockRestClient.get(AgileResource.RESOURCE_URI + "board/${JSONResources.BOARD_ID}/sprint"))
+        when(mockRestClient.get(eq(AgileResource.RESOURCE_URI + "board/${JSONResources.BOARD_ID}/sprint"), anyMap()))
                 .thenReturn(JSONSerializer.toJSON(JSONResources.LIST_OF_SPRINTS))
 
         List<Sprint> sprints = mockBoard.getSprints()
@@ -90,8 +92,9 @@ class BoardTest extends AbstractResourceTest {
     void "Given a valid Board, when calling getEpics(), then receive a list of Epics."() {
         RestClient mockRestClient = "given a REST Client"()
         Board mockBoard = new Board(mockRestClient, JSONSerializer.toJSON(JSONResources.BOARD) as JSONObject)
-        when(mockRestClient.get(AgileResource.RESOURCE_URI + "board/${JSONResources.BOARD_ID}/epic"))
+        when(mockRestClient.get(eq(AgileResource.RESOURCE_URI + "board/${JSONResources.BOARD_ID}/epic"), anyMap()))
                 .thenReturn(JSONSerializer.toJSON(JSONResources.LIST_OF_EPICS))
+                .thenReturn(JSONSerializer.toJSON('{"startAt": 3, "maxResults": 2, "total": 5, "isLast": true, "values": []}'))
 
         List<Epic> epics = mockBoard.getEpics()
 
@@ -104,7 +107,7 @@ class BoardTest extends AbstractResourceTest {
     void "Given a valid Board, when calling getBacklog(), then receive a list of Issues."() {
         RestClient mockRestClient = "given a REST Client"()
         Board mockBoard = new Board(mockRestClient, JSONSerializer.toJSON(JSONResources.BOARD) as JSONObject)
-        when(mockRestClient.get(AgileResource.RESOURCE_URI + "board/${JSONResources.BOARD_ID}/backlog"))
+        when(mockRestClient.get(eq(AgileResource.RESOURCE_URI + "board/${JSONResources.BOARD_ID}/backlog"), anyMap()))
                 .thenReturn(JSONSerializer.toJSON(JSONResources.LIST_OF_ISSUES))
 
         List<Issue> backlog = mockBoard.getBacklog()
@@ -118,7 +121,7 @@ class BoardTest extends AbstractResourceTest {
     void "Given a valid Board, when calling getIssuesWithoutEpic(), then receive a list of Issues."() {
         RestClient mockRestClient = "given a REST Client"()
         Board mockBoard = new Board(mockRestClient, JSONSerializer.toJSON(JSONResources.BOARD) as JSONObject)
-        when(mockRestClient.get(AgileResource.RESOURCE_URI + "board/${JSONResources.BOARD_ID}/epic/none/issue"))
+        when(mockRestClient.get(eq(AgileResource.RESOURCE_URI + "board/${JSONResources.BOARD_ID}/epic/none/issue"), anyMap()))
                 .thenReturn(JSONSerializer.toJSON(JSONResources.LIST_OF_ISSUES))
 
         List<Issue> issues = mockBoard.getIssuesWithoutEpic()
@@ -13,6 +13,8 @@ import org.junit.Test
 import org.junit.rules.ExpectedException
 
 import static org.junit.Assert.assertThat
+import static org.mockito.Matchers.anyMap
+import static org.mockito.Matchers.eq
 import static org.mockito.Mockito.when
 
 /**
@@ -97,7 +99,7 @@ class EpicTest extends AbstractResourceTest {
     void "Given a valid Epic, when calling getIssues(), then receive a list of Issues."() {
         RestClient mockRestClient = "given a REST Client"()
         Epic mockEpic = new Epic(mockRestClient, JSONSerializer.toJSON(JSONResources.EPIC) as JSONObject)
-        when(mockRestClient.get(AgileResource.RESOURCE_URI + "epic/${JSONResources.EPIC_ID}/issue"))
+        when(mockRestClient.get(eq(AgileResource.RESOURCE_URI + "epic/${JSONResources.EPIC_ID}/issue"), anyMap()))
                 .thenReturn(JSONSerializer.toJSON(JSONResources.LIST_OF_ISSUES))
 
         List<Issue> issues = mockEpic.getIssues()
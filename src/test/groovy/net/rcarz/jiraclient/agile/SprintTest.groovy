@@ -13,6 +13,8 @@ import org.junit.Test
 import org.junit.rules.ExpectedException
 
 import static org.junit.Assert.assertThat
+import static org.mockito.Matchers.anyMap
+import static org.mockito.Matchers.eq
 import static org.mockito.Mockito.when
 
 /**
@@ -27,7 +29,7 @@ class SprintTest extends AbstractResourceTest {
     @Test
     void "Given a RestClient, when calling getAll(), then receive a list of Sprint."() {
         RestClient mockRestClient = "given a REST Client"()
-        when(mockRestClient.get(AgileResource.RESOURCE_URI + "board/" + JSONResources.SPRINT_ORIGIN_BOARD_ID + "/sprint"))
+        when(mockRestClient.get(eq(AgileResource.RESOURCE_URI + "board/" + JSONResources.SPRINT_ORIGIN_BOARD_ID + "/sprint"), anyMap()))
                 .thenReturn(JSONSerializer.toJSON(JSONResources.LIST_OF_SPRINTS))
 
         List<Sprint> sprints = Sprint.getAll(mockRestClient, JSONResources.SPRINT_ORIGIN_BOARD_ID)
@@ -41,7 +43,7 @@ class SprintTest extends AbstractResourceTest {
     void "Given a RestClient, when calling getAll() and use doesn't have access, then throws an 401 error."() {
         RestException unauthorized = new RestException("Do not have access", 401, "Unauthorized", [])
         RestClient mockRestClient = "given a REST Client"()
-        when(mockRestClient.get(AgileResource.RESOURCE_URI + "board/" + JSONResources.SPRINT_ORIGIN_BOARD_ID + "/sprint"))
+        when(mockRestClient.get(eq(AgileResource.RESOURCE_URI + "board/" + JSONResources.SPRINT_ORIGIN_BOARD_ID + "/sprint"), anyMap()))
                 .thenThrow(unauthorized)
         expectedException.expect(JiraException.class)
         expectedException.expectMessage("Failed to retrieve a list of Sprint : /rest/agile/1.0/board/" + JSONResources.SPRINT_ORIGIN_BOARD_ID + "/sprint")
@@ -76,7 +78,7 @@ class SprintTest extends AbstractResourceTest {
     void "Given a valid Sprint, when calling getIssues(), then receive a list of Issues."() {
         RestClient mockRestClient = "given a REST Client"()
         Sprint mockSprint = new Sprint(mockRestClient, JSONSerializer.toJSON(JSONResources.SPRINT) as JSONObject)
-        when(mockRestClient.get(AgileResource.RESOURCE_URI + "sprint/${JSONResources.SPRINT_ID}/issue"))
+        when(mockRestClient.get(eq(AgileResource.RESOURCE_URI + "sprint/${JSONResources.SPRINT_ID}/issue"), anyMap()))
                 .thenReturn(JSONSerializer.toJSON(JSONResources.LIST_OF_ISSUES))
 
         List<Issue> issues = mockSprint.getIssues()
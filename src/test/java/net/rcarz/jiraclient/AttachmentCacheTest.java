@@ -0,0 +1,106 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSONObject;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AttachmentCacheTest {
+
+    private File directory;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final RestClient restclient = new RestClient(null, null) {
+        @Override
+        HttpResponse execute(HttpRequestBase req) {
+            requests.incrementAndGet();
+
+            String path = req.getURI().getPath();
+            int size = Integer.parseInt(path.substring(path.lastIndexOf('/') + 1));
+
+            HttpResponse resp = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+            resp.setEntity(new ByteArrayEntity(AttachmentTest.getContent(size)));
+            return resp;
+        }
+    };
+
+    private Attachment getAttachment(String id, int size) {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("size", size);
+        json.put("content", "http://jira.example.com/secure/attachment/" + id + "/" + size);
+        return new Attachment(restclient, json);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("attachments", "");
+        directory.delete();
+        directory.mkdirs();
+        directory.deleteOnExit();
+    }
+
+    @Test
+    public void testRepeatedDownloadIsServedFromCache() throws JiraException {
+        restclient.setAttachmentCache(new AttachmentCache(directory, 1024 * 1024));
+        Attachment attachment = getAttachment("10001", 5000);
+
+        assertArrayEquals(AttachmentTest.getContent(5000), attachment.download());
+        assertArrayEquals(AttachmentTest.getContent(5000), attachment.download());
+        assertEquals(1, requests.get());
+
+        AttachmentCache reopened = new AttachmentCache(directory, 1024 * 1024);
+        assertTrue(reopened.contains(attachment));
+        assertEquals(5000, reopened.getSize());
+    }
+
+    @Test
+    public void testDamagedFileIsDownloadedAgain() throws Exception {
+        AttachmentCache cache = new AttachmentCache(directory, 1024 * 1024);
+        Attachment attachment = getAttachment("10001", 5000);
+
+        File cached = cache.get(attachment);
+        FileOutputStream out = new FileOutputStream(cached);
+        try {
+            out.write(new byte[5000]);
+        } finally {
+            out.close();
+        }
+
+        cache.get(attachment);
+        assertEquals(2, requests.get());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws JiraException {
+        AttachmentCache cache = new AttachmentCache(directory, 10000);
+        Attachment a = getAttachment("1", 4000);
+        Attachment b = getAttachment("2", 4000);
+        Attachment c = getAttachment("3", 4000);
+
+        cache.get(a);
+        cache.get(b);
+        cache.get(a);
+        cache.get(c);
+
+        assertTrue(cache.contains(a));
+        assertFalse(cache.contains(b));
+        assertTrue(cache.contains(c));
+        assertEquals(8000, cache.getSize());
+        assertEquals(1, cache.getHits());
+    }
+}
@@ -0,0 +1,98 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AttachmentExporterTest {
+
+    private static JSONObject attachment(String id, String filename, int size) {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("filename", filename);
+        json.put("size", size);
+        json.put("content", "http://jira.example.com/secure/attachment/" + id + "/" + size);
+        return json;
+    }
+
+    private static JSONObject issue(String key, JSONObject... attachments) {
+        JSONArray list = new JSONArray();
+        for (JSONObject a : attachments)
+            list.add(a);
+
+        JSONObject fields = new JSONObject();
+        fields.put(Field.ATTACHMENT, list);
+
+        JSONObject json = new JSONObject();
+        json.put("key", key);
+        json.put("fields", fields);
+        return json;
+    }
+
+    @Test
+    public void testExportIsResumable() throws Exception {
+        final AtomicInteger downloads = new AtomicInteger();
+        final JSONArray issues = new JSONArray();
+        issues.add(issue("TEST-1", attachment("1", "a.txt", 10), attachment("2", "b/c.txt", 20)));
+        issues.add(issue("TEST-2", attachment("3", "d.txt", 30)));
+
+        RestClient restclient = new RestClient(null, new URI("http://jira.example.com")) {
+            @Override
+            public JSON get(URI uri) {
+                JSONObject result = new JSONObject();
+                result.put("startAt", 0);
+                result.put("maxResults", 50);
+                result.put("total", issues.size());
+                result.put("issues", uri.getQuery().contains("startAt=0") ? issues : new JSONArray());
+                return result;
+            }
+
+            @Override
+            HttpResponse execute(HttpRequestBase req) {
+                downloads.incrementAndGet();
+
+                String path = req.getURI().getPath();
+                int size = Integer.parseInt(path.substring(path.lastIndexOf('/') + 1));
+
+                HttpResponse resp = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+                resp.setEntity(new ByteArrayEntity(new byte[size]));
+                return resp;
+            }
+        };
+
+        File directory = File.createTempFile("export", "");
+        directory.delete();
+
+        AttachmentExporter.Summary summary = new AttachmentExporter(restclient, "project = TEST", directory)
+            .parallelism(2)
+            .execute();
+
+        assertEquals(2, summary.getIssues());
+        assertEquals(3, summary.getDownloaded());
+        assertEquals(60, summary.getBytes());
+        assertEquals(0, summary.getFailures().size());
+        assertTrue(new File(directory, "TEST-1/2-b_c.txt").isFile());
+        assertEquals(30, new File(directory, "TEST-2/3-d.txt").length());
+
+        new File(directory, "TEST-2/3-d.txt").delete();
+
+        summary = new AttachmentExporter(restclient, "project = TEST", directory).execute();
+
+        assertEquals(2, summary.getSkipped());
+        assertEquals(1, summary.getDownloaded());
+        assertEquals(4, downloads.get());
+    }
+}
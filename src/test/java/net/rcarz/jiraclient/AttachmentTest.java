@@ -0,0 +1,173 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSONObject;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AttachmentTest {
+
+    static byte[] getContent(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++)
+            data[i] = (byte) (i * 31 + i / 7);
+        return data;
+    }
+
+    static Attachment getAttachment(RestClient restclient, int size) {
+        JSONObject json = new JSONObject();
+        json.put("id", "10001");
+        json.put("filename", "picture.png");
+        json.put("size", size);
+        json.put("content", "http://jira.example.com/secure/attachment/10001/picture.png");
+        return new Attachment(restclient, json);
+    }
+
+    static RestClient getClient(final byte[] data) {
+        return new RestClient(null, null) {
+            @Override
+            HttpResponse execute(HttpRequestBase req) {
+                HttpResponse resp = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+                resp.setEntity(new ByteArrayEntity(data));
+                return resp;
+            }
+        };
+    }
+
+    @Test
+    public void testDownloadToStream() throws Exception {
+        byte[] data = getContent(200 * 1024 + 17);
+        Attachment attachment = getAttachment(getClient(data), data.length);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        assertEquals(data.length, attachment.download(bos));
+        assertArrayEquals(data, bos.toByteArray());
+        assertArrayEquals(data, attachment.download());
+    }
+
+    @Test
+    public void testDownloadToFile() throws Exception {
+        byte[] data = getContent(3 * 1024 * 1024 + 5);
+        Attachment attachment = getAttachment(getClient(data), data.length);
+
+        File file = File.createTempFile("attachment", ".bin");
+        file.deleteOnExit();
+
+        assertEquals(data.length, attachment.download(file));
+        assertEquals(data.length, file.length());
+
+        byte[] read = new byte[data.length];
+        InputStream in = new FileInputStream(file);
+        try {
+            int off = 0;
+            while (off < read.length)
+                off += in.read(read, off, read.length - off);
+        } finally {
+            in.close();
+        }
+
+        assertTrue(Arrays.equals(data, read));
+    }
+
+    static class RangedClient extends RestClient {
+        final byte[] data;
+        final List<String> ranges = new Vector<String>();
+        volatile long failAt = -1;
+
+        RangedClient(byte[] data) {
+            super(null, null);
+            this.data = data;
+        }
+
+        @Override
+        HttpResponse execute(HttpRequestBase req) {
+            if (req instanceof HttpHead) {
+                HttpResponse resp = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+                resp.addHeader("Accept-Ranges", "bytes");
+                resp.addHeader("Content-Length", Integer.toString(data.length));
+                return resp;
+            }
+
+            String range = req.getFirstHeader("Range").getValue();
+            ranges.add(range);
+
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            final int from = Integer.parseInt(bounds[0]);
+            final int to = Integer.parseInt(bounds[1]) + 1;
+            final long fail = failAt;
+
+            HttpResponse resp = new BasicHttpResponse(HttpVersion.HTTP_1_1, 206, "Partial Content");
+            resp.setEntity(new InputStreamEntity(new InputStream() {
+                int pos = from;
+
+                @Override
+                public int read() throws IOException {
+                    if (pos == fail)
+                        throw new IOException("Connection reset");
+                    return pos < to ? data[pos++] & 0xFF : -1;
+                }
+            }, to - from));
+            return resp;
+        }
+    }
+
+    @Test
+    public void testRangedDownloadResumes() throws Exception {
+        byte[] data = getContent(8 * 1024 * 1024);
+        RangedClient client = new RangedClient(data);
+        Attachment attachment = getAttachment(client, data.length);
+
+        File file = File.createTempFile("attachment", ".bin");
+        file.deleteOnExit();
+        File progress = RangedDownload.getProgressFile(file);
+        progress.deleteOnExit();
+
+        client.failAt = 2 * 1024 * 1024 + 1000;
+
+        try {
+            attachment.download(file, 2);
+            fail("Expected the first segment to fail");
+        } catch (JiraException ex) {
+            assertTrue(progress.exists());
+        }
+
+        client.failAt = -1;
+        client.ranges.clear();
+
+        assertEquals(data.length, attachment.download(file, 2));
+        assertEquals(Arrays.asList("bytes=" + (2 * 1024 * 1024) + "-" + (4 * 1024 * 1024 - 1)), client.ranges);
+        assertFalse(progress.exists());
+
+        byte[] read = new byte[data.length];
+        InputStream in = new FileInputStream(file);
+        try {
+            int off = 0;
+            while (off < read.length)
+                off += in.read(read, off, read.length - off);
+        } finally {
+            in.close();
+        }
+
+        assertTrue(Arrays.equals(data, read));
+    }
+}
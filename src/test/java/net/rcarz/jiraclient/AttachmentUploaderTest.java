@@ -0,0 +1,77 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import org.apache.http.entity.mime.content.ContentBody;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AttachmentUploaderTest {
+
+    @Test
+    public void testUploadsEachAttachment() throws JiraException {
+        final List<String> uploaded = new Vector<String>();
+
+        RestClient restclient = new RestClient(null, null) {
+            @Override
+            public JSON post(String path, Issue.NewAttachment... attachments) throws RestException {
+                if (path.contains("TEST-2"))
+                    throw new RestException("Forbidden", 403, "", null);
+
+                uploaded.add(path + " " + attachments[0].getFilename());
+                return new JSONArray();
+            }
+        };
+
+        AttachmentUploader.Summary summary = new AttachmentUploader(restclient)
+            .add("TEST-1",
+                new Issue.NewAttachment("a.txt", new byte[100]),
+                new Issue.NewAttachment("b.txt", new ByteArrayInputStream(new byte[50]), 50))
+            .add("TEST-2", new Issue.NewAttachment("c.txt", new byte[10]))
+            .parallelism(3)
+            .execute();
+
+        assertEquals(3, summary.getResults().size());
+        assertEquals(2, uploaded.size());
+        assertTrue(uploaded.contains("/rest/api/latest/issue/TEST-1/attachments b.txt"));
+        assertEquals(150, summary.getBytes());
+        assertFalse(summary.getResults().get(2).isSuccess());
+        assertEquals("c.txt", summary.getFailures().get(0).getFilename());
+    }
+
+    @Test
+    public void testStreamBodyDeclaresLengthAndReportsProgress() throws Exception {
+        final List<Long> progress = new Vector<Long>();
+        final List<Long> totals = new Vector<Long>();
+
+        Issue.NewAttachment attachment = new Issue.NewAttachment("big.bin",
+            new ByteArrayInputStream(new byte[10000]), 10000)
+            .withProgressListener(new Issue.NewAttachment.ProgressListener() {
+                public void progress(Issue.NewAttachment attachment, long sent, long total) {
+                    progress.add(sent);
+                    totals.add(total);
+                }
+            });
+
+        ContentBody body = RestClient.createBody(attachment);
+        assertEquals(10000, body.getContentLength());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        assertEquals(10000, out.size());
+
+        assertTrue(progress.size() > 1);
+        for (int i = 1; i < progress.size(); i++)
+            assertTrue(progress.get(i) > progress.get(i - 1));
+        assertEquals(10000L, (long) progress.get(progress.size() - 1));
+        assertEquals(10000L, (long) totals.get(0));
+    }
+}
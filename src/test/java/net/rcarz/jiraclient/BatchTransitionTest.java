@@ -0,0 +1,231 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchTransitionTest {
+
+    private static JSONObject ref(String id) {
+        JSONObject jo = new JSONObject();
+        jo.put("id", id);
+        return jo;
+    }
+
+    private static Issue issue(String key, String status) {
+        JSONObject fields = new JSONObject();
+        fields.put(Field.PROJECT, ref("10000"));
+        fields.put(Field.ISSUE_TYPE, ref("1"));
+        fields.put(Field.STATUS, ref(status));
+
+        JSONObject json = new JSONObject();
+        json.put("key", key);
+        json.put("fields", fields);
+
+        return new Issue(null, json);
+    }
+
+    private static JSONObject transitions(String id, String name) {
+        JSONObject trans = new JSONObject();
+        trans.put("id", id);
+        trans.put("name", name);
+        trans.put("fields", new JSONObject());
+
+        JSONArray list = new JSONArray();
+        list.add(trans);
+
+        JSONObject jo = new JSONObject();
+        jo.put("transitions", list);
+        return jo;
+    }
+
+    @Test
+    public void testTransitionsAreSharedAndReResolvedOnRejection() throws Exception {
+        final AtomicInteger lookups = new AtomicInteger();
+        final List<String> posted = new Vector<String>();
+
+        RestClient restclient = new RestClient(null, new URI("http://jira.example.com")) {
+            @Override
+            public JSON get(URI uri) {
+                lookups.incrementAndGet();
+
+                /* TEST-3 is in a workflow where "Close" has another ID */
+                return uri.getPath().contains("TEST-3")
+                    ? transitions("31", "Close")
+                    : transitions("21", "Close");
+            }
+
+            @Override
+            public JSON post(String path, JSON payload) throws RestException {
+                String id = (String) ((JSONObject) ((JSONObject) payload).get("transition")).get("id");
+
+                if (path.contains("TEST-3") && !"31".equals(id))
+                    throw new RestException("Bad Request", 400, "Transition is not valid", null);
+
+                posted.add(path + "#" + id);
+                return null;
+            }
+        };
+
+        TransitionCache cache = new TransitionCache();
+        List<Issue> issues = new ArrayList<Issue>();
+        issues.add(issue("TEST-1", "1"));
+        issues.add(issue("TEST-2", "1"));
+        issues.add(issue("TEST-3", "1"));
+
+        List<BatchTransition.Result> results = Issue.transitionBulk(restclient, cache)
+            .add(issues)
+            .parallelism(1)
+            .execute("Close");
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(0).isRetried());
+        assertEquals("21", results.get(1).getTransitionId());
+        assertTrue(results.get(2).isSuccess());
+        assertTrue(results.get(2).isRetried());
+        assertEquals("31", results.get(2).getTransitionId());
+
+        assertEquals(3, posted.size());
+        assertEquals(2, lookups.get());
+        assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    public void testServerErrorIsNotRetried() throws Exception {
+        final AtomicInteger lookups = new AtomicInteger();
+        final AtomicInteger posts = new AtomicInteger();
+
+        RestClient restclient = new RestClient(null, new URI("http://jira.example.com")) {
+            @Override
+            public JSON get(URI uri) {
+                lookups.incrementAndGet();
+                return transitions("21", "Close");
+            }
+
+            @Override
+            public JSON post(String path, JSON payload) throws RestException {
+                posts.incrementAndGet();
+                throw new RestException("Bad Gateway", 502, "", null);
+            }
+        };
+
+        List<BatchTransition.Result> results = Issue.transitionBulk(restclient, new TransitionCache())
+            .add(Arrays.asList(issue("TEST-1", "1")))
+            .execute("Close");
+
+        assertFalse(results.get(0).isSuccess());
+        assertFalse(results.get(0).isRetried());
+        assertEquals(1, posts.get());
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    public void testUnknownTransitionIsReported() throws Exception {
+        RestClient restclient = new RestClient(null, new URI("http://jira.example.com")) {
+            @Override
+            public JSON get(URI uri) {
+                return transitions("21", "Close");
+            }
+        };
+
+        List<BatchTransition.Result> results = Issue.transitionBulk(restclient, new TransitionCache())
+            .add(Arrays.asList(issue("TEST-1", "1")))
+            .execute("Reopen");
+
+        assertFalse(results.get(0).isSuccess());
+        assertEquals("Transition 'Reopen' is not available for TEST-1", results.get(0).getError());
+    }
+
+    @Test
+    public void testMissingAndRenamedKeysAreResolvedOneByOne() throws Exception {
+        final List<String> searches = new Vector<String>();
+        final List<String> posted = new Vector<String>();
+
+        RestClient restclient = new RestClient(null, new URI("http://jira.example.com")) {
+            @Override
+            public JSON get(URI uri) throws RestException {
+                String path = uri.getPath();
+
+                if (path.endsWith("/transitions"))
+                    return transitions("21", "Close");
+
+                if (path.endsWith("/search")) {
+                    String jql = uri.getQuery();
+                    searches.add(jql);
+
+                    /* the whole query fails on a key that does not exist */
+                    if (jql.contains("MISSING-1"))
+                        throw new RestException("Bad Request", 400, "Issue does not exist", null);
+
+                    int startAt = Integer.parseInt(jql.replaceAll(".*startAt=(\\d+).*", "$1"));
+                    JSONArray found = new JSONArray();
+                    for (String key : new String[] { "TEST-1", "TEST-2", "TEST-3" }) {
+                        if (jql.contains(key) && startAt == 0)
+                            found.add(issueJson(key.equals("TEST-2") ? "MOVED-9" : key));
+                    }
+
+                    JSONObject result = new JSONObject();
+                    result.put("startAt", startAt);
+                    result.put("maxResults", 100);
+                    result.put("total", startAt + found.size());
+                    result.put("issues", found);
+                    return result;
+                }
+
+                if (path.endsWith("/issue/TEST-2"))
+                    return issueJson("MOVED-9");
+
+                throw new RestException("Not Found", 404, "Issue does not exist", null);
+            }
+
+            @Override
+            public JSON post(String path, JSON payload) {
+                posted.add(path);
+                return null;
+            }
+        };
+
+        List<BatchTransition.Result> results = Issue.transitionBulk(restclient, new TransitionCache())
+            .addKeys(Arrays.asList("TEST-1", "TEST-2", "MISSING-1", "TEST-3"))
+            .parallelism(1)
+            .execute("Close");
+
+        assertEquals(4, results.size());
+        assertEquals("TEST-1", results.get(0).getKey());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("TEST-2", results.get(1).getKey());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals("MISSING-1", results.get(2).getKey());
+        assertEquals("Issue not found", results.get(2).getError());
+        assertTrue(results.get(3).isSuccess());
+
+        assertEquals(3, posted.size());
+        assertTrue(posted.get(1).endsWith("/issue/MOVED-9/transitions"));
+        assertTrue(searches.size() > 1);
+    }
+
+    private static JSONObject issueJson(String key) {
+        JSONObject fields = new JSONObject();
+        fields.put(Field.PROJECT, ref("10000"));
+        fields.put(Field.ISSUE_TYPE, ref("1"));
+        fields.put(Field.STATUS, ref("1"));
+
+        JSONObject json = new JSONObject();
+        json.put("key", key);
+        json.put("fields", fields);
+        return json;
+    }
+}
@@ -0,0 +1,164 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.apache.http.Header;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BulkCreateTest {
+
+    private static JSONObject created(String id, String key) {
+        JSONObject issue = new JSONObject();
+        issue.put("id", id);
+        issue.put("key", key);
+        issue.put("self", "https://jira.example.com/rest/api/2/issue/" + id);
+        return issue;
+    }
+
+    @Test
+    public void testApplyResponseMatchesItemsAroundFailures() {
+        JSONArray issues = new JSONArray();
+        issues.add(created("10000", "TEST-1"));
+        issues.add(created("10001", "TEST-2"));
+
+        JSONObject fieldErrors = new JSONObject();
+        fieldErrors.put("summary", "You must specify a summary of the issue.");
+        JSONObject elementErrors = new JSONObject();
+        elementErrors.put("errorMessages", new JSONArray());
+        elementErrors.put("errors", fieldErrors);
+        JSONObject error = new JSONObject();
+        error.put("status", 400);
+        error.put("elementErrors", elementErrors);
+        error.put("failedElementNumber", 1);
+        JSONArray errors = new JSONArray();
+        errors.add(error);
+
+        JSONObject response = new JSONObject();
+        response.put("issues", issues);
+        response.put("errors", errors);
+
+        List<BulkCreate.Result> sent = new ArrayList<BulkCreate.Result>();
+        for (int i = 0; i < 3; i++)
+            sent.add(new BulkCreate.Result(i));
+
+        BulkCreate.applyResponse(response, sent);
+
+        assertTrue(sent.get(0).isSuccess());
+        assertEquals("TEST-1", sent.get(0).getKey());
+        assertEquals("10000", sent.get(0).getId());
+        assertNull(sent.get(0).getError());
+
+        assertFalse(sent.get(1).isSuccess());
+        assertEquals("400 summary: You must specify a summary of the issue.", sent.get(1).getError());
+
+        assertTrue(sent.get(2).isSuccess());
+        assertEquals("TEST-2", sent.get(2).getKey());
+        assertNull(sent.get(2).getIssue());
+    }
+
+    private static JSONObject meta(String type) {
+        JSONObject schema = new JSONObject();
+        schema.put("type", type);
+        JSONObject field = new JSONObject();
+        field.put("required", false);
+        field.put("name", type);
+        field.put("schema", schema);
+        return field;
+    }
+
+    @Test
+    public void testUnsupportedFieldFailsOnlyItsItem() throws JiraException {
+        JSONObject createmeta = new JSONObject();
+        createmeta.put("project", meta("project"));
+        createmeta.put("issuetype", meta("issuetype"));
+        createmeta.put("summary", meta("string"));
+        createmeta.put("customfield_10001", meta("weird"));
+
+        RestClient restclient = new RestClient(null, null) {
+            @Override
+            public JSON post(String path, JSON payload) {
+                JSONArray issues = new JSONArray();
+                issues.add(created("10000", "TEST-1"));
+                JSONObject response = new JSONObject();
+                response.put("issues", issues);
+                response.put("errors", new JSONArray());
+                return response;
+            }
+        };
+
+        Map<String, Object> good = new HashMap<String, Object>();
+        good.put("summary", "Fine");
+        Map<String, Object> bad = new HashMap<String, Object>();
+        bad.put("summary", "Odd");
+        bad.put("customfield_10001", "x");
+
+        List<BulkCreate.Result> results = new BulkCreate(restclient, "TEST", "Task", Field.compile(createmeta))
+                .add(good).add(bad).chunkSize(1).parallelism(2).execute();
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(1).getError().contains("not a supported field type"));
+    }
+
+    @Test
+    public void testFailedChunkKeepsKeysOfOtherChunks() throws Exception {
+        JSONObject createmeta = new JSONObject();
+        createmeta.put("project", meta("project"));
+        createmeta.put("issuetype", meta("issuetype"));
+        createmeta.put("summary", meta("string"));
+
+        RestClient restclient = new RestClient(null, new URI("http://jira.example.com")) {
+            @Override
+            public JSON post(String path, JSON payload) throws IOException {
+                JSONObject update = (JSONObject) ((JSONArray) ((JSONObject) payload).get("issueUpdates")).get(0);
+                if ("Broken".equals(((JSONObject) update.get("fields")).get("summary")))
+                    throw new IOException("Connection reset");
+
+                JSONArray issues = new JSONArray();
+                issues.add(created("10000", "TEST-1"));
+                JSONObject response = new JSONObject();
+                response.put("issues", issues);
+                response.put("errors", new JSONArray());
+                return response;
+            }
+
+            @Override
+            public JSON get(URI uri) throws RestException {
+                throw new RestException("Service Unavailable", 503, "", new Header[0]);
+            }
+        };
+
+        Map<String, Object> good = new HashMap<String, Object>();
+        good.put("summary", "Fine");
+        Map<String, Object> broken = new HashMap<String, Object>();
+        broken.put("summary", "Broken");
+
+        List<BulkCreate.Result> results = new BulkCreate(restclient, "TEST", "Task", Field.compile(createmeta))
+                .add(good).add(broken).chunkSize(1).parallelism(2).refetch(null).execute();
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("TEST-1", results.get(0).getKey());
+        assertNull(results.get(0).getError());
+        assertNull(results.get(0).getIssue());
+        assertTrue(results.get(0).getRefetchError().startsWith("Failed to refetch issue"));
+
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(1).getError().contains("Connection reset"));
+        assertNull(results.get(1).getRefetchError());
+    }
+}
@@ -0,0 +1,72 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BulkUpdateTest {
+
+    private static Field.Schema getLabelsSchema() {
+        JSONObject schema = new JSONObject();
+        schema.put("type", "array");
+        schema.put("items", "string");
+        schema.put("system", "labels");
+
+        JSONObject labels = new JSONObject();
+        labels.put("name", "Labels");
+        labels.put("schema", schema);
+
+        JSONObject editmeta = new JSONObject();
+        editmeta.put("labels", labels);
+
+        return Field.compile(editmeta);
+    }
+
+    @Test
+    public void testUpdateReportsEachIssue() throws JiraException {
+        final List<String> paths = new Vector<String>();
+        final List<JSON> payloads = new Vector<JSON>();
+
+        RestClient restclient = new RestClient(null, null) {
+            @Override
+            public JSON put(String path, JSON payload) throws RestException {
+                paths.add(path);
+                payloads.add(payload);
+
+                if (path.endsWith("TEST-2"))
+                    throw new RestException("Bad Request", 400, "Issue does not exist", null);
+
+                return null;
+            }
+        };
+
+        BulkUpdate.Summary summary = Issue
+            .updateBulk(restclient, Arrays.asList("TEST-1", "TEST-2", "TEST-3", "TEST-1"), getLabelsSchema())
+            .fieldAdd(Field.LABELS, "release")
+            .parallelism(2)
+            .execute();
+
+        assertEquals(3, summary.getTotal());
+        assertEquals(2, summary.getSucceeded());
+        assertEquals(1, summary.getFailed());
+        assertEquals(3, paths.size());
+
+        assertEquals("TEST-1", summary.getResults().get(0).getKey());
+        assertTrue(summary.getResults().get(0).isSuccess());
+        assertFalse(summary.getResults().get(1).isSuccess());
+        assertEquals("TEST-2", summary.getFailures().get(0).getKey());
+
+        JSONObject update = (JSONObject) ((JSONObject) payloads.get(0)).get("update");
+        JSONArray opers = (JSONArray) update.get(Field.LABELS);
+        assertEquals("release", ((JSONObject) opers.get(0)).get("add"));
+    }
+}
@@ -0,0 +1,152 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeLogHarvesterTest {
+
+    private static JSONArray histories(int from, int to) {
+        JSONArray values = new JSONArray();
+        for (int i = from; i < to; i++) {
+            JSONObject history = new JSONObject();
+            history.put("id", String.valueOf(i));
+            history.put("items", new JSONArray());
+            values.add(history);
+        }
+        return values;
+    }
+
+    private static JSONObject issue(String key, int startAt, int embedded, int total) {
+        JSONObject changelog = new JSONObject();
+        changelog.put("startAt", startAt);
+        changelog.put("maxResults", embedded);
+        changelog.put("total", total);
+        changelog.put("histories", histories(startAt, startAt + embedded));
+
+        JSONObject json = new JSONObject();
+        json.put("key", key);
+        json.put("changelog", changelog);
+        return json;
+    }
+
+    @Test
+    public void testOnlyTruncatedChangelogsAreFollowedUp() throws Exception {
+        final Map<String, Integer> totals = new HashMap<String, Integer>();
+        totals.put("TEST-2", 5);
+        totals.put("TEST-3", 4);
+
+        final List<String> paths = new Vector<String>();
+
+        RestClient restclient = new RestClient(null, new URI("http://jira.example.com")) {
+            @Override
+            public JSON get(URI uri) {
+                paths.add(uri.getPath());
+                JSONObject result = new JSONObject();
+
+                if (uri.getPath().endsWith("/search")) {
+                    JSONArray issues = new JSONArray();
+                    issues.add(issue("TEST-1", 0, 2, 2));
+                    issues.add(issue("TEST-2", 0, 2, 5));
+                    issues.add(issue("TEST-3", 2, 2, 4));
+
+                    result.put("total", issues.size());
+                    result.put("issues", issues);
+                    return result;
+                }
+
+                String key = uri.getPath().split("/")[uri.getPath().split("/").length - 2];
+                int startAt = Integer.parseInt(uri.getQuery().replaceAll(".*startAt=(\\d+).*", "$1"));
+                int total = totals.get(key);
+
+                result.put("startAt", startAt);
+                result.put("maxResults", 100);
+                result.put("total", total);
+                result.put("values", histories(startAt, total));
+                return result;
+            }
+        };
+
+        final Map<String, List<IssueHistory>> harvested = new HashMap<String, List<IssueHistory>>();
+
+        ChangeLogHarvester.Summary summary = new ChangeLogHarvester(restclient, "project = TEST")
+            .parallelism(2)
+            .execute(new ChangeLogHarvester.Handler() {
+                public void handle(Issue issue, List<IssueHistory> histories) {
+                    assertTrue(issue.getChangeLog() == null);
+                    harvested.put(issue.getKey(), histories);
+                }
+            });
+
+        assertEquals(3, summary.getIssues());
+        assertEquals(2, summary.getFollowUps());
+        assertEquals(11, summary.getHistories());
+        assertEquals(0, summary.getFailures().size());
+        assertEquals(3, paths.size());
+
+        assertEquals(2, harvested.get("TEST-1").size());
+        assertEquals(5, harvested.get("TEST-2").size());
+        assertEquals(4, harvested.get("TEST-3").size());
+
+        for (List<IssueHistory> list : harvested.values()) {
+            for (int i = 0; i < list.size(); i++)
+                assertEquals(String.valueOf(i), list.get(i).getId());
+        }
+    }
+
+    @Test
+    public void testFollowUpFallsBackToEmbeddedChangelog() throws Exception {
+        RestClient restclient = new RestClient(null, new URI("http://jira.example.com")) {
+            @Override
+            public JSON get(URI uri) throws RestException {
+                JSONObject result = new JSONObject();
+
+                if (uri.getPath().endsWith("/search")) {
+                    JSONObject truncated = issue("TEST-1", 0, 2, 5);
+                    truncated.put("id", "10001");
+                    JSONArray issues = new JSONArray();
+                    issues.add(truncated);
+
+                    result.put("total", issues.size());
+                    result.put("issues", issues);
+                    return result;
+                }
+
+                /* servers without the changelog resource */
+                if (uri.getPath().endsWith("/changelog"))
+                    throw new RestException("Not Found", 404, "", null);
+
+                assertTrue(uri.getPath().endsWith("/issue/10001"));
+                JSONObject changelog = new JSONObject();
+                changelog.put("total", 5);
+                changelog.put("histories", histories(0, 5));
+                result.put("changelog", changelog);
+                return result;
+            }
+        };
+
+        final List<IssueHistory> harvested = new Vector<IssueHistory>();
+
+        ChangeLogHarvester.Summary summary = new ChangeLogHarvester(restclient, "project = TEST")
+            .execute(new ChangeLogHarvester.Handler() {
+                public void handle(Issue issue, List<IssueHistory> histories) {
+                    harvested.addAll(histories);
+                }
+            });
+
+        assertEquals(0, summary.getFailures().size());
+        assertEquals(1, summary.getFollowUps());
+        assertEquals(5, harvested.size());
+        assertEquals("4", harvested.get(4).getId());
+    }
+}
@@ -0,0 +1,86 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeLogPagerTest {
+
+    private static int getParam(URI uri, String name) {
+        for (String pair : uri.getQuery().split("&")) {
+            if (pair.startsWith(name + "="))
+                return Integer.parseInt(pair.substring(name.length() + 1));
+        }
+        return -1;
+    }
+
+    private static RestClient getChangeLogClient(final int total, final int cap, final int shortAt,
+                                                 final List<URI> requests) throws Exception {
+
+        return new RestClient(null, new URI("http://jira.example.com")) {
+            @Override
+            public JSON get(URI uri) {
+                requests.add(uri);
+
+                int startAt = getParam(uri, "startAt");
+                int count = Math.min(Math.min(getParam(uri, "maxResults"), cap), total - startAt);
+                if (startAt == shortAt)
+                    count = 1;
+
+                JSONArray values = new JSONArray();
+                for (int i = startAt; i < startAt + count; i++) {
+                    JSONObject history = new JSONObject();
+                    history.put("id", String.valueOf(i));
+                    history.put("items", new JSONArray());
+                    values.add(history);
+                }
+
+                JSONObject result = new JSONObject();
+                result.put("startAt", startAt);
+                result.put("maxResults", cap);
+                result.put("total", total);
+                result.put("values", values);
+                return result;
+            }
+        };
+    }
+
+    private static void assertInOrder(int total, List<IssueHistory> histories) {
+        assertEquals(total, histories.size());
+        for (int i = 0; i < total; i++)
+            assertEquals(String.valueOf(i), histories.get(i).getId());
+    }
+
+    @Test
+    public void testPagesAreMergedInOrder() throws Exception {
+        List<URI> requests = new Vector<URI>();
+        RestClient restclient = getChangeLogClient(7, 2, -1, requests);
+
+        List<IssueHistory> histories = ChangeLogPager.fetch(
+            restclient, "TEST-1", new ArrayList<IssueHistory>(), 3);
+
+        assertInOrder(7, histories);
+        assertEquals(4, requests.size());
+        assertTrue(requests.get(0).getPath().endsWith("/issue/TEST-1/changelog"));
+    }
+
+    @Test
+    public void testShortPageIsCompleted() throws Exception {
+        List<URI> requests = new Vector<URI>();
+        RestClient restclient = getChangeLogClient(9, 3, 3, requests);
+
+        List<IssueHistory> histories = ChangeLogPager.fetch(
+            restclient, "TEST-1", new ArrayList<IssueHistory>(), 2);
+
+        assertInOrder(9, histories);
+    }
+}
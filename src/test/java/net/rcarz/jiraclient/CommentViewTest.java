@@ -0,0 +1,75 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CommentViewTest {
+
+    private static int getParam(URI uri, String name) {
+        return Integer.parseInt(uri.getQuery().replaceAll(".*" + name + "=(\\d+).*", "$1"));
+    }
+
+    private static RestClient getCommentClient(final int total, final int cap, final List<URI> requests)
+        throws Exception {
+
+        return new RestClient(null, new URI("http://jira.example.com")) {
+            @Override
+            public JSON get(URI uri) {
+                requests.add(uri);
+
+                int startAt = getParam(uri, "startAt");
+                int end = Math.min(total, startAt + Math.min(cap, getParam(uri, "maxResults")));
+
+                JSONArray comments = new JSONArray();
+                for (int i = startAt; i < end; i++) {
+                    JSONObject comment = new JSONObject();
+                    comment.put("id", String.valueOf(i));
+                    comments.add(comment);
+                }
+
+                JSONObject result = new JSONObject();
+                result.put("startAt", startAt);
+                result.put("total", total);
+                result.put("comments", comments);
+                return result;
+            }
+        };
+    }
+
+    @Test
+    public void testReadsOnlyTheNeededPages() throws Exception {
+        List<URI> requests = new Vector<URI>();
+        CommentView view = new CommentView(getCommentClient(120, 40, requests), "TEST-1")
+            .orderBy("-created");
+
+        assertEquals(120, view.size());
+        assertEquals("119", view.get(119).getId());
+        assertEquals(2, view.getLoadedPages());
+        assertEquals(3, requests.size());
+        assertTrue(requests.get(0).getQuery().contains("orderBy=-created"));
+    }
+
+    @Test
+    public void testPrefetchedIteration() throws Exception {
+        List<URI> requests = new Vector<URI>();
+        CommentView view = new CommentView(getCommentClient(120, 50, requests), "TEST-1")
+            .pageSize(50)
+            .prefetch(true);
+
+        int i = 0;
+        for (Comment comment : view)
+            assertEquals(String.valueOf(i++), comment.getId());
+
+        assertEquals(120, i);
+        assertEquals(3, requests.size());
+    }
+}
@@ -0,0 +1,88 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FieldTest {
+
+    private static JSONObject getEditMeta() {
+        return (JSONObject) JSONSerializer.toJSON("{" +
+                "\"summary\": {\"required\": true, \"name\": \"Summary\", \"schema\": {\"type\": \"string\", \"system\": \"summary\"}}," +
+                "\"labels\": {\"required\": false, \"name\": \"Labels\", \"schema\": {\"type\": \"array\", \"items\": \"string\", \"system\": \"labels\"}}," +
+                "\"fixVersions\": {\"required\": false, \"name\": \"Fix Version/s\", \"schema\": {\"type\": \"array\", \"items\": \"version\", \"system\": \"fixVersions\"}}," +
+                "\"priority\": {\"required\": false, \"name\": \"Priority\", \"schema\": {\"type\": \"priority\", \"system\": \"priority\"}}," +
+                "\"duedate\": {\"required\": false, \"name\": \"Due Date\", \"schema\": {\"type\": \"date\", \"system\": \"duedate\"}}," +
+                "\"customfield_10000\": {\"required\": false, \"name\": \"Started\", \"schema\": {\"type\": \"datetime\", \"custom\": \"com.atlassian.jira.plugin.system.customfieldtypes:datetime\", \"customId\": 10000}}," +
+                "\"customfield_10001\": {\"required\": false, \"name\": \"Odd\", \"schema\": {\"type\": \"weird\", \"customId\": 10001}}" +
+                "}");
+    }
+
+    @Test
+    public void testSchemaOutput() throws JiraException {
+        JSONObject editmeta = getEditMeta();
+        Field.Schema schema = Field.compile(editmeta);
+
+        assertEquals("Hello", schema.toJson("summary", "Hello"));
+        assertEquals("{\"name\":\"Major\"}", schema.toJson("priority", "Major"));
+        assertEquals("{\"id\":\"3\"}", schema.toJson("priority", Field.valueById("3")));
+        assertEquals("2016-01-31", schema.toJson("duedate", "2016-01-31"));
+        assertEquals("2016-01-31", Field.toJson("duedate", "2016-01-31", editmeta));
+
+        Timestamp ts = new Timestamp(1454198400000L);
+        assertEquals(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ").format(ts),
+                schema.toJson("customfield_10000", ts));
+    }
+
+    @Test
+    public void testSchemaReusesSerializers() throws JiraException {
+        Field.Schema schema = Field.compile(getEditMeta());
+
+        Field.Serializer s = schema.getSerializer("labels");
+        assertSame(s, schema.getSerializer("labels"));
+        assertEquals("labels", s.getName());
+        assertEquals("array", s.getMeta().type);
+    }
+
+    @Test
+    public void testArrayValues() throws JiraException {
+        Field.Schema schema = Field.compile(getEditMeta());
+
+        List<String> labels = new ArrayList<String>();
+        labels.add("foo");
+        labels.add("bar");
+        JSONArray result = (JSONArray) schema.toJson("labels", labels);
+        assertEquals(2, result.size());
+        assertEquals("foo", result.get(0));
+
+        List<Object> versions = new ArrayList<Object>();
+        versions.add(Field.valueById("10000"));
+        result = (JSONArray) schema.toJson("fixVersions", versions);
+        assertEquals("10000", result.getJSONObject(0).get("id"));
+    }
+
+    @Test(expected = JiraException.class)
+    public void testUnknownField() throws JiraException {
+        Field.compile(getEditMeta()).toJson("nope", "value");
+    }
+
+    @Test(expected = JiraException.class)
+    public void testBadDatetimeValue() throws JiraException {
+        Field.compile(getEditMeta()).toJson("customfield_10000", "yesterday");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testUnsupportedType() throws JiraException {
+        Field.compile(getEditMeta()).toJson("customfield_10001", "value");
+    }
+}
@@ -0,0 +1,101 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HistoryQueryTest {
+
+    private static final String[] FIELDS = { "status", "assignee", "Version", "Fix Version", "labels" };
+
+    private static IssueHistory history(int id, String author, String... fields) {
+        JSONArray items = new JSONArray();
+        for (String field : fields) {
+            JSONObject item = new JSONObject();
+            item.put("field", field);
+            items.add(item);
+        }
+
+        JSONObject user = new JSONObject();
+        user.put("name", author);
+
+        JSONObject json = new JSONObject();
+        json.put("id", String.valueOf(id));
+        json.put("author", user);
+        json.put("created", String.format("2020-01-%02dT10:00:00.000+0000", id % 28 + 1));
+        json.put("items", items);
+        return new IssueHistory(null, json);
+    }
+
+    private static List<IssueHistory> histories(int n) {
+        List<IssueHistory> list = new ArrayList<IssueHistory>(n);
+        for (int i = 0; i < n; i++)
+            list.add(history(i, i % 2 == 0 ? "alice" : "bob", FIELDS[i % FIELDS.length], FIELDS[(i + 1) % FIELDS.length]));
+        return list;
+    }
+
+    @Test
+    public void testFieldNamesMatchExactly() {
+        List<IssueHistory> list = new ArrayList<IssueHistory>();
+        list.add(history(0, "alice", "Fix Version"));
+        list.add(history(1, "alice", "Version", "status"));
+
+        List<IssueHistory> result = HistoryQuery.of(list).fields("Fix Version, assignee".split(",")).toList();
+
+        assertEquals(1, result.size());
+        assertEquals("0", result.get(0).getId());
+        assertEquals(1, HistoryQuery.of(list).fields("Version").count());
+    }
+
+    @Test
+    public void testViewIsLazyAndUncopied() {
+        List<IssueHistory> list = histories(10);
+        HistoryQuery query = HistoryQuery.of(list).fields("labels").authors("bob");
+
+        Iterator<IssueHistory> it = query.histories().iterator();
+        assertSame(list.get(3), it.next());
+        assertSame(list.get(9), it.next());
+        assertFalse(it.hasNext());
+
+        list.add(history(13, "bob", "labels"));
+        assertEquals(3, query.count());
+    }
+
+    @Test
+    public void testTimeRange() {
+        List<IssueHistory> list = histories(28);
+        Date since = Field.getDateTime("2020-01-05T00:00:00.000+0000");
+        Date until = Field.getDateTime("2020-01-08T00:00:00.000+0000");
+
+        int n = 0;
+        for (IssueHistoryItem item : HistoryQuery.of(list).since(since).until(until).items())
+            n++;
+
+        assertEquals(6, n);
+    }
+
+    @Test
+    public void testFieldListSkipsSimilarNames() {
+        List<IssueHistory> list = histories(20);
+
+        int n = 0;
+        for (IssueHistoryItem item : HistoryQuery.of(list).fields("status,Fix Version".split(",")).items()) {
+            assertTrue(item.getField().equals("status") || item.getField().equals("Fix Version"));
+            n++;
+        }
+
+        /* "Version" is a substring of "Fix Version" but must not match */
+        assertEquals(16, n);
+        assertEquals(16, HistoryQuery.of(list).fields("status,Fix Version".split(",")).count());
+    }
+}
@@ -0,0 +1,78 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IssueHandleTest {
+
+    private static Field.Schema getSummarySchema() {
+        JSONObject schema = new JSONObject();
+        schema.put("type", "string");
+        schema.put("system", "summary");
+
+        JSONObject summary = new JSONObject();
+        summary.put("name", "Summary");
+        summary.put("schema", schema);
+
+        JSONObject createmeta = new JSONObject();
+        createmeta.put(Field.SUMMARY, summary);
+        createmeta.put(Field.PROJECT, summary);
+        createmeta.put(Field.ISSUE_TYPE, summary);
+
+        return Field.compile(createmeta);
+    }
+
+    @Test
+    public void testCreateWithoutRefetchHydratesOnce() throws Exception {
+        final AtomicInteger gets = new AtomicInteger();
+
+        RestClient restclient = new RestClient(null, new URI("http://jira.example.com")) {
+            @Override
+            public JSON post(String path, JSON payload) {
+                JSONObject created = new JSONObject();
+                created.put("id", "10000");
+                created.put("key", "TEST-1");
+                created.put("self", "http://jira.example.com/rest/api/2/issue/10000");
+                return created;
+            }
+
+            @Override
+            public JSON get(URI uri) {
+                gets.incrementAndGet();
+
+                JSONObject fields = new JSONObject();
+                fields.put(Field.SUMMARY, "Hello");
+
+                JSONObject issue = new JSONObject();
+                issue.put("id", "10000");
+                issue.put("key", "TEST-1");
+                issue.put("fields", fields);
+                return issue;
+            }
+        };
+
+        IssueHandle handle = Issue.create(restclient, "TEST", "Bug", getSummarySchema())
+            .field(Field.SUMMARY, "Hello")
+            .executeWithoutRefetch();
+
+        assertEquals("10000", handle.getId());
+        assertEquals("TEST-1", handle.getKey());
+        assertFalse(handle.isHydrated());
+        assertEquals(0, gets.get());
+
+        Issue issue = handle.getIssue();
+        assertEquals("Hello", issue.getSummary());
+        assertTrue(handle.isHydrated());
+        assertSame(issue, handle.getIssue());
+        assertEquals(1, gets.get());
+    }
+}
@@ -0,0 +1,177 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONObject;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.util.List;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OutboxTest {
+
+    private static class RecordingClient extends RestClient {
+        final List<String> sent = new Vector<String>();
+        volatile int status = 0;
+
+        RecordingClient() throws Exception {
+            super(null, new URI("http://jira.example.com"));
+        }
+
+        @Override
+        public JSON post(String path, JSON payload) throws RestException {
+            if (status != 0 && path.contains("TEST-2"))
+                throw new RestException("Failed", status, "", null);
+
+            sent.add(path + " " + ((JSONObject) payload).get("body"));
+            return new JSONObject();
+        }
+    }
+
+    @Test
+    public void testWritesSurviveReopenAndKeepOrder() throws Exception {
+        File journal = File.createTempFile("outbox", ".journal");
+        journal.deleteOnExit();
+
+        RecordingClient client = new RecordingClient();
+        client.status = 503;
+
+        Outbox outbox = new Outbox(client, journal);
+        outbox.addComment("TEST-1", "first");
+        outbox.addComment("TEST-2", "blocked");
+        outbox.addComment("TEST-1", "second");
+        outbox.addComment("TEST-2", "after");
+        outbox.addWorkLog("TEST-1", "work", new DateTime(2016, 1, 30, 10, 0), 3600);
+
+        assertEquals(5, outbox.getPendingCount());
+        assertEquals(3, outbox.flush());
+        assertEquals(2, outbox.getPendingCount());
+        assertEquals("/rest/api/latest/issue/TEST-1/comment first", client.sent.get(0));
+        assertEquals("/rest/api/latest/issue/TEST-1/comment second", client.sent.get(1));
+        assertEquals(1, outbox.getPending().get(0).getAttempts());
+        outbox.close();
+
+        client = new RecordingClient();
+        outbox = new Outbox(client, journal);
+        assertEquals(2, outbox.getPendingCount());
+        assertEquals(2, outbox.flush());
+        assertEquals("/rest/api/latest/issue/TEST-2/comment blocked", client.sent.get(0));
+        assertEquals("/rest/api/latest/issue/TEST-2/comment after", client.sent.get(1));
+        assertEquals(0, outbox.getLagMillis());
+        outbox.close();
+
+        assertEquals(0, journal.length());
+    }
+
+    @Test
+    public void testRejectedWriteBecomesDeadLetter() throws Exception {
+        File journal = File.createTempFile("outbox", ".journal");
+        journal.deleteOnExit();
+
+        RecordingClient client = new RecordingClient();
+        client.status = 400;
+
+        Outbox outbox = new Outbox(client, journal);
+        outbox.addComment("TEST-2", "rejected");
+        assertEquals(1, outbox.flush());
+        outbox.close();
+
+        outbox = new Outbox(client, journal);
+        assertEquals(0, outbox.getPendingCount());
+        assertEquals(1, outbox.getDeadLetters().size());
+        assertTrue(outbox.getDeadLetters().get(0).getLastError().startsWith("400"));
+
+        outbox.clearDeadLetters();
+        assertEquals(0, outbox.getDeadLetters().size());
+        outbox.close();
+    }
+
+    @Test
+    public void testTornRecordIsDropped() throws Exception {
+        File journal = File.createTempFile("outbox", ".journal");
+        journal.deleteOnExit();
+
+        Outbox outbox = new Outbox(new RecordingClient(), journal);
+        outbox.addComment("TEST-1", "kept");
+        outbox.addComment("TEST-1", "torn");
+        outbox.close();
+
+        RandomAccessFile raf = new RandomAccessFile(journal, "rw");
+        try {
+            raf.setLength(raf.length() - 3);
+        } finally {
+            raf.close();
+        }
+
+        outbox = new Outbox(new RecordingClient(), journal);
+        assertEquals(1, outbox.getPendingCount());
+        outbox.addComment("TEST-1", "next");
+        assertEquals(2, outbox.getPending().get(1).getSequence());
+        outbox.close();
+    }
+
+    @Test
+    public void testInterruptedCompactionIsRecovered() throws Exception {
+        File journal = File.createTempFile("outbox", ".journal");
+        File tmp = new File(journal.getPath() + ".tmp");
+        journal.deleteOnExit();
+        tmp.deleteOnExit();
+
+        RecordingClient client = new RecordingClient();
+        Outbox outbox = new Outbox(client, journal);
+        outbox.addComment("TEST-1", "first");
+        outbox.close();
+
+        /* a crash before the rename leaves a stale file next to the journal */
+        RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+        raf.write(new byte[] { 1, 2, 3 });
+        raf.close();
+
+        outbox = new Outbox(client, journal);
+        assertEquals(1, outbox.getPendingCount());
+        assertTrue(!tmp.exists());
+        outbox.close();
+
+        /* a crash after the old journal was moved aside leaves only the new one */
+        assertTrue(journal.renameTo(tmp));
+
+        outbox = new Outbox(client, journal);
+        assertEquals(1, outbox.getPendingCount());
+        assertEquals(1, outbox.flush());
+        assertEquals("/rest/api/latest/issue/TEST-1/comment first", client.sent.get(0));
+        outbox.close();
+    }
+
+    @Test
+    public void testFlushAfterCloseIsRejected() throws Exception {
+        File journal = File.createTempFile("outbox", ".journal");
+        journal.deleteOnExit();
+
+        RecordingClient client = new RecordingClient();
+        Outbox outbox = new Outbox(client, journal);
+        outbox.addComment("TEST-1", "first");
+        outbox.close();
+
+        try {
+            outbox.flush();
+            fail("flush after close must fail");
+        } catch (JiraException ex) {
+            assertEquals("Outbox is closed", ex.getMessage());
+        }
+
+        assertEquals(0, client.sent.size());
+        assertNull(outbox.getLastReplayError());
+
+        outbox = new Outbox(client, journal);
+        assertEquals(1, outbox.getPendingCount());
+        outbox.close();
+    }
+}
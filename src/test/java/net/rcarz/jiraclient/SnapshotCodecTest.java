@@ -0,0 +1,96 @@
+package net.rcarz.jiraclient;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class SnapshotCodecTest {
+
+    @Test
+    public void testRoundTrip() throws JiraException {
+        Issue issue = new Issue(null, Utils.getTestIssue());
+        Issue copy = SnapshotCodec.decode(null, SnapshotCodec.encode(issue));
+
+        assertEquals(issue.getId(), copy.getId());
+        assertEquals(issue.getKey(), copy.getKey());
+        assertEquals(issue.getSummary(), copy.getSummary());
+        assertEquals(issue.getDescription(), copy.getDescription());
+        assertEquals(issue.getLabels(), copy.getLabels());
+        assertEquals(issue.getCreatedDate(), copy.getCreatedDate());
+        assertEquals(issue.getTimeEstimate(), copy.getTimeEstimate());
+        assertEquals(issue.getTimeSpent(), copy.getTimeSpent());
+        assertEquals(issue.getStatus().getName(), copy.getStatus().getName());
+        assertEquals(issue.getReporter().getEmail(), copy.getReporter().getEmail());
+        assertEquals(issue.getReporter().getAvatarUrls(), copy.getReporter().getAvatarUrls());
+        assertEquals(issue.getFixVersions().size(), copy.getFixVersions().size());
+        assertEquals(issue.getFixVersions().get(0).getName(), copy.getFixVersions().get(0).getName());
+        assertEquals(issue.getComments().size(), copy.getComments().size());
+        assertEquals(issue.getComments().get(0).getBody(), copy.getComments().get(0).getBody());
+        assertEquals(issue.getWorkLogs().size(), copy.getWorkLogs().size());
+        assertNull(copy.getChangeLog());
+    }
+
+    @Test
+    public void testRawFieldsAreRestored() throws JiraException {
+        Issue issue = new Issue(null, Utils.getTestIssue());
+        Issue copy = SnapshotCodec.decode(null, SnapshotCodec.encode(issue));
+
+        assertEquals(issue.getField("customfield_10006"), copy.getField("customfield_10006"));
+        assertNotNull(copy.getPriority());
+        assertEquals(issue.getPriority().getName(), copy.getPriority().getName());
+        assertEquals(issue.getProject().getKey(), copy.getProject().getKey());
+        assertEquals(issue.getComponents().size(), copy.getComponents().size());
+    }
+
+    @Test
+    public void testEncodeDecodeMany() throws JiraException {
+        List<Issue> issues = new ArrayList<Issue>();
+        issues.add(new Issue(null, Utils.getTestIssue()));
+        issues.add(new Issue(null, Utils.getTestIssue()));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        SnapshotCodec.encode(issues, bos);
+        List<Issue> copies = SnapshotCodec.decode(null, new ByteArrayInputStream(bos.toByteArray()));
+
+        assertEquals(2, copies.size());
+        assertEquals("FILTA-43", copies.get(1).getKey());
+    }
+
+    @Test
+    public void testSnapshotOfSnapshot() throws JiraException {
+        Issue issue = new Issue(null, Utils.getTestIssue());
+        byte[] first = SnapshotCodec.encode(issue);
+        byte[] second = SnapshotCodec.encode(SnapshotCodec.decode(null, first));
+
+        assertEquals(first.length, second.length);
+    }
+
+    @Test
+    public void testLongStrings() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 70000)
+            sb.append("long description \u00e9\u4e2d ");
+
+        Map<String, Object> fields = new HashMap<String, Object>();
+        fields.put("description", sb.toString());
+        fields.put("summary", sb.toString());
+
+        Map copy = (Map) SnapshotCodec.unpack(SnapshotCodec.pack(fields));
+        assertEquals(sb.toString(), copy.get("description"));
+        assertEquals(sb.toString(), copy.get("summary"));
+    }
+
+    @Test(expected = JiraException.class)
+    public void testRejectsGarbage() throws JiraException {
+        SnapshotCodec.decode(null, new byte[] { 1, 2, 3, 4, 5 });
+    }
+}
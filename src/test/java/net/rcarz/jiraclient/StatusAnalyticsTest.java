@@ -0,0 +1,87 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class StatusAnalyticsTest {
+
+    private static final long HOUR = 3600 * 1000L;
+    private static final Date T0 = Field.getDateTime("2020-01-01T00:00:00.000+0000");
+
+    /**
+     * Builds a history list from pairs of hours since T0 and target status,
+     * starting from Open.
+     */
+    private static List<IssueHistory> histories(Object... changes) {
+        List<IssueHistory> list = new ArrayList<IssueHistory>();
+        String from = "Open";
+
+        for (int i = 0; i < changes.length; i += 2) {
+            JSONObject item = new JSONObject();
+            item.put("field", "status");
+            item.put("fromString", from);
+            item.put("toString", changes[i + 1]);
+            from = (String) changes[i + 1];
+
+            JSONArray items = new JSONArray();
+            items.add(item);
+
+            JSONObject json = new JSONObject();
+            json.put("created", String.format("2020-01-01T%02d:00:00.000+0000", changes[i]));
+            json.put("items", items);
+            list.add(new IssueHistory(null, json));
+        }
+
+        return list;
+    }
+
+    @Test
+    public void testDurations() throws JiraException {
+        StatusAnalytics analytics = new StatusAnalytics().cycleStart("In Progress").done("Done");
+        analytics.add("TEST-1", T0, histories(2, "In Progress", 5, "Review", 6, "Done"));
+        analytics.add("TEST-2", T0, histories(1, "In Progress", 3, "Done", 4, "In Progress"));
+        analytics.add("TEST-3", T0, histories(10, "Done"));
+
+        StatusAnalytics.Report report = analytics.compute(new Date(T0.getTime() + 24 * HOUR));
+
+        assertEquals(3, report.getIssues());
+        assertEquals(2, report.getLeadTime().getCount());
+        assertEquals(6 * HOUR, report.getLeadTime().getMedian());
+        assertEquals(10 * HOUR, report.getLeadTime().getMax());
+        assertEquals(1, report.getCycleTime().getCount());
+        assertEquals(4 * HOUR, report.getCycleTime().getMin());
+        assertEquals(2 * HOUR, report.getTimeInStatus("Open").getMedian());
+        assertEquals(25 * HOUR, report.getTimeInStatus("In Progress").getTotal());
+        assertNull(report.getTimeInStatus("Closed"));
+
+        List<StatusAnalytics.Interval> timeline = analytics.getTimeline("TEST-1");
+        assertEquals(4, timeline.size());
+        assertEquals("Review", timeline.get(2).getStatus());
+        assertEquals(T0.getTime() + 6 * HOUR, timeline.get(2).getEnd().getTime());
+        assertNull(timeline.get(3).getEnd());
+    }
+
+    @Test
+    public void testParallelComputationMatchesIssueCount() throws JiraException {
+        StatusAnalytics analytics = new StatusAnalytics().done("Done").parallelism(4);
+        List<IssueHistory> histories = histories(1, "In Progress", 3, "Done");
+
+        for (int i = 0; i < 5000; i++)
+            analytics.add("TEST-" + i, T0, histories);
+
+        StatusAnalytics.Report report = analytics.compute(new Date(T0.getTime() + 24 * HOUR));
+
+        assertEquals(15000, analytics.getTransitionCount());
+        assertEquals(5000, report.getLeadTime().getCount());
+        assertEquals(2 * HOUR, report.getCycleTime().getPercentile(95));
+        assertEquals(HOUR, report.getTimeInStatus("Open").getPercentile(50));
+    }
+}
@@ -0,0 +1,96 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+
+public class WorkLogAggregatorTest {
+
+    private static JSONObject worklog(String author, String day, int seconds) {
+        JSONObject user = new JSONObject();
+        user.put("name", author);
+
+        JSONObject json = new JSONObject();
+        json.put("author", user);
+        json.put("started", day + "T09:00:00.000+0000");
+        json.put("timeSpentSeconds", seconds);
+        return json;
+    }
+
+    private static JSONObject worklogs(int total, JSONObject... worklogs) {
+        JSONArray list = new JSONArray();
+        for (JSONObject w : worklogs)
+            list.add(w);
+
+        JSONObject json = new JSONObject();
+        json.put("startAt", 0);
+        json.put("total", total);
+        json.put("worklogs", list);
+        return json;
+    }
+
+    private static JSONObject issue(String key, String project, JSONObject worklog) {
+        JSONObject p = new JSONObject();
+        p.put("key", project);
+
+        JSONObject fields = new JSONObject();
+        fields.put("project", p);
+        fields.put("worklog", worklog);
+
+        JSONObject json = new JSONObject();
+        json.put("key", key);
+        json.put("fields", fields);
+        return json;
+    }
+
+    @Test
+    public void testAggregatesPerUserProjectAndDay() throws Exception {
+        final List<String> paths = new Vector<String>();
+
+        RestClient restclient = new RestClient(null, new URI("http://jira.example.com")) {
+            @Override
+            public JSON get(URI uri) {
+                paths.add(uri.getPath());
+
+                if (uri.getPath().endsWith("/search")) {
+                    JSONArray issues = new JSONArray();
+                    issues.add(issue("A-1", "A", worklogs(2,
+                        worklog("alice", "2020-01-01", 3600), worklog("alice", "2020-01-01", 1800))));
+                    issues.add(issue("B-1", "B", worklogs(3, worklog("bob", "2020-01-01", 600))));
+
+                    JSONObject result = new JSONObject();
+                    result.put("total", 2);
+                    result.put("issues", issues);
+                    return result;
+                }
+
+                return worklogs(3, worklog("bob", "2020-01-01", 600), worklog("bob", "2020-01-02", 600),
+                    worklog("alice", "2020-01-02", 60));
+            }
+        };
+
+        WorkLogAggregator.Table table = new WorkLogAggregator(restclient, "project in (A, B)")
+            .timeZone(TimeZone.getTimeZone("UTC"))
+            .execute();
+
+        assertEquals(2, table.getIssues());
+        assertEquals(5, table.getWorkLogs());
+        assertEquals(2, paths.size());
+        assertEquals(6660, table.getTotalSeconds());
+        assertEquals(Long.valueOf(1200), table.getSecondsByUser().get("bob"));
+
+        List<WorkLogAggregator.Row> rows = table.getRows();
+        assertEquals(4, rows.size());
+        assertEquals("alice\tA\t2020-01-01\t5400", rows.get(0).toString());
+        assertEquals("alice\tB\t2020-01-02\t60", rows.get(1).toString());
+        assertEquals("bob\tB\t2020-01-02\t600", rows.get(3).toString());
+    }
+}
@@ -0,0 +1,110 @@
+package net.rcarz.jiraclient;
+
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class WorkLogFeedTest {
+
+    private static JSONObject worklog(long id) {
+        JSONObject json = new JSONObject();
+        json.put("id", String.valueOf(id));
+        json.put("issueId", "10000");
+        json.put("timeSpentSeconds", 60);
+        return json;
+    }
+
+    private static int getParam(URI uri, String name) {
+        return Integer.parseInt(uri.getQuery().replaceAll(".*" + name + "=(\\d+).*", "$1"));
+    }
+
+    @Test
+    public void testIteratorReadsAllPages() throws Exception {
+        final List<Integer> starts = new Vector<Integer>();
+
+        RestClient restclient = new RestClient(null, new URI("http://jira.example.com")) {
+            @Override
+            public JSON get(URI uri) {
+                int startAt = getParam(uri, "startAt");
+                starts.add(startAt);
+
+                JSONArray worklogs = new JSONArray();
+                for (int i = startAt; i < Math.min(5, startAt + getParam(uri, "maxResults")); i++)
+                    worklogs.add(worklog(i));
+
+                JSONObject result = new JSONObject();
+                result.put("startAt", startAt);
+                result.put("total", 5);
+                result.put("worklogs", worklogs);
+                return result;
+            }
+        };
+
+        Iterator<WorkLog> it = WorkLog.iterator(restclient, "TEST-1", 2);
+        for (int i = 0; i < 5; i++)
+            assertEquals(String.valueOf(i), it.next().getId());
+
+        assertFalse(it.hasNext());
+        assertEquals(3, starts.size());
+    }
+
+    @Test
+    public void testFeedAdvancesCursor() throws Exception {
+        final List<JSON> lists = new Vector<JSON>();
+
+        RestClient restclient = new RestClient(null, new URI("http://jira.example.com")) {
+            @Override
+            public JSON get(URI uri) {
+                boolean first = getParam(uri, "since") == 0;
+
+                JSONArray values = new JSONArray();
+                for (long id : first ? new long[] { 1, 2 } : new long[] { 3 }) {
+                    JSONObject value = new JSONObject();
+                    value.put("worklogId", id);
+                    values.add(value);
+                }
+
+                JSONObject result = new JSONObject();
+                result.put("values", values);
+                result.put("until", first ? 100L : 200L);
+                result.put("lastPage", !first);
+                return result;
+            }
+
+            @Override
+            public JSON post(String path, JSON payload) {
+                lists.add(payload);
+
+                JSONArray result = new JSONArray();
+                for (Object id : (JSONArray) ((JSONObject) payload).get("ids"))
+                    result.add(worklog(((Number) id).longValue()));
+                return result;
+            }
+        };
+
+        final List<WorkLog> received = new ArrayList<WorkLog>();
+        WorkLogFeed feed = new WorkLogFeed(restclient, 0);
+
+        int count = feed.poll(new WorkLogFeed.Handler() {
+            public void handle(List<WorkLog> worklogs) {
+                received.addAll(worklogs);
+            }
+        });
+
+        assertEquals(3, count);
+        assertEquals(2, lists.size());
+        assertEquals(200L, feed.getSince());
+        assertEquals("3", received.get(2).getId());
+        assertEquals("10000", received.get(0).getIssueId());
+    }
+}
@@ -0,0 +1,86 @@
+package net.rcarz.jiraclient.agile;
+
+import net.rcarz.jiraclient.JiraException;
+import net.rcarz.jiraclient.RestClient;
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class AgileIteratorTest {
+
+    /**
+     * Serves a board list of the given size, with at most cap boards per
+     * page and only one board at shortAt.
+     */
+    private static RestClient getBoardClient(final int total, final int cap, final int shortAt,
+                                             final boolean paginated, final List<Integer> starts) {
+        return new RestClient(null, null) {
+            @Override
+            public JSON get(String path, Map<String, String> params) {
+                int startAt = Integer.parseInt(params.get("startAt"));
+                int count = Math.min(Math.min(cap, Integer.parseInt(params.get("maxResults"))), total - startAt);
+                if (startAt == shortAt)
+                    count = 1;
+
+                starts.add(startAt);
+
+                JSONArray values = new JSONArray();
+                for (int i = startAt; i < startAt + count; i++) {
+                    JSONObject board = new JSONObject();
+                    board.put("id", i);
+                    board.put("name", "Board " + i);
+                    values.add(board);
+                }
+
+                JSONObject result = new JSONObject();
+                if (paginated) {
+                    result.put("startAt", startAt);
+                    result.put("maxResults", Math.min(cap, Integer.parseInt(params.get("maxResults"))));
+                    result.put("total", total);
+                    result.put("isLast", startAt + count >= total);
+                }
+                result.put("values", values);
+                return result;
+            }
+        };
+    }
+
+    @Test
+    public void testListReadsEveryPage() throws JiraException {
+        List<Integer> starts = new Vector<Integer>();
+        List<Board> boards = Board.getAll(getBoardClient(120, 50, -1, true, starts));
+
+        assertEquals(120, boards.size());
+        for (int i = 0; i < boards.size(); i++)
+            assertEquals(i, boards.get(i).getId());
+        assertEquals(3, starts.size());
+    }
+
+    @Test
+    public void testShortPageIsFollowed() {
+        List<Integer> starts = new Vector<Integer>();
+        Iterator<Board> it = Board.iterateAll(getBoardClient(100, 20, 40, true, starts), 20);
+
+        for (int i = 0; i < 100; i++)
+            assertEquals(i, it.next().getId());
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testUnpaginatedListIsReadOnce() throws JiraException {
+        List<Integer> starts = new Vector<Integer>();
+        List<Board> boards = Board.getAll(getBoardClient(10, 50, -1, false, starts));
+
+        assertEquals(10, boards.size());
+        assertEquals(1, starts.size());
+    }
+}
@@ -0,0 +1,86 @@
+package net.rcarz.jiraclient.agile;
+
+import net.rcarz.jiraclient.JiraException;
+import net.rcarz.jiraclient.RestClient;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AgileResourceFactoryTest {
+
+    public static class CustomBoard extends Board {
+        CustomBoard(RestClient restclient, JSONObject json) throws JiraException {
+            super(restclient, json);
+        }
+    }
+
+    private static JSONObject named(int id, String name) {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("name", name);
+        return json;
+    }
+
+    private static JSONObject issues(int n) {
+        JSONArray issues = new JSONArray();
+
+        for (int i = 0; i < n; i++) {
+            JSONObject fields = new JSONObject();
+            fields.put("summary", "Issue " + i);
+            fields.put("status", named(3, "In Progress"));
+            fields.put("issuetype", named(1, "Story"));
+            fields.put("priority", named(2, "Major"));
+            fields.put("project", named(10000, "Test"));
+            fields.put("assignee", named(7, "alice"));
+            fields.put("reporter", named(8, "bob"));
+            fields.put("sprint", named(42, "Sprint 1"));
+
+            JSONObject issue = named(i, null);
+            issue.put("key", "TEST-" + i);
+            issue.put("fields", fields);
+            issues.add(issue);
+        }
+
+        JSONObject json = new JSONObject();
+        json.put("issues", issues);
+        return json;
+    }
+
+    @Test
+    public void testUnregisteredTypeUsesItsConstructor() throws JiraException {
+        CustomBoard board = AgileResource.getResource(CustomBoard.class, named(5, "Custom"), null);
+
+        assertEquals(5, board.getId());
+        assertTrue(AgileResource.getFactory(CustomBoard.class) == AgileResource.getFactory(CustomBoard.class));
+    }
+
+    @Test
+    public void testNestedTypesUseRegisteredFactories() throws JiraException {
+        final AgileResource.ResourceFactory<Sprint> original = AgileResource.getFactory(Sprint.class);
+        final int[] created = new int[1];
+
+        AgileResource.register(Sprint.class, new AgileResource.ResourceFactory<Sprint>() {
+            public Sprint create(RestClient restclient, JSONObject json) throws JiraException {
+                created[0]++;
+                return original.create(restclient, json);
+            }
+        });
+
+        try {
+            List<Issue> issues = AgileResource.getResourceArray(Issue.class, issues(20), null, "issues");
+
+            assertEquals(20, issues.size());
+            assertEquals(20, created[0]);
+            assertEquals("Sprint 1", issues.get(0).getSprint().getName());
+            assertEquals("In Progress", issues.get(19).getStatus().getName());
+            assertTrue(AgileResource.getFactory(Issue.class) == AgileResource.getFactory(Issue.class));
+        } finally {
+            AgileResource.register(Sprint.class, original);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package net.rcarz.jiraclient.agile;
+
+import net.rcarz.jiraclient.JiraException;
+import net.rcarz.jiraclient.RestClient;
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AgileSnapshotTest {
+
+    /**
+     * Serves two scrum boards sharing sprint 10, board 2 also showing sprint
+     * 11, and a kanban board. Issues of the sprints in updated count as
+     * changed, and so do issues moved to another sprint through moves.
+     */
+    private static RestClient getClient(final List<String> paths, final Set<Long> updated,
+                                        final Map<String, Long> moves) {
+        return new RestClient(null, null) {
+            @Override
+            public JSON get(String path, Map<String, String> params) {
+                paths.add(path + (params.containsKey("jql") ? "?jql" : "key".equals(params.get("fields")) ? "?total" : ""));
+
+                JSONObject result = new JSONObject();
+                JSONArray values = new JSONArray();
+
+                if (path.endsWith("/board")) {
+                    values.add(board(1, "scrum"));
+                    values.add(board(2, "scrum"));
+                    values.add(board(3, "kanban"));
+                } else if (path.endsWith("/sprint")) {
+                    assertEquals("active", params.get("state"));
+                    values.add(sprint(10));
+                    if (path.contains("board/2/"))
+                        values.add(sprint(11));
+                } else if (path.endsWith("/issue")) {
+                    long sprint = Long.parseLong(path.replaceAll(".*sprint/(\\d+)/issue", "$1"));
+                    List<String> keys = new ArrayList<String>();
+                    for (int i = 0; i < 3; i++) {
+                        String key = "S" + sprint + "-" + i;
+                        if (!moves.containsKey(key))
+                            keys.add(key);
+                    }
+                    for (Map.Entry<String, Long> move : moves.entrySet()) {
+                        if (move.getValue() == sprint)
+                            keys.add(move.getKey());
+                    }
+
+                    if (params.containsKey("jql")) {
+                        result.put("total", updated.contains(sprint) || moves.containsValue(sprint) ? 1 : 0);
+                        result.put("issues", new JSONArray());
+                        return result;
+                    }
+                    for (String key : keys) {
+                        JSONObject issue = new JSONObject();
+                        issue.put("id", key.hashCode());
+                        issue.put("key", key);
+                        values.add(issue);
+                    }
+                    result.put("total", keys.size());
+                    result.put("isLast", true);
+                    result.put("issues", values);
+                    return result;
+                }
+
+                result.put("total", values.size());
+                result.put("isLast", true);
+                result.put("values", values);
+                return result;
+            }
+        };
+    }
+
+    private static JSONObject board(long id, String type) {
+        JSONObject board = new JSONObject();
+        board.put("id", id);
+        board.put("name", "Board " + id);
+        board.put("type", type);
+        return board;
+    }
+
+    private static JSONObject sprint(long id) {
+        JSONObject sprint = new JSONObject();
+        sprint.put("id", id);
+        sprint.put("name", "Sprint " + id);
+        sprint.put("state", "active");
+        return sprint;
+    }
+
+    private static int count(List<String> paths, String suffix) {
+        int n = 0;
+        for (String path : paths)
+            if (path.endsWith(suffix))
+                n++;
+        return n;
+    }
+
+    @Test
+    public void testLoadLinksBoardsSprintsAndIssues() throws JiraException {
+        List<String> paths = new Vector<String>();
+        AgileSnapshot snapshot = new AgileSnapshot.Loader(getClient(paths, null, new HashMap<String, Long>())).parallelism(4).load();
+
+        assertEquals(3, snapshot.getBoards().size());
+        assertEquals(2, snapshot.getSprints().size());
+        assertEquals(0, snapshot.getSprints(snapshot.getBoard(3)).size());
+        assertEquals(2, snapshot.getSprints(snapshot.getBoard(2)).size());
+
+        Sprint shared = snapshot.getSprint(10);
+        assertEquals(2, snapshot.getBoards(shared).size());
+        assertEquals(3, snapshot.getIssues(shared).size());
+        assertSame(shared, snapshot.getSprint(snapshot.getIssue("S10-1")));
+        assertNull(snapshot.getIssue("S12-0"));
+
+        /* the shared sprint is loaded once and the kanban board is skipped */
+        assertEquals(2, count(paths, "/sprint"));
+        assertEquals(2, count(paths, "/issue"));
+        assertEquals(2, snapshot.getReloadedSprints());
+    }
+
+    @Test
+    public void testRefreshReloadsOnlyChangedSprints() throws JiraException {
+        List<String> paths = new Vector<String>();
+        Set<Long> updated = Collections.synchronizedSet(new HashSet<Long>());
+        AgileSnapshot.Loader loader = new AgileSnapshot.Loader(getClient(paths, updated,
+                new HashMap<String, Long>()));
+        AgileSnapshot first = loader.load();
+
+        updated.add(11L);
+        paths.clear();
+        AgileSnapshot second = loader.refresh(first);
+
+        assertEquals(2, count(paths, "?total"));
+        assertEquals(2, count(paths, "?jql"));
+        assertEquals(1, count(paths, "/issue"));
+        assertEquals(1, second.getReloadedSprints());
+        assertSame(first.getIssue("S10-0"), second.getIssue("S10-0"));
+        assertTrue(first.getIssue("S11-0") != second.getIssue("S11-0"));
+        assertTrue(second.getLoadedAt() >= first.getLoadedAt());
+    }
+
+    @Test
+    public void testRefreshReloadsBothSprintsOfAMovedIssue() throws JiraException {
+        List<String> paths = new Vector<String>();
+        Map<String, Long> moves = new ConcurrentHashMap<String, Long>();
+        AgileSnapshot.Loader loader = new AgileSnapshot.Loader(getClient(paths,
+                Collections.synchronizedSet(new HashSet<Long>()), moves));
+        AgileSnapshot first = loader.load();
+
+        moves.put("S10-0", 11L);
+        AgileSnapshot second = loader.refresh(first);
+
+        assertEquals(2, second.getReloadedSprints());
+        assertEquals(2, second.getIssues(second.getSprint(10)).size());
+        assertEquals(4, second.getIssues(second.getSprint(11)).size());
+        assertEquals(11, second.getSprint(second.getIssue("S10-0")).getId());
+    }
+}
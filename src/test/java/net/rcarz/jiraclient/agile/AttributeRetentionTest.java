@@ -0,0 +1,72 @@
+package net.rcarz.jiraclient.agile;
+
+import net.rcarz.jiraclient.JiraException;
+import net.rcarz.jiraclient.RestClient;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AttributeRetentionTest {
+
+    private static JSONObject getIssueJson() {
+        JSONObject status = new JSONObject();
+        status.put("id", 3);
+        status.put("name", "In Progress");
+        status.put("description", "Being worked on");
+
+        JSONObject fields = new JSONObject();
+        fields.put("summary", "Summary");
+        fields.put("status", status);
+        fields.put("customfield_10002", 5);
+        fields.put("customfield_10003", "large");
+
+        JSONObject json = new JSONObject();
+        json.put("id", 10);
+        json.put("key", "TEST-10");
+        json.put("fields", fields);
+        return json;
+    }
+
+    @Test
+    public void testFullRetainsEverything() throws JiraException {
+        Issue issue = new Issue(new RestClient(null, null), getIssueJson());
+
+        assertEquals(5, issue.getAttribute("customfield_10002"));
+        assertEquals("Being worked on", issue.getStatus().getAttribute("description"));
+    }
+
+    @Test
+    public void testWhitelistRetainsListedKeys() throws JiraException {
+        RestClient restclient = new RestClient(null, null);
+        AgileResource.setAttributeRetention(restclient, AttributeRetention.only("customfield_10002"));
+        Issue issue = new Issue(restclient, getIssueJson());
+
+        assertEquals(5, issue.getAttribute("customfield_10002"));
+        assertNull(issue.getAttribute("customfield_10003"));
+        assertNull(issue.getStatus().getAttribute("description"));
+        assertEquals("In Progress", issue.getStatus().getName());
+    }
+
+    @Test
+    public void testNoneKeepsDecodedFields() throws JiraException {
+        RestClient restclient = new RestClient(null, null);
+        AgileResource.setAttributeRetention(restclient, AttributeRetention.NONE);
+        Issue issue = new Issue(restclient, getIssueJson());
+
+        assertNull(issue.getAttribute("summary"));
+        assertEquals("Summary", issue.getName());
+        assertEquals("TEST-10", issue.getKey());
+    }
+
+    @Test
+    public void testRetentionIsPerClient() throws JiraException {
+        RestClient slim = new RestClient(null, null);
+        AgileResource.setAttributeRetention(slim, AttributeRetention.NONE);
+
+        assertNull(new Issue(slim, getIssueJson()).getAttribute("customfield_10002"));
+        assertEquals(5, new Issue(new RestClient(null, null), getIssueJson()).getAttribute("customfield_10002"));
+        assertEquals(5, new Issue(null, getIssueJson()).getAttribute("customfield_10002"));
+    }
+}
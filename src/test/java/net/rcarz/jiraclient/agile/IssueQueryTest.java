@@ -0,0 +1,86 @@
+package net.rcarz.jiraclient.agile;
+
+import net.rcarz.jiraclient.JiraException;
+import net.rcarz.jiraclient.RestClient;
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class IssueQueryTest {
+
+    /**
+     * Records the query of every request and serves one bare issue.
+     */
+    private static RestClient getClient(final Map<String, Map<String, String>> requests) {
+        return new RestClient(null, null) {
+            @Override
+            public JSON get(String path, Map<String, String> params) {
+                requests.put(path, new HashMap<String, String>(params));
+
+                JSONObject issue = new JSONObject();
+                issue.put("id", 1);
+                issue.put("key", "TEST-1");
+                JSONArray issues = new JSONArray();
+                issues.add(issue);
+
+                JSONObject result = new JSONObject();
+                result.put("total", 1);
+                result.put("isLast", true);
+                result.put("issues", issues);
+                return result;
+            }
+        };
+    }
+
+    private static JSONObject resource(long id) {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("name", "Resource " + id);
+        return json;
+    }
+
+    @Test
+    public void testQueryIsPassedThrough() throws JiraException {
+        Map<String, Map<String, String>> requests = new HashMap<String, Map<String, String>>();
+        RestClient restclient = getClient(requests);
+
+        List<Issue> issues = new Sprint(restclient, resource(7)).getIssues("status = Done", "summary,status", "changelog");
+        assertEquals(1, issues.size());
+        assertEquals("TEST-1", issues.get(0).getKey());
+        assertNull(issues.get(0).getStatus());
+
+        Map<String, String> query = requests.get("/rest/agile/1.0/sprint/7/issue");
+        assertEquals("status = Done", query.get("jql"));
+        assertEquals("summary,status", query.get("fields"));
+        assertEquals("changelog", query.get("expand"));
+        assertEquals("0", query.get("startAt"));
+    }
+
+    @Test
+    public void testUnsetParametersAreLeftOut() throws JiraException {
+        Map<String, Map<String, String>> requests = new HashMap<String, Map<String, String>>();
+        RestClient restclient = getClient(requests);
+
+        Board board = new Board(restclient, resource(3));
+        board.getBacklog(null, "key", null);
+        board.getIssuesWithoutEpic("type = Bug", null, null);
+        new Epic(restclient, resource(5)).getIssues(null, null, null);
+
+        Map<String, String> backlog = requests.get("/rest/agile/1.0/board/3/backlog");
+        assertEquals("key", backlog.get("fields"));
+        assertFalse(backlog.containsKey("jql"));
+        assertFalse(backlog.containsKey("expand"));
+
+        assertEquals("type = Bug", requests.get("/rest/agile/1.0/board/3/epic/none/issue").get("jql"));
+        assertFalse(requests.get("/rest/agile/1.0/epic/5/issue").containsKey("fields"));
+    }
+}
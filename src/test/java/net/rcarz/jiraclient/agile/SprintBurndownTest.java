@@ -0,0 +1,104 @@
+package net.rcarz.jiraclient.agile;
+
+import net.rcarz.jiraclient.Field;
+import net.rcarz.jiraclient.IssueHistory;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class SprintBurndownTest {
+
+    private static final double HOUR = 3600;
+
+    private static Date at(String time) {
+        return Field.getDateTime("2020-01-" + time + ":00.000+0000");
+    }
+
+    /**
+     * Builds one history holding a single change.
+     */
+    private static IssueHistory change(String id, String time, String field, String from, String to) {
+        JSONObject item = new JSONObject();
+        item.put("field", field);
+        item.put("from", from);
+        item.put("to", to);
+        item.put("fromString", from);
+        item.put("toString", to);
+
+        JSONArray items = new JSONArray();
+        items.add(item);
+
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("created", "2020-01-" + time + ":00.000+0000");
+        json.put("items", items);
+        return new IssueHistory(null, json) {
+        };
+    }
+
+    private static SprintBurndown getBurndown() {
+        SprintBurndown burndown = new SprintBurndown(7, at("01T09:00"), at("05T17:00"))
+                .timeZone(TimeZone.getTimeZone("UTC"));
+
+        burndown.add("TEST-1", at("01T08:00"), "Done", 8 * HOUR,
+                Collections.singletonList(change("1", "02T12:00", "status", "To Do", "Done")));
+        burndown.add("TEST-2", at("01T08:00"), "In Progress", 4 * HOUR,
+                Collections.singletonList(change("2", "01T15:00", "timeestimate", "7200", "14400")));
+        burndown.add("TEST-3", at("01T08:00"), "To Do", 3 * HOUR,
+                Collections.singletonList(change("3", "03T10:00", "Sprint", "6", "6, 7")));
+        return burndown;
+    }
+
+    private static void assertPoint(SprintBurndown.Point point, double remaining, double scope, double completed) {
+        assertEquals(remaining * HOUR, point.getRemaining(), 0.001);
+        assertEquals(scope * HOUR, point.getScope(), 0.001);
+        assertEquals(completed * HOUR, point.getCompleted(), 0.001);
+    }
+
+    @Test
+    public void testDailySeries() {
+        SprintBurndown.Chart chart = getBurndown().compute(at("10T00:00"));
+        List<SprintBurndown.Point> points = chart.getPoints();
+
+        assertEquals(5, points.size());
+        assertEquals(at("01T00:00"), points.get(0).getDay());
+        assertEquals(10 * HOUR, chart.getCommitted(), 0.001);
+        assertPoint(points.get(0), 12, 12, 0);
+        assertPoint(points.get(1), 4, 12, 8);
+        assertPoint(points.get(2), 7, 15, 8);
+        assertPoint(points.get(4), 7, 15, 8);
+    }
+
+    @Test
+    public void testRefreshOnlyRecomputesNewDays() {
+        SprintBurndown burndown = getBurndown();
+
+        assertEquals(3, burndown.compute(at("03T12:00")).getRecomputedDays());
+        /* the open day and the new day */
+        assertEquals(2, burndown.compute(at("04T12:00")).getRecomputedDays());
+
+        burndown.add("TEST-2", null, null, null, Arrays.asList(
+                change("2", "01T15:00", "timeestimate", "7200", "14400"),
+                change("4", "04T13:00", "status", "In Progress", "Done")));
+        assertEquals(4, burndown.getChangeCount());
+
+        SprintBurndown.Chart chart = burndown.compute(at("04T18:00"));
+        assertEquals(1, chart.getRecomputedDays());
+        assertPoint(chart.getPoints().get(2), 7, 15, 8);
+        assertPoint(chart.getPoints().get(3), 3, 15, 12);
+
+        /* a new issue invalidates every day */
+        burndown.add("TEST-4", at("01T08:00"), "To Do", HOUR, Collections.<IssueHistory>emptyList());
+        chart = burndown.compute(at("04T18:00"));
+        assertEquals(4, chart.getRecomputedDays());
+        assertPoint(chart.getPoints().get(3), 4, 16, 12);
+    }
+}
@@ -0,0 +1,42 @@
+package net.rcarz.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrencyUtilsTest {
+
+    @Test
+    public void testSharedExecutorIsBounded() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(50);
+
+        for (int i = 0; i < 50; i++) {
+            ConcurrencyUtils.sharedExecutor().execute(new Runnable() {
+                public void run() {
+                    int now = running.incrementAndGet();
+                    synchronized (peak) {
+                        peak.set(Math.max(peak.get(), now));
+                    }
+
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(peak.get() <= ConcurrencyUtils.SHARED_THREADS);
+    }
+}